@@ -21,6 +21,7 @@ import java.io.File;
 import java.util.Locale;
 
 import jorgan.cli.spi.OptionRegistry;
+import jorgan.io.DispositionStream;
 import jorgan.session.History;
 import jorgan.spi.ConfigurationRegistry;
 import jorgan.spi.UIRegistry;
@@ -97,6 +98,8 @@ public class App {
 
 		new Version().log();
 
+		DispositionStream.prewarm();
+
 		configuration.read(new App()).start(file);
 
 		Configuration.getRoot().flush();
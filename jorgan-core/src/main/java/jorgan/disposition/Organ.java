@@ -20,8 +20,11 @@ package jorgan.disposition;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -164,6 +167,30 @@ public class Organ {
 		element.organ = this;
 	}
 
+	/**
+	 * Bind all elements in one pass, see {@link #bind(Element)}.<br>
+	 * This method is not part of this class' public API!
+	 */
+	public void bindElements() {
+		long maxId = 0;
+		for (Element element : elements) {
+			if (element.id != null) {
+				maxId = Math.max(maxId, element.id);
+			}
+		}
+
+		// the last of duplicate ids keeps its id
+		Set<Long> ids = new HashSet<Long>();
+		for (int e = elements.size() - 1; e >= 0; e--) {
+			Element element = elements.get(e);
+
+			if (element.id == null || !ids.add(element.id)) {
+				element.id = ++maxId;
+			}
+			element.organ = this;
+		}
+	}
+
 	public void addElements(Collection<Element> elements) {
 		for (Element element : elements) {
 			if (this.elements.contains(element)) {
@@ -352,6 +379,95 @@ public class Organ {
 		return null;
 	}
 
+	/**
+	 * Create a snapshot of this organ, i.e. a copy of all elements including
+	 * their references and messages. The snapshot isn't observed by any
+	 * listener, so it can be processed on another thread while this organ is
+	 * changed further.
+	 * 
+	 * @return snapshot
+	 */
+	public Organ snapshot() {
+		Organ snapshot = new Organ();
+		snapshot.version = version;
+
+		Map<Element, Element> clones = new IdentityHashMap<Element, Element>();
+		for (Element element : elements) {
+			Element clone = element.clone();
+			clone.organ = snapshot;
+
+			clones.put(element, clone);
+			snapshot.elements.add(clone);
+		}
+
+		for (Element clone : snapshot.elements) {
+			List<Reference<? extends Element>> references = clone.references;
+			for (int r = 0; r < references.size(); r++) {
+				Reference<? extends Element> reference = references.get(r);
+
+				references.set(r, reference.clone(clones.get(reference
+						.getElement())));
+			}
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * Restore states of elements, e.g. from a journal: Elements with a removed
+	 * id are dropped, restored elements replace elements with an equal id or
+	 * are added. References to replaced elements are redirected to their
+	 * replacements, references of restored elements have to be resolved to the
+	 * final elements already. No changes are fired.<br>
+	 * This method is not part of this class' public API!
+	 * 
+	 * @param removed
+	 *            ids of removed elements
+	 * @param restored
+	 *            states of elements
+	 */
+	public void restore(Collection<Long> removed, Collection<Element> restored) {
+		Map<Long, Element> states = new HashMap<Long, Element>();
+		for (Element state : restored) {
+			state.organ = this;
+
+			states.put(state.id, state);
+		}
+
+		Map<Element, Element> replacements = new IdentityHashMap<Element, Element>();
+		List<Element> elements = new ArrayList<Element>();
+		for (Element element : this.elements) {
+			Element state = states.remove(element.id);
+			if (state != null) {
+				replacements.put(element, state);
+				elements.add(state);
+			} else if (!removed.contains(element.id)) {
+				elements.add(element);
+			}
+		}
+		for (Element state : restored) {
+			if (states.containsKey(state.id)) {
+				elements.add(state);
+			}
+		}
+		this.elements = elements;
+
+		for (Element element : elements) {
+			List<Reference<? extends Element>> references = element.references;
+			for (int r = references.size() - 1; r >= 0; r--) {
+				Reference<? extends Element> reference = references.get(r);
+
+				Element referenced = reference.getElement();
+				Element replacement = replacements.get(referenced);
+				if (replacement != null) {
+					references.set(r, reference.clone(replacement));
+				} else if (removed.contains(referenced.id)) {
+					references.remove(r);
+				}
+			}
+		}
+	}
+
 	public Element duplicate(Element element) {
 		if (element.getOrgan() != this) {
 			throw new IllegalArgumentException("unkown element "
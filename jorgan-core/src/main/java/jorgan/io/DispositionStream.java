@@ -20,6 +20,8 @@ package jorgan.io;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -30,11 +32,16 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.converters.ConversionException;
+import com.thoughtworks.xstream.converters.DataHolder;
 import com.thoughtworks.xstream.core.TreeMarshallingStrategy;
 import com.thoughtworks.xstream.io.AbstractDriver;
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
 import com.thoughtworks.xstream.io.naming.NameCoder;
 import com.thoughtworks.xstream.io.xml.KXml2Driver;
 import com.thoughtworks.xstream.io.xml.XmlFriendlyNameCoder;
@@ -43,6 +50,7 @@ import com.thoughtworks.xstream.mapper.MapperWrapper;
 import bias.Configuration;
 import jorgan.disposition.Element;
 import jorgan.disposition.Organ;
+import jorgan.disposition.spi.ElementRegistry;
 import jorgan.io.disposition.ClassMapper;
 import jorgan.io.disposition.CommandConverter;
 import jorgan.io.disposition.Conversion;
@@ -50,6 +58,7 @@ import jorgan.io.disposition.FormatException;
 import jorgan.io.disposition.MessageConverter;
 import jorgan.io.disposition.OrganConverter;
 import jorgan.io.disposition.ReferenceConverter;
+import jorgan.io.disposition.ReferenceConverter.Deferred;
 import jorgan.io.xstream.BooleanArrayConverter;
 import jorgan.io.xstream.DoubleArrayConverter;
 import jorgan.io.xstream.FloatArrayConverter;
@@ -65,14 +74,46 @@ public class DispositionStream {
 
 	private static Configuration config = Configuration.getRoot().get(DispositionStream.class);
 
-	private XStream xstream = new XStream(createDriver()) {
-		@Override
-		protected MapperWrapper wrapMapper(MapperWrapper next) {
-			return new ClassMapper(next);
-		}
-	};
+	private static final Logger logger = Logger.getLogger(DispositionStream.class.getName());
+
+	/**
+	 * The shared {@link XStream}, thread-safe once configured.
+	 */
+	private static XStream xstream;
 
+	private boolean prewarm = true;
+
+	/**
+	 * Cheap to create, the actual {@link XStream} is configured once on first
+	 * usage and shared by all streams.
+	 */
 	public DispositionStream() {
+		config.read(this);
+	}
+
+	public boolean getPrewarm() {
+		return prewarm;
+	}
+
+	public void setPrewarm(boolean prewarm) {
+		this.prewarm = prewarm;
+	}
+
+	private static synchronized XStream getXStream() {
+		if (xstream == null) {
+			xstream = createXStream();
+		}
+		return xstream;
+	}
+
+	private static XStream createXStream() {
+		XStream xstream = new XStream(createDriver()) {
+			@Override
+			protected MapperWrapper wrapMapper(MapperWrapper next) {
+				return new ClassMapper(next);
+			}
+		};
+
 		TreeMarshallingStrategy strategy = new TreeMarshallingStrategy();
 		xstream.setMarshallingStrategy(strategy);
 
@@ -101,7 +142,52 @@ public class DispositionStream {
 		xstream.registerConverter(new FloatArrayConverter());
 		xstream.registerConverter(new DoubleArrayConverter());
 
-		config.read(this);
+		return xstream;
+	}
+
+	/**
+	 * Prewarm in the background - configures the shared {@link XStream} and
+	 * writes and reads an organ with all known elements, so mappings,
+	 * converters and reflection data are ready when the first disposition is
+	 * opened.
+	 */
+	public static void prewarm() {
+		if (!new DispositionStream().prewarm) {
+			return;
+		}
+
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				long start = System.currentTimeMillis();
+				try {
+					new DispositionStream().warm();
+				} catch (Exception ex) {
+					logger.log(Level.FINE, "prewarm failed", ex);
+				}
+				logger.log(Level.FINE, "prewarmed in "
+						+ (System.currentTimeMillis() - start) + " ms");
+			}
+		}, "jOrgan Disposition Prewarm");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	private void warm() throws IOException {
+		Organ organ = new Organ();
+		ElementRegistry.init(organ);
+		for (Class<? extends Element> clazz : ElementRegistry
+				.getElementClasses(organ)) {
+			try {
+				organ.addElement(clazz.getDeclaredConstructor().newInstance());
+			} catch (Exception ex) {
+				// no default constructor
+			}
+		}
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		write(organ, output);
+		read(new ByteArrayInputStream(output.toByteArray()));
 	}
 
 	/**
@@ -125,7 +211,22 @@ public class DispositionStream {
 		Reader reader = new InputStreamReader(new BufferedInputStream(in), ENCODING);
 
 		try {
-			return (Organ) xstream.fromXML(reader);
+			return (Organ) getXStream().fromXML(reader);
+		} catch (Exception ex) {
+			throw findFormatException(ex);
+		}
+	}
+
+	/**
+	 * Read a binary representation - no conversion is performed, since it is
+	 * expected to be in the current format.
+	 * 
+	 * @see #writeBinary(Organ, OutputStream)
+	 * @see jorgan.io.disposition.Snapshot
+	 */
+	public Organ readBinary(InputStream in) throws IOException, FormatException {
+		try {
+			return (Organ) getXStream().unmarshal(new BinaryStreamReader(new BufferedInputStream(in)));
 		} catch (Exception ex) {
 			throw findFormatException(ex);
 		}
@@ -171,14 +272,56 @@ public class DispositionStream {
 
 		Writer writer = new OutputStreamWriter(new BufferedOutputStream(out), ENCODING);
 		writer.write("<?xml version=\"1.0\" encoding=\"" + ENCODING + "\" ?>\n");
-		xstream.toXML(organ, writer);
+		getXStream().toXML(organ, writer);
+	}
+
+	/**
+	 * Write a binary representation, i.e. the same structure as XML but
+	 * without need for parsing when read.
+	 * 
+	 * @see #readBinary(InputStream)
+	 */
+	public void writeBinary(Organ organ, OutputStream out) throws IOException {
+		BinaryStreamWriter writer = new BinaryStreamWriter(new BufferedOutputStream(out));
+		getXStream().marshal(organ, writer);
+		writer.flush();
+	}
+
+	/**
+	 * Write a binary representation of a single element, references are
+	 * written by id only.
+	 * 
+	 * @see #readElement(InputStream, Deferred)
+	 */
+	public void writeElement(Element element, OutputStream out) throws IOException {
+		BinaryStreamWriter writer = new BinaryStreamWriter(out);
+		getXStream().marshal(element, writer);
+		writer.flush();
+	}
+
+	/**
+	 * Read a single element written by {@link #writeElement(Element, OutputStream)}.
+	 * 
+	 * @param deferred
+	 *            collector of references, to be resolved once all referenced
+	 *            elements are known
+	 */
+	public Element readElement(InputStream in, Deferred deferred) throws IOException, FormatException {
+		DataHolder holder = getXStream().newDataHolder();
+		holder.put(Deferred.class, deferred);
+
+		try {
+			return (Element) getXStream().unmarshal(new BinaryStreamReader(in), null, holder);
+		} catch (Exception ex) {
+			throw findFormatException(ex);
+		}
 	}
 
-	private AbstractDriver createDriver() {
+	private static AbstractDriver createDriver() {
 		return new KXml2Driver(createNameCoder());
 	}
 
-	private NameCoder createNameCoder() {
+	private static NameCoder createNameCoder() {
 		// replaced "$" and "_"
 		return new XmlFriendlyNameCoder("-", "_");
 	}
@@ -0,0 +1,352 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.io;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import bias.Configuration;
+
+/**
+ * A service watching files for changes, e.g. to reload a resource when it
+ * is edited externally.<br>
+ * The directories of watched files are registered with a
+ * {@link WatchService}, falling back to polling for file systems without
+ * change notification. Changes in quick succession are coalesced into a
+ * single notification.
+ */
+public class FileWatcher {
+
+	private static final Logger logger = Logger.getLogger(FileWatcher.class
+			.getName());
+
+	private static Configuration config = Configuration.getRoot().get(
+			FileWatcher.class);
+
+	private static final FileWatcher instance = new FileWatcher();
+
+	/**
+	 * Milliseconds to wait for further changes before notification.
+	 */
+	private int debounce = 250;
+
+	/**
+	 * Milliseconds between checks of polled directories.
+	 */
+	private int interval = 1000;
+
+	/**
+	 * Poll all directories, e.g. for network file systems not reporting
+	 * changes.
+	 */
+	private boolean poll = false;
+
+	private WatchService service;
+
+	private Map<Path, Directory> directories = new HashMap<Path, Directory>();
+
+	private long polled;
+
+	private Thread thread;
+
+	private FileWatcher() {
+		config.read(this);
+	}
+
+	FileWatcher(int debounce, int interval, boolean poll) {
+		this.debounce = debounce;
+		this.interval = interval;
+		this.poll = poll;
+	}
+
+	/**
+	 * Watch the given file - the listener is notified on a dedicated thread,
+	 * thus it has to synchronize as needed.
+	 * 
+	 * @param file
+	 *            file to watch, may not exist yet
+	 * @param listener
+	 *            listener to notify
+	 * @return the watch
+	 */
+	public synchronized Watch watch(File file, Listener listener) {
+		file = file.getAbsoluteFile();
+
+		Path path = file.getParentFile().toPath();
+		Directory directory = directories.get(path);
+		if (directory == null) {
+			directory = new Directory(path);
+			directories.put(path, directory);
+		}
+
+		Watch watch = new Watch(directory, file, listener);
+		directory.watches.add(watch);
+
+		if (thread == null) {
+			thread = new Thread("jOrgan File Watcher") {
+				@Override
+				public void run() {
+					FileWatcher.this.run();
+				}
+			};
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		return watch;
+	}
+
+	private synchronized void cancel(Watch watch) {
+		Directory directory = watch.directory;
+
+		if (directory.watches.remove(watch) && directory.watches.isEmpty()) {
+			directories.remove(directory.path);
+
+			if (directory.key != null) {
+				directory.key.cancel();
+			}
+		}
+	}
+
+	private void run() {
+		while (true) {
+			WatchService service;
+			long timeout;
+			synchronized (this) {
+				service = this.service;
+				timeout = timeout();
+			}
+
+			WatchKey key = null;
+			try {
+				if (service == null) {
+					Thread.sleep(timeout);
+				} else {
+					key = service.poll(timeout, TimeUnit.MILLISECONDS);
+				}
+			} catch (InterruptedException ex) {
+				return;
+			} catch (ClosedWatchServiceException ex) {
+				return;
+			}
+
+			for (Watch watch : changed(key)) {
+				try {
+					watch.listener.onChange(watch.file);
+				} catch (RuntimeException ex) {
+					logger.log(Level.WARNING, "change failed", ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Milliseconds until the next pending notification or polling.
+	 */
+	private long timeout() {
+		long now = System.currentTimeMillis();
+
+		long timeout = interval;
+		for (Directory directory : directories.values()) {
+			for (Watch watch : directory.watches) {
+				if (watch.due != 0) {
+					timeout = Math.min(timeout, watch.due - now);
+				}
+			}
+		}
+		return Math.max(1, timeout);
+	}
+
+	private synchronized List<Watch> changed(WatchKey key) {
+		long now = System.currentTimeMillis();
+
+		if (key != null) {
+			Directory directory = directories.get(key.watchable());
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (directory == null) {
+					continue;
+				}
+
+				for (Watch watch : directory.watches) {
+					if (event.kind() == OVERFLOW
+							|| watch.file.getName().equals(
+									event.context().toString())) {
+						watch.due = now + debounce;
+					}
+				}
+			}
+
+			if (!key.reset() && directory != null && directory.key == key) {
+				// directory is gone, poll until it reappears
+				directory.key = null;
+			}
+		}
+
+		if (now - polled >= interval) {
+			polled = now;
+
+			for (Directory directory : directories.values()) {
+				if (directory.key == null) {
+					for (Watch watch : directory.watches) {
+						if (watch.isModified()) {
+							watch.stamp();
+							watch.due = now + debounce;
+						}
+					}
+				}
+			}
+		}
+
+		List<Watch> changed = new ArrayList<Watch>();
+		for (Directory directory : directories.values()) {
+			for (Watch watch : directory.watches) {
+				if (watch.due != 0 && watch.due <= now) {
+					watch.due = 0;
+					watch.stamp();
+
+					changed.add(watch);
+				}
+			}
+		}
+		return changed;
+	}
+
+	public static FileWatcher instance() {
+		return instance;
+	}
+
+	/**
+	 * A directory containing watched files.
+	 */
+	private class Directory {
+
+		private Path path;
+
+		/**
+		 * The key of the registration, <code>null</code> if polled.
+		 */
+		private WatchKey key;
+
+		private List<Watch> watches = new ArrayList<Watch>();
+
+		public Directory(Path path) {
+			this.path = path;
+
+			if (!poll) {
+				try {
+					if (service == null) {
+						service = FileSystems.getDefault().newWatchService();
+					}
+					key = path.register(service, ENTRY_CREATE, ENTRY_DELETE,
+							ENTRY_MODIFY);
+				} catch (IOException ex) {
+					logger.log(Level.FINE, "polling " + path, ex);
+				} catch (UnsupportedOperationException ex) {
+					logger.log(Level.FINE, "polling " + path, ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A watch of a single file.
+	 */
+	public class Watch {
+
+		private Directory directory;
+
+		private File file;
+
+		private Listener listener;
+
+		private long modified;
+
+		private long length;
+
+		/**
+		 * Time of pending notification, <code>0</code> if none.
+		 */
+		private long due;
+
+		private Watch(Directory directory, File file, Listener listener) {
+			this.directory = directory;
+			this.file = file;
+			this.listener = listener;
+
+			stamp();
+		}
+
+		private void stamp() {
+			modified = file.lastModified();
+			length = file.length();
+		}
+
+		private boolean isModified() {
+			return modified != file.lastModified() || length != file.length();
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public Listener getListener() {
+			return listener;
+		}
+
+		/**
+		 * Cancel this watch - a notification already in progress might
+		 * still happen.
+		 */
+		public void cancel() {
+			FileWatcher.this.cancel(this);
+		}
+	}
+
+	/**
+	 * A listener to changes of a watched file.
+	 */
+	public static interface Listener {
+
+		/**
+		 * The file was changed, created or deleted.
+		 * 
+		 * @param file
+		 *            the watched file
+		 */
+		public void onChange(File file);
+	}
+}
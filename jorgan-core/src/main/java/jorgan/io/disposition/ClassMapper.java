@@ -18,6 +18,8 @@
  */
 package jorgan.io.disposition;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -29,12 +31,26 @@ public class ClassMapper extends MapperWrapper {
 	private final Pattern pattern = Pattern
 			.compile("jorgan\\.(.*\\.)?disposition\\.");
 
+	/**
+	 * Serialized names are looked up for each written object, so keep them.
+	 */
+	private final Map<Class<?>, String> serializedClasses = new ConcurrentHashMap<Class<?>, String>();
+
 	public ClassMapper(Mapper wrapped) {
 		super(wrapped);
 	}
 
 	@SuppressWarnings("rawtypes")
 	public String serializedClass(Class type) {
+		String serialized = serializedClasses.get(type);
+		if (serialized == null) {
+			serialized = serializedClassImpl(type);
+			serializedClasses.put(type, serialized);
+		}
+		return serialized;
+	}
+
+	private String serializedClassImpl(Class<?> type) {
 		String name = type.getName();
 
 		Matcher matcher = pattern.matcher(name);
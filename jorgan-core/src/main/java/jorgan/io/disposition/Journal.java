@@ -0,0 +1,561 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.io.disposition;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jorgan.Version;
+import jorgan.disposition.Continuous;
+import jorgan.disposition.Element;
+import jorgan.disposition.Organ;
+import jorgan.disposition.Switch;
+import jorgan.io.DispositionStream;
+import jorgan.io.disposition.ReferenceConverter.Deferred;
+import jorgan.util.IOUtils;
+
+/**
+ * An append-only journal of changed elements, stored next to the file of a
+ * disposition. Changes are kept pending in memory until they are flushed, each
+ * as a record holding the complete state of the changed element - changed
+ * values of {@link Switch}es and {@link Continuous} while playing are recorded
+ * as their value only.<br>
+ * A journal is replayed only if it was written by the same version of jOrgan
+ * and the disposition file is unchanged since, a partially written last record
+ * is ignored.
+ */
+public class Journal {
+
+	private static final Logger logger = Logger.getLogger(Journal.class
+			.getName());
+
+	private static final int MAGIC = 0x6a4f524a;
+
+	private static final int FORMAT = 1;
+
+	private static final byte CHANGED = 1;
+
+	private static final byte REMOVED = 2;
+
+	private static final byte VALUE = 3;
+
+	private static final Comparator<Record> BY_SEQUENCE = new Comparator<Record>() {
+		public int compare(Record record1, Record record2) {
+			return Long.compare(record1.sequence, record2.sequence);
+		}
+	};
+
+	private File file;
+
+	private File journal;
+
+	/**
+	 * Lock for I/O on the journal.
+	 */
+	private final Object io = new Object();
+
+	/**
+	 * Sequence of the last change.
+	 */
+	private long sequence;
+
+	/**
+	 * Pending changes by id.
+	 */
+	private Map<Long, Record> pending = new LinkedHashMap<Long, Record>();
+
+	/**
+	 * Pending values by id.
+	 */
+	private Map<Long, Record> values = new HashMap<Long, Record>();
+
+	/**
+	 * Create a journal for the given file.
+	 * 
+	 * @param file
+	 *            file to create journal for
+	 */
+	public Journal(File file) {
+		this.file = file;
+
+		this.journal = new File(file.getAbsoluteFile().getParentFile(), "."
+				+ file.getName() + ".journal");
+	}
+
+	public File getFile() {
+		return journal;
+	}
+
+	/**
+	 * An element was added or changed - its current state is kept as a clone.
+	 */
+	public synchronized void changed(Element element) {
+		Record record = new Record(CHANGED, ++sequence, element.getId());
+		record.state = element.clone();
+
+		pending.remove(record.id);
+		pending.put(record.id, record);
+		values.remove(record.id);
+	}
+
+	/**
+	 * The value of a {@link Switch} or {@link Continuous} was changed - only
+	 * the value is kept, reusing a pending record for the element.
+	 */
+	public synchronized void valueChanged(Element element) {
+		float value;
+		if (element instanceof Switch) {
+			value = ((Switch) element).isActive() ? 1.0f : 0.0f;
+		} else if (element instanceof Continuous) {
+			value = ((Continuous) element).getValue();
+		} else {
+			changed(element);
+			return;
+		}
+
+		Record record = values.get(element.getId());
+		if (record == null) {
+			record = new Record(VALUE, 0, element.getId());
+			values.put(record.id, record);
+		}
+		record.sequence = ++sequence;
+		record.value = value;
+	}
+
+	/**
+	 * An element was removed.
+	 */
+	public synchronized void removed(Element element) {
+		Record record = new Record(REMOVED, ++sequence, element.getId());
+
+		pending.remove(record.id);
+		pending.put(record.id, record);
+		values.remove(record.id);
+	}
+
+	public synchronized boolean isPending() {
+		return !pending.isEmpty() || !values.isEmpty();
+	}
+
+	/**
+	 * Mark the current state, e.g. when taking a snapshot for saving.
+	 * 
+	 * @return the mark
+	 * @see #truncate(long)
+	 */
+	public synchronized long mark() {
+		return sequence;
+	}
+
+	/**
+	 * Append all pending changes.
+	 */
+	public void flush() throws IOException {
+		List<Record> records;
+		synchronized (this) {
+			if (!isPending()) {
+				return;
+			}
+			records = new ArrayList<Record>(pending.values());
+			pending.clear();
+			records.addAll(values.values());
+			values.clear();
+		}
+		Collections.sort(records, BY_SEQUENCE);
+
+		DispositionStream stream = new DispositionStream();
+		for (Record record : records) {
+			if (record.state != null) {
+				ByteArrayOutputStream output = new ByteArrayOutputStream();
+				stream.writeElement(record.state, output);
+				record.data = output.toByteArray();
+				record.state = null;
+			} else if (record.type == VALUE) {
+				ByteArrayOutputStream output = new ByteArrayOutputStream();
+				new DataOutputStream(output).writeFloat(record.value);
+				record.data = output.toByteArray();
+			}
+		}
+
+		synchronized (io) {
+			boolean create = journal.length() == 0;
+
+			DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(journal,
+							!create)));
+			try {
+				if (create) {
+					writeHeader(output);
+				}
+				for (Record record : records) {
+					record.write(output);
+				}
+				output.flush();
+			} finally {
+				IOUtils.closeQuietly(output);
+			}
+		}
+	}
+
+	/**
+	 * Truncate changes up to the given mark, after the disposition file was
+	 * written including these changes.
+	 * 
+	 * @param mark
+	 *            mark of changes to truncate
+	 * @see #mark()
+	 */
+	public void truncate(long mark) throws IOException {
+		synchronized (this) {
+			Iterator<Record> iterator = pending.values().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().sequence <= mark) {
+					iterator.remove();
+				}
+			}
+			iterator = values.values().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().sequence <= mark) {
+					iterator.remove();
+				}
+			}
+		}
+
+		synchronized (io) {
+			List<Record> records = new ArrayList<Record>();
+			if (journal.exists()) {
+				DataInputStream input = new DataInputStream(
+						new BufferedInputStream(new FileInputStream(journal)));
+				try {
+					if (readHeader(input, false)) {
+						for (Record record : readRecords(input)) {
+							if (record.sequence > mark) {
+								records.add(record);
+							}
+						}
+					}
+				} finally {
+					IOUtils.closeQuietly(input);
+				}
+			}
+
+			if (records.isEmpty()) {
+				delete();
+			} else {
+				rewrite(records);
+			}
+		}
+	}
+
+	/**
+	 * Compact this journal, keeping the last record for each element only.
+	 */
+	public void compact() throws IOException {
+		synchronized (io) {
+			if (!journal.exists()) {
+				return;
+			}
+
+			List<Record> records;
+			DataInputStream input = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(journal)));
+			try {
+				if (!readHeader(input, true)) {
+					return;
+				}
+				records = fold(readRecords(input));
+			} finally {
+				IOUtils.closeQuietly(input);
+			}
+
+			rewrite(records);
+		}
+	}
+
+	/**
+	 * The length of this journal.
+	 * 
+	 * @return length in bytes
+	 */
+	public long length() {
+		return journal.length();
+	}
+
+	/**
+	 * Replay this journal onto the given organ as read from the disposition
+	 * file. Nothing is replayed if the journal is unusable, it is deleted
+	 * instead.
+	 * 
+	 * @param organ
+	 *            organ to replay onto
+	 * @return count of replayed changes
+	 */
+	public int replay(Organ organ) {
+		if (!journal.exists()) {
+			return 0;
+		}
+
+		List<Record> records = new ArrayList<Record>();
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(journal)));
+
+			if (readHeader(input, true)) {
+				records = fold(readRecords(input));
+			}
+		} catch (IOException ex) {
+			logger.log(Level.WARNING, "unusable journal", ex);
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+
+		if (records.isEmpty()) {
+			delete();
+			return 0;
+		}
+
+		Map<Long, Element> elements = new HashMap<Long, Element>();
+		for (Element element : organ.elements()) {
+			elements.put(element.getId(), element);
+		}
+
+		DispositionStream stream = new DispositionStream();
+		Deferred deferred = new Deferred();
+		Set<Long> removed = new HashSet<Long>();
+		List<Element> restored = new ArrayList<Element>();
+		Map<Long, Float> values = new HashMap<Long, Float>();
+		try {
+			for (Record record : records) {
+				if (record.type == REMOVED) {
+					removed.add(record.id);
+					elements.remove(record.id);
+				} else if (record.type == VALUE) {
+					values.put(record.id, new DataInputStream(
+							new ByteArrayInputStream(record.data)).readFloat());
+				} else {
+					Element element = stream.readElement(
+							new ByteArrayInputStream(record.data), deferred);
+					restored.add(element);
+					elements.put(record.id, element);
+				}
+
+				sequence = Math.max(sequence, record.sequence);
+			}
+
+			deferred.resolve(elements);
+		} catch (Exception ex) {
+			logger.log(Level.WARNING, "unusable journal", ex);
+			delete();
+			return 0;
+		}
+
+		organ.restore(removed, restored);
+
+		for (Map.Entry<Long, Float> entry : values.entrySet()) {
+			Element element = elements.get(entry.getKey());
+			if (element instanceof Switch) {
+				((Switch) element).setActive(entry.getValue() != 0.0f);
+			} else if (element instanceof Continuous) {
+				((Continuous) element).setValue(entry.getValue());
+			}
+		}
+
+		return records.size();
+	}
+
+	/**
+	 * Delete this journal.
+	 */
+	public void delete() {
+		journal.delete();
+	}
+
+	private void writeHeader(DataOutputStream output) throws IOException {
+		output.writeInt(MAGIC);
+		output.writeInt(FORMAT);
+		output.writeUTF(new Version().get());
+		output.writeLong(file.lastModified());
+		output.writeLong(file.length());
+	}
+
+	/**
+	 * Read the header.
+	 * 
+	 * @param stamp
+	 *            should the stamp of the disposition file be checked
+	 * @return whether the journal is usable
+	 */
+	private boolean readHeader(DataInputStream input, boolean stamp)
+			throws IOException {
+		try {
+			if (input.readInt() != MAGIC || input.readInt() != FORMAT) {
+				logger.log(Level.FINE, "unknown journal format");
+				return false;
+			}
+
+			if (!new Version().get().equals(input.readUTF())) {
+				logger.log(Level.FINE, "journal of other version");
+				return false;
+			}
+
+			long lastModified = input.readLong();
+			long length = input.readLong();
+			if (stamp
+					&& (lastModified != file.lastModified() || length != file
+							.length())) {
+				logger.log(Level.FINE, "journal of other disposition");
+				return false;
+			}
+		} catch (EOFException ex) {
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Read all complete records.
+	 */
+	private List<Record> readRecords(DataInputStream input) throws IOException {
+		List<Record> records = new ArrayList<Record>();
+		try {
+			while (true) {
+				records.add(Record.read(input));
+			}
+		} catch (EOFException incomplete) {
+		}
+		return records;
+	}
+
+	/**
+	 * Fold the given records to the last state and the last later value of
+	 * each element, in order of their sequence.
+	 */
+	private List<Record> fold(Collection<Record> records) {
+		Map<Long, Record> states = new HashMap<Long, Record>();
+		Map<Long, Record> values = new HashMap<Long, Record>();
+		for (Record record : records) {
+			if (record.type == VALUE) {
+				values.put(record.id, record);
+			} else {
+				states.put(record.id, record);
+				values.remove(record.id);
+			}
+		}
+
+		List<Record> folded = new ArrayList<Record>(states.values());
+		folded.addAll(values.values());
+		Collections.sort(folded, BY_SEQUENCE);
+		return folded;
+	}
+
+	/**
+	 * Rewrite this journal with the given records, stamped with the current
+	 * disposition file.
+	 */
+	private void rewrite(Collection<Record> records) throws IOException {
+		File temp = new File(journal.getParentFile(), journal.getName() + "~");
+
+		DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+			writeHeader(output);
+			for (Record record : records) {
+				record.write(output);
+			}
+			output.flush();
+		} finally {
+			IOUtils.closeQuietly(output);
+		}
+
+		if (journal.exists() && !journal.delete()) {
+			throw new IOException("unable to delete previous journal");
+		}
+
+		if (!temp.renameTo(journal)) {
+			throw new IOException("unable to rename new journal");
+		}
+	}
+
+	private static class Record {
+
+		private byte type;
+
+		private long sequence;
+
+		private long id;
+
+		private Element state;
+
+		private float value;
+
+		private byte[] data = new byte[0];
+
+		public Record(byte type, long sequence, long id) {
+			this.type = type;
+			this.sequence = sequence;
+			this.id = id;
+		}
+
+		public void write(DataOutputStream output) throws IOException {
+			output.writeByte(type);
+			output.writeLong(sequence);
+			output.writeLong(id);
+			output.writeInt(data.length);
+			output.write(data);
+		}
+
+		public static Record read(DataInputStream input) throws IOException {
+			Record record = new Record(input.readByte(), input.readLong(),
+					input.readLong());
+
+			int length = input.readInt();
+			if (length < 0) {
+				throw new IOException("invalid record length " + length);
+			}
+			record.data = new byte[length];
+			input.readFully(record.data);
+
+			return record;
+		}
+	}
+}
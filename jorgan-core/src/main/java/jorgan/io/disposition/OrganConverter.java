@@ -72,9 +72,7 @@ public class OrganConverter implements Converter {
 
 		Organ organ = (Organ) nested.unmarshal(reader, context);
 
-		for (Element element : organ.getElements()) {
-			organ.bind(element);
-		}
+		organ.bindElements();
 
 		context.put(Organ.class, organ);
 
@@ -19,6 +19,10 @@
 package jorgan.io.disposition;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import jorgan.disposition.Element;
 import jorgan.disposition.Organ;
@@ -90,20 +94,98 @@ public class ReferenceConverter implements Converter {
 		final Reference<?> reference = (Reference<?>) nested.unmarshal(reader,
 				context);
 
+		Deferred deferred = (Deferred) context.get(Deferred.class);
+		if (deferred != null) {
+			deferred.add(reference, id);
+			return reference;
+		}
+
 		context.addCompletionCallback(new Runnable() {
 			public void run() {
-				Organ organ = (Organ) context.get(Organ.class);
-
-				Element element = organ.getElement(id);
-
-				try {
-					referenceElementField.set(reference, element);
-				} catch (Exception ex) {
-					throw new Error(ex);
+				Element element = getElements(context).get(id);
+				if (element == null) {
+					throw new IllegalArgumentException("unkown id '" + id
+							+ "'");
 				}
+
+				resolve(reference, element);
 			}
 		}, 0);
 
 		return reference;
 	}
-}
\ No newline at end of file
+
+	private static void resolve(Reference<?> reference, Element element) {
+		try {
+			referenceElementField.set(reference, element);
+		} catch (Exception ex) {
+			throw new Error(ex);
+		}
+	}
+
+	/**
+	 * Get the elements of the unmarshalled organ by id, indexed once for all
+	 * references.
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<Long, Element> getElements(UnmarshallingContext context) {
+		Map<Long, Element> elements = (Map<Long, Element>) context
+				.get(ReferenceConverter.class);
+		if (elements == null) {
+			elements = new HashMap<Long, Element>();
+
+			Organ organ = (Organ) context.get(Organ.class);
+			for (Element element : organ.elements()) {
+				elements.put(element.getId(), element);
+			}
+
+			context.put(ReferenceConverter.class, elements);
+		}
+		return elements;
+	}
+
+	/**
+	 * References whose resolution is deferred, if present in the context
+	 * references are resolved by the caller once all referenced elements are
+	 * known.
+	 * 
+	 * @see #resolve(Map)
+	 */
+	public static class Deferred {
+
+		private List<Reference<?>> references = new ArrayList<Reference<?>>();
+
+		private List<Long> ids = new ArrayList<Long>();
+
+		private void add(Reference<?> reference, Long id) {
+			references.add(reference);
+			ids.add(id);
+		}
+
+		/**
+		 * Resolve all deferred references - nothing is resolved if any
+		 * referenced element is unknown.
+		 * 
+		 * @param elements
+		 *            elements to resolve against by id
+		 * @throws IllegalArgumentException
+		 *             if a referenced element is unknown
+		 */
+		public void resolve(Map<Long, Element> elements) {
+			for (Long id : ids) {
+				if (!elements.containsKey(id)) {
+					throw new IllegalArgumentException("unkown id '" + id
+							+ "'");
+				}
+			}
+
+			for (int r = 0; r < references.size(); r++) {
+				ReferenceConverter.resolve(references.get(r), elements.get(ids
+						.get(r)));
+			}
+
+			references.clear();
+			ids.clear();
+		}
+	}
+}
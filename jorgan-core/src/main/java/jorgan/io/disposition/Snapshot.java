@@ -0,0 +1,170 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.io.disposition;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jorgan.Version;
+import jorgan.disposition.Organ;
+import jorgan.io.DispositionStream;
+import jorgan.util.IOUtils;
+
+/**
+ * A binary snapshot of a disposition, stored next to its file for faster
+ * loading.<br>
+ * A snapshot is used only if it was written by the same version of jOrgan
+ * and the disposition file is unchanged since.
+ */
+public class Snapshot {
+
+	private static final Logger logger = Logger.getLogger(Snapshot.class
+			.getName());
+
+	private static final int MAGIC = 0x6a4f5253;
+
+	private static final int FORMAT = 1;
+
+	private File file;
+
+	private File snapshot;
+
+	/**
+	 * Create a snapshot for the given file.
+	 * 
+	 * @param file
+	 *            file to create snapshot for
+	 */
+	public Snapshot(File file) {
+		this.file = file;
+
+		this.snapshot = new File(file.getAbsoluteFile().getParentFile(), "."
+				+ file.getName() + ".snapshot");
+	}
+
+	public File getFile() {
+		return snapshot;
+	}
+
+	/**
+	 * Read this snapshot.
+	 * 
+	 * @return the organ or <code>null</code> if there is no usable snapshot
+	 */
+	public Organ read() {
+		if (!snapshot.exists()) {
+			return null;
+		}
+
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(snapshot)));
+
+			if (input.readInt() != MAGIC || input.readInt() != FORMAT) {
+				return null;
+			}
+
+			if (!new Version().get().equals(input.readUTF())) {
+				return null;
+			}
+
+			if (input.readLong() != file.lastModified()
+					|| input.readLong() != file.length()) {
+				return null;
+			}
+
+			return new DispositionStream().readBinary(input);
+		} catch (IOException ex) {
+			logger.log(Level.FINE, "unusable snapshot", ex);
+		} catch (FormatException ex) {
+			logger.log(Level.FINE, "unusable snapshot", ex);
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Write this snapshot - the disposition file has to be written already.
+	 * 
+	 * @param organ
+	 *            the organ contained in the disposition file
+	 */
+	public void write(Organ organ) throws IOException {
+		write(organ, file.lastModified(), file.length());
+	}
+
+	/**
+	 * Write this snapshot for the given state of the disposition file.
+	 * 
+	 * @param organ
+	 *            the organ contained in the disposition file
+	 * @param lastModified
+	 *            modification time of the disposition file containing the
+	 *            organ
+	 * @param length
+	 *            length of the disposition file containing the organ
+	 */
+	public void write(Organ organ, long lastModified, long length)
+			throws IOException {
+		File temp = new File(snapshot.getParentFile(), snapshot.getName()
+				+ "~");
+
+		DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT);
+			output.writeUTF(new Version().get());
+			output.writeLong(lastModified);
+			output.writeLong(length);
+
+			new DispositionStream().writeBinary(organ, output);
+
+			output.flush();
+		} finally {
+			IOUtils.closeQuietly(output);
+		}
+
+		if (snapshot.exists() && !snapshot.delete()) {
+			throw new IOException("unable to delete previous snapshot");
+		}
+
+		if (!temp.renameTo(snapshot)) {
+			throw new IOException("unable to rename new snapshot");
+		}
+	}
+
+	/**
+	 * Delete this snapshot.
+	 */
+	public void delete() {
+		snapshot.delete();
+	}
+}
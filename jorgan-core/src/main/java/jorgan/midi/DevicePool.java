@@ -19,7 +19,11 @@
 package jorgan.midi;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import javax.sound.midi.MidiDevice;
@@ -32,7 +36,10 @@ import javax.sound.midi.Transmitter;
 import bias.Configuration;
 
 /**
- * Helper for lookup of devices.
+ * Helper for lookup of devices.<br>
+ * Devices are enumerated once and indexed by name and direction, a watcher
+ * keeps the index up to date and notifies {@link DeviceListener}s of devices
+ * being plugged in or out.
  */
 public class DevicePool {
 
@@ -44,16 +51,60 @@ public class DevicePool {
 
 	private static final DevicePool instance = new DevicePool();
 
+	/**
+	 * Milliseconds to wait before refreshing again on a failed lookup.
+	 */
+	private static final int MISS_DELAY = 1000;
+
 	private DeviceMap devices = new DeviceMap();
 
 	private boolean cache = true;
 
 	private boolean enumerate = false;
 
+	/**
+	 * Milliseconds between checks for changed devices, <code>0</code> to
+	 * disable watching.
+	 */
+	private int watch = 2000;
+
+	private List<DeviceListener> listeners = new ArrayList<DeviceListener>();
+
+	/**
+	 * Signature of the last enumeration.
+	 */
+	private String signature;
+
+	private long refreshed;
+
+	private Thread watcher;
+
 	private DevicePool() {
 		configuration.read(this);
 	}
 
+	/**
+	 * Constructor for tests.
+	 */
+	DevicePool(boolean cache, int watch) {
+		this.cache = cache;
+		this.watch = watch;
+	}
+
+	public void addListener(DeviceListener listener) {
+		synchronized (listeners) {
+			listeners.add(listener);
+		}
+	}
+
+	public void removeListener(DeviceListener listener) {
+		synchronized (listeners) {
+			if (!listeners.remove(listener)) {
+				throw new IllegalArgumentException("unknown listener");
+			}
+		}
+	}
+
 	/**
 	 * Get a device by name.
 	 * 
@@ -65,12 +116,24 @@ public class DevicePool {
 	 * @return the named device
 	 * @throws MidiUnavailableException
 	 */
-	public synchronized MidiDevice getMidiDevice(String name,
-			Direction direction) throws MidiUnavailableException {
+	public MidiDevice getMidiDevice(String name, Direction direction)
+			throws MidiUnavailableException {
+
+		PooledDevice pooledDevice;
+		synchronized (this) {
+			initDevices();
 
-		refreshDevices();
+			pooledDevice = devices.get(name, direction);
+		}
+
+		if (pooledDevice == null && refreshOnMiss()) {
+			refreshDevices();
+
+			synchronized (this) {
+				pooledDevice = devices.get(name, direction);
+			}
+		}
 
-		PooledDevice pooledDevice = devices.get(name, direction);
 		if (pooledDevice == null) {
 			throw new MidiUnavailableException(name);
 		}
@@ -85,32 +148,127 @@ public class DevicePool {
 	 *            direction of midi, {@link IN} or {@link OUT}
 	 * @return list of device names
 	 */
-	public synchronized String[] getMidiDeviceNames(Direction direction) {
-		refreshDevices();
+	public String[] getMidiDeviceNames(Direction direction) {
+		if (!cache && !isWatching()) {
+			refreshDevices();
+		}
+
+		synchronized (this) {
+			initDevices();
+
+			List<String> names = new ArrayList<String>();
+			for (PooledDevice device : devices.filter(direction)) {
+				names.add(device.name);
+			}
+
+			return names.toArray(new String[names.size()]);
+		}
+	}
+
+	private synchronized boolean isWatching() {
+		return watcher != null;
+	}
+
+	/**
+	 * Should a failed lookup refresh - not needed if cached or watched,
+	 * otherwise not repeated for subsequent lookups in quick succession.
+	 */
+	private synchronized boolean refreshOnMiss() {
+		return !cache && watcher == null
+				&& System.currentTimeMillis() - refreshed > MISS_DELAY;
+	}
 
-		List<String> names = new ArrayList<String>();
-		for (PooledDevice device : devices.filter(direction)) {
-			names.add(device.name);
+	/**
+	 * Enumerate on first usage and start watching.
+	 */
+	private void initDevices() {
+		if (signature == null) {
+			refresh(enumerateDevices());
 		}
 
-		return names.toArray(new String[names.size()]);
+		if (watch > 0 && watcher == null) {
+			watcher = new Thread(new Runnable() {
+				public void run() {
+					while (true) {
+						try {
+							Thread.sleep(watch);
+						} catch (InterruptedException ex) {
+							return;
+						}
+
+						refreshDevices();
+					}
+				}
+			}, "jOrgan Device Watcher");
+			watcher.setDaemon(true);
+			watcher.start();
+		}
 	}
 
 	/**
-	 * Refresh all pooled devices.
+	 * Stop watching for changed devices.
+	 */
+	synchronized void shutdown() {
+		if (watcher != null) {
+			watcher.interrupt();
+			watcher = null;
+		}
+	}
+
+	/**
+	 * Refresh all pooled devices, notifying listeners of changes.
 	 */
 	private void refreshDevices() {
+		// enumerate without blocking lookups
+		Info[] infos = enumerateDevices();
+
+		List<Runnable> notifications;
+		synchronized (this) {
+			notifications = refresh(infos);
+		}
 
-		if (cache && !this.devices.isEmpty()) {
-			return;
+		for (Runnable notification : notifications) {
+			notification.run();
 		}
+	}
+
+	/**
+	 * Enumerate the system's devices.
+	 */
+	Info[] enumerateDevices() {
+		return MidiSystem.getMidiDeviceInfo();
+	}
+
+	/**
+	 * Get the device for an enumerated info.
+	 */
+	MidiDevice getDevice(Info info) throws MidiUnavailableException {
+		return MidiSystem.getMidiDevice(info);
+	}
+
+	/**
+	 * Refresh the index from the given infos.
+	 * 
+	 * @return notifications of changes
+	 */
+	private List<Runnable> refresh(Info[] infos) {
+		refreshed = System.currentTimeMillis();
+
+		List<Runnable> notifications = new ArrayList<Runnable>();
+
+		String signature = signature(infos);
+		if (signature.equals(this.signature)) {
+			return notifications;
+		}
+		boolean initial = this.signature == null;
+		this.signature = signature;
 
 		DeviceMap oldDevices = this.devices;
 
 		this.devices = new DeviceMap();
 
 		int index = 0;
-		for (MidiDevice.Info info : MidiSystem.getMidiDeviceInfo()) {
+		for (MidiDevice.Info info : infos) {
 			try {
 				DeviceAnalyser analyser = new DeviceAnalyser(info, index);
 
@@ -122,6 +280,59 @@ public class DevicePool {
 				log.info("failed device '" + info.getName() + "'");
 			}
 		}
+
+		if (!initial) {
+			for (Direction direction : Direction.values()) {
+				for (final String name : oldDevices.names(direction)) {
+					if (!devices.names(direction).contains(name)) {
+						log.info("removed device '" + name + "'");
+
+						notifications.add(notification(name, direction, false));
+					}
+				}
+				for (final String name : devices.names(direction)) {
+					if (!oldDevices.names(direction).contains(name)) {
+						log.info("added device '" + name + "'");
+
+						notifications.add(notification(name, direction, true));
+					}
+				}
+			}
+		}
+
+		return notifications;
+	}
+
+	private Runnable notification(final String name,
+			final Direction direction, final boolean added) {
+		return new Runnable() {
+			public void run() {
+				List<DeviceListener> listeners;
+				synchronized (DevicePool.this.listeners) {
+					listeners = new ArrayList<DeviceListener>(
+							DevicePool.this.listeners);
+				}
+
+				for (DeviceListener listener : listeners) {
+					if (added) {
+						listener.deviceAdded(name, direction);
+					} else {
+						listener.deviceRemoved(name, direction);
+					}
+				}
+			}
+		};
+	}
+
+	private String signature(Info[] infos) {
+		StringBuilder signature = new StringBuilder();
+		for (Info info : infos) {
+			signature.append(info.getName()).append('\n');
+			signature.append(info.getVendor()).append('\n');
+			signature.append(info.getDescription()).append('\n');
+			signature.append(info.getVersion()).append('\n');
+		}
+		return signature.toString();
 	}
 
 	private static class ProxyDevice extends DeviceWrapper {
@@ -266,35 +477,45 @@ public class DevicePool {
 		return instance;
 	}
 
+	/**
+	 * Devices indexed by direction and name.
+	 */
 	private class DeviceMap {
 
-		private List<PooledDevice> devices = new ArrayList<PooledDevice>();
+		private Map<Direction, Map<String, PooledDevice>> devices = new EnumMap<Direction, Map<String, PooledDevice>>(
+				Direction.class);
 
-		public void add(PooledDevice device) {
-			this.devices.add(device);
+		public DeviceMap() {
+			for (Direction direction : Direction.values()) {
+				devices.put(direction, new LinkedHashMap<String, PooledDevice>());
+			}
 		}
 
-		public boolean isEmpty() {
-			return devices.isEmpty();
+		/**
+		 * Add a device for each supported direction, if not already present
+		 * for its name.
+		 */
+		public void add(PooledDevice device) {
+			for (Direction direction : Direction.values()) {
+				if (device.supports(direction)) {
+					Map<String, PooledDevice> map = devices.get(direction);
+					if (!map.containsKey(device.name)) {
+						map.put(device.name, device);
+					}
+				}
+			}
 		}
 
 		public PooledDevice get(String name, Direction direction) {
-			for (PooledDevice device : devices) {
-				if (device.name.equals(name) && device.supports(direction)) {
-					return device;
-				}
-			}
-			return null;
+			return devices.get(direction).get(name);
+		}
+
+		public Set<String> names(Direction direction) {
+			return devices.get(direction).keySet();
 		}
 
 		public List<PooledDevice> filter(Direction direction) {
-			List<PooledDevice> filtered = new ArrayList<PooledDevice>();
-			for (PooledDevice device : devices) {
-				if (device.supports(direction)) {
-					filtered.add(device);
-				}
-			}
-			return filtered;
+			return new ArrayList<PooledDevice>(devices.get(direction).values());
 		}
 	}
 
@@ -340,7 +561,7 @@ public class DevicePool {
 
 		private MidiDevice device() throws MidiUnavailableException {
 			if (this.device == null) {
-				this.device = MidiSystem.getMidiDevice(info);
+				this.device = getDevice(info);
 			}
 
 			return device;
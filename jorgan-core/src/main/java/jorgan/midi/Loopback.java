@@ -19,8 +19,12 @@
 package jorgan.midi;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.sound.midi.MidiDevice;
 import javax.sound.midi.MidiMessage;
@@ -30,9 +34,18 @@ import javax.sound.midi.Transmitter;
 
 /**
  * A <code>MidiDevice</code> serving as a loopback.
+ * <p>
+ * Messages are looped out without locking, transmitters are kept in an array
+ * which is copied on each change. Optionally each transmitter delivers its
+ * messages asynchronously from a bounded queue, so a slow receiver does not
+ * block the looping thread.
+ * 
+ * @see #setAsynchronous(int)
  */
 public class Loopback implements MidiDevice {
 
+	private static final LoopbackTransmitter[] NO_TRANSMITTERS = new LoopbackTransmitter[0];
+
 	/**
 	 * The info of this midiDevice.
 	 */
@@ -41,22 +54,38 @@ public class Loopback implements MidiDevice {
 	/**
 	 * Is this device open.
 	 */
-	private boolean open;
+	private volatile boolean open;
 
 	private boolean allowReceivers;
 
 	private boolean allowTransmitters;
 
 	/**
-	 * The created transmitters.
+	 * The capacity of the queue of each transmitter or <code>0</code> if
+	 * delivery is synchronous.
 	 */
-	private List<LoopbackTransmitter> transmitters = new ArrayList<LoopbackTransmitter>();
+	private int capacity;
+
+	/**
+	 * The created transmitters, copied on write.
+	 */
+	private volatile LoopbackTransmitter[] transmitters = NO_TRANSMITTERS;
 
 	/**
 	 * The created receivers.
 	 */
 	private List<LoopbackReceiver> receivers = new ArrayList<LoopbackReceiver>();
 
+	/**
+	 * Count of messages which did not fit into a full transmitter queue.
+	 */
+	private final AtomicLong overflowCount = new AtomicLong();
+
+	/**
+	 * Count of messages dropped, including those pending on closing.
+	 */
+	private final AtomicLong dropCount = new AtomicLong();
+
 	/**
 	 * Create a virtual loopback.
 	 * 
@@ -113,7 +142,46 @@ public class Loopback implements MidiDevice {
 	 * @since 1.5
 	 */
 	public List<Transmitter> getTransmitters() {
-		return new ArrayList<Transmitter>(transmitters);
+		return new ArrayList<Transmitter>(Arrays.asList(transmitters));
+	}
+
+	/**
+	 * Get the capacity of the queue of each transmitter.
+	 * 
+	 * @return capacity or <code>0</code> if delivery is synchronous
+	 */
+	public synchronized int getAsynchronous() {
+		return capacity;
+	}
+
+	/**
+	 * Deliver messages asynchronously to transmitters created from now on.
+	 * 
+	 * @param capacity
+	 *            capacity of the queue of each transmitter, <code>0</code> for
+	 *            synchronous delivery
+	 */
+	public synchronized void setAsynchronous(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity must not be negative");
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Get the count of messages which could not be queued, because the queue
+	 * of a transmitter was full.
+	 */
+	public long getOverflowCount() {
+		return overflowCount.get();
+	}
+
+	/**
+	 * Get the count of dropped messages, i.e. overflows and messages pending
+	 * on closing of a transmitter.
+	 */
+	public long getDropCount() {
+		return dropCount.get();
 	}
 
 	public long getMicrosecondPosition() {
@@ -180,7 +248,11 @@ public class Loopback implements MidiDevice {
 			throw new MidiUnavailableException("no transmitters allowed");
 		}
 
-		return new LoopbackTransmitter();
+		if (capacity > 0) {
+			return new AsynchronousTransmitter(capacity);
+		} else {
+			return new LoopbackTransmitter();
+		}
 	}
 
 	/**
@@ -190,12 +262,28 @@ public class Loopback implements MidiDevice {
 		loopOut(message);
 	}
 
-	protected synchronized void loopOut(MidiMessage message) {
+	/**
+	 * Loop out the given message to all transmitters - no lock is held while
+	 * transmitting.
+	 */
+	protected void loopOut(MidiMessage message) {
 		if (isOpen()) {
-			for (int r = 0; r < transmitters.size(); r++) {
-				LoopbackTransmitter transmitter = transmitters.get(r);
+			LoopbackTransmitter[] transmitters = this.transmitters;
+			for (int t = 0; t < transmitters.length; t++) {
+				transmitters[t].transmit(message);
+			}
+		}
+	}
 
-				transmitter.transmit(message);
+	/**
+	 * Loop out the given message, which is reused by the caller afterwards -
+	 * since receivers may keep their messages, each receiver gets a copy.
+	 */
+	protected void loopOutReused(MidiMessage message) {
+		if (isOpen()) {
+			LoopbackTransmitter[] transmitters = this.transmitters;
+			for (int t = 0; t < transmitters.length; t++) {
+				transmitters[t].transmitReused(message);
 			}
 		}
 	}
@@ -238,10 +326,14 @@ public class Loopback implements MidiDevice {
 		/**
 		 * The receiver to transmit messages to.
 		 */
-		private Receiver receiver;
+		private volatile Receiver receiver;
 
 		private LoopbackTransmitter() {
-			transmitters.add(this);
+			LoopbackTransmitter[] transmitters = Arrays.copyOf(
+					Loopback.this.transmitters,
+					Loopback.this.transmitters.length + 1);
+			transmitters[transmitters.length - 1] = this;
+			Loopback.this.transmitters = transmitters;
 		}
 
 		/**
@@ -270,11 +362,24 @@ public class Loopback implements MidiDevice {
 		 *            message to transmit
 		 */
 		protected void transmit(MidiMessage message) {
+			Receiver receiver = this.receiver;
 			if (receiver != null) {
 				receiver.send(message, -1);
 			}
 		}
 
+		/**
+		 * Transmit a copy of the given reused message if a receiver is set.
+		 * 
+		 * @param message
+		 *            message to transmit
+		 */
+		protected void transmitReused(MidiMessage message) {
+			if (receiver != null) {
+				transmit((MidiMessage) message.clone());
+			}
+		}
+
 		/**
 		 * Close this transmitter.
 		 */
@@ -285,9 +390,80 @@ public class Loopback implements MidiDevice {
 				}
 				closed = true;
 
-				transmitters.remove(this);
+				LoopbackTransmitter[] transmitters = Loopback.this.transmitters;
+				for (int t = 0; t < transmitters.length; t++) {
+					if (transmitters[t] == this) {
+						LoopbackTransmitter[] removed = new LoopbackTransmitter[transmitters.length - 1];
+						System.arraycopy(transmitters, 0, removed, 0, t);
+						System.arraycopy(transmitters, t + 1, removed, t,
+								removed.length - t);
+						Loopback.this.transmitters = removed;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A transmitter delivering messages from a bounded queue on its own
+	 * thread.
+	 */
+	private class AsynchronousTransmitter extends LoopbackTransmitter
+			implements Runnable {
+
+		private final BlockingQueue<MidiMessage> queue;
+
+		private volatile Thread thread;
+
+		private AsynchronousTransmitter(int capacity) {
+			queue = new ArrayBlockingQueue<MidiMessage>(capacity);
+
+			thread = new Thread(this, info.getName() + " transmitter");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		/**
+		 * Queue the given message - a copy is queued, since senders are free
+		 * to reuse their messages.
+		 */
+		@Override
+		protected void transmit(MidiMessage message) {
+			if (!queue.offer((MidiMessage) message.clone())) {
+				overflowCount.incrementAndGet();
+				dropCount.incrementAndGet();
 			}
 		}
+
+		/**
+		 * Queue the given message - it is copied on queueing already.
+		 */
+		@Override
+		protected void transmitReused(MidiMessage message) {
+			transmit(message);
+		}
+
+		public void run() {
+			while (thread != null) {
+				try {
+					super.transmit(queue.take());
+				} catch (InterruptedException interrupted) {
+				}
+			}
+		}
+
+		@Override
+		public void close() {
+			super.close();
+
+			Thread thread = this.thread;
+			this.thread = null;
+			thread.interrupt();
+
+			dropCount.addAndGet(queue.size());
+			queue.clear();
+		}
 	}
 
 	/**
@@ -47,6 +47,40 @@ public class MessageUtils {
 		return false;
 	}
 
+	/**
+	 * Get the length of a message with the given status.
+	 * 
+	 * @param status
+	 *            status of message
+	 * @return length of message or <code>-1</code> if the length is variable
+	 *         as for system exclusive messages
+	 */
+	public static int getLength(int status) {
+		status = status & 0xff;
+
+		if (status < 0xF0) {
+			switch (status & 0xF0) {
+			case ShortMessage.PROGRAM_CHANGE:
+			case ShortMessage.CHANNEL_PRESSURE:
+				return 2;
+			default:
+				return 3;
+			}
+		}
+
+		switch (status) {
+		case SysexMessage.SYSTEM_EXCLUSIVE:
+			return -1;
+		case ShortMessage.MIDI_TIME_CODE:
+		case ShortMessage.SONG_SELECT:
+			return 2;
+		case ShortMessage.SONG_POSITION_POINTER:
+			return 3;
+		default:
+			return 1;
+		}
+	}
+
 	public static ShortMessage createMessage(int status, int data1, int data2)
 			throws InvalidMidiDataException {
 
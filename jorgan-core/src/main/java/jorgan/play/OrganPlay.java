@@ -33,9 +33,12 @@ import javax.sound.midi.Receiver;
 import javax.sound.midi.Transmitter;
 
 import jorgan.disposition.Element;
+import jorgan.disposition.Input;
 import jorgan.disposition.Keyboard;
 import jorgan.disposition.Organ;
+import jorgan.disposition.Output;
 import jorgan.disposition.event.OrganAdapter;
+import jorgan.midi.DeviceListener;
 import jorgan.midi.DevicePool;
 import jorgan.midi.Direction;
 import jorgan.midi.MidiGate;
@@ -68,6 +71,11 @@ public abstract class OrganPlay {
 	 */
 	private EventHandler eventHandler = new EventHandler();
 
+	/**
+	 * The handler of device events.
+	 */
+	private DeviceHandler deviceHandler = new DeviceHandler();
+
 	/**
 	 * All registered {@link PlayListener}s.
 	 */
@@ -95,6 +103,7 @@ public abstract class OrganPlay {
 		this.clock = clock;
 
 		organ.addOrganListener(eventHandler);
+		DevicePool.instance().addListener(deviceHandler);
 
 		for (Element element : organ.getElements()) {
 			createPlayer(element);
@@ -114,6 +123,7 @@ public abstract class OrganPlay {
 		players.clear();
 
 		organ.removeOrganListener(eventHandler);
+		DevicePool.instance().removeListener(deviceHandler);
 	}
 
 	public Organ getOrgan() {
@@ -284,6 +294,35 @@ public abstract class OrganPlay {
 		}
 	}
 
+	/**
+	 * Reopen all players using the device with the given name, so they acquire
+	 * a plugged in device or release one that was plugged out.
+	 */
+	private synchronized void reopenPlayers(String name, Direction direction) {
+		if (!open) {
+			return;
+		}
+
+		for (Player<? extends Element> player : players.values()) {
+			if (usesDevice(player.getElement(), name, direction)) {
+				player.close();
+				player.open();
+				player.update();
+			}
+		}
+	}
+
+	private boolean usesDevice(Element element, String name,
+			Direction direction) {
+		if (direction == Direction.IN && element instanceof Input) {
+			return name.equals(((Input) element).getInput());
+		}
+		if (direction == Direction.OUT && element instanceof Output) {
+			return name.equals(((Output) element).getOutput());
+		}
+		return false;
+	}
+
 	protected void addProblem(Problem problem) {
 		problems.addProblem(problem);
 	}
@@ -310,6 +349,17 @@ public abstract class OrganPlay {
 		}
 	}
 
+	private class DeviceHandler implements DeviceListener {
+
+		public void deviceAdded(String name, Direction direction) {
+			reopenPlayers(name, direction);
+		}
+
+		public void deviceRemoved(String name, Direction direction) {
+			reopenPlayers(name, direction);
+		}
+	}
+
 	/**
 	 * Create a transmitter for the device with the given name. The returned
 	 * transmitter will automatically close the device when
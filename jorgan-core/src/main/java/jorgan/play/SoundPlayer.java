@@ -19,6 +19,11 @@
 package jorgan.play;
 
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.sound.midi.InvalidMidiDataException;
 
@@ -27,12 +32,59 @@ import jorgan.midi.mpl.Command;
 import jorgan.midi.mpl.Context;
 import jorgan.midi.mpl.NoOp;
 import jorgan.play.sound.Channel;
+import jorgan.play.sound.Loader;
+import jorgan.problem.Severity;
 
 /**
  * A player of {@link jorgan.disposition.Sound} subclasses.
  */
 public abstract class SoundPlayer<E extends Sound> extends Player<E> {
 
+	private static final Logger logger = Logger.getLogger(SoundPlayer.class
+			.getName());
+
+	/**
+	 * Workers shared by all sound players, so multiple sounds load in
+	 * parallel.
+	 */
+	private static final ExecutorService loaders = Executors
+			.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new ThreadFactory() {
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable,
+									"jOrgan Sound Loader");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+
+	/**
+	 * The generation of the current loading, incremented for each new
+	 * loading and on cancellation.
+	 */
+	private volatile int loading;
+
+	/**
+	 * Is a loading pending.
+	 */
+	private volatile boolean pending;
+
+	/**
+	 * Lock for {@link #running} and {@link #queued}.
+	 */
+	private final Object loads = new Object();
+
+	/**
+	 * The loading currently running, loadings of a single player never run
+	 * in parallel.
+	 */
+	private Runnable running;
+
+	/**
+	 * The loading to run after the current one.
+	 */
+	private Runnable queued;
+
 	/**
 	 * Created channels.
 	 */
@@ -83,6 +135,93 @@ public abstract class SoundPlayer<E extends Sound> extends Player<E> {
 	protected abstract void send(int channel, byte[] datas)
 			throws InvalidMidiDataException;
 
+	/**
+	 * Load asynchronously - any pending loading is superseded. A loading
+	 * already running is finished and discarded before this one starts. Until
+	 * the loading has finished, a warning is reported for this player.
+	 * 
+	 * @param loader
+	 *            the loader
+	 */
+	protected <T> void load(final Loader<T> loader) {
+		final OrganPlay organPlay = getOrganPlay();
+
+		final int generation = ++loading;
+		pending = true;
+
+		addProblem(Severity.WARNING, "loading", "loading", getElement()
+				.getName());
+
+		Runnable runnable = new Runnable() {
+			public void run() {
+				try {
+					T loaded = null;
+					try {
+						loaded = loader.load();
+					} catch (RuntimeException ex) {
+						logger.log(Level.WARNING, "loading failed", ex);
+					}
+
+					synchronized (organPlay) {
+						if (generation == loading
+								&& getOrganPlay() == organPlay) {
+							pending = false;
+							removeProblem(Severity.WARNING, "loading");
+
+							loader.loaded(loaded);
+							return;
+						}
+					}
+
+					loader.discard(loaded);
+				} finally {
+					synchronized (loads) {
+						running = queued;
+						queued = null;
+						if (running != null) {
+							loaders.execute(running);
+						}
+					}
+				}
+			}
+		};
+
+		synchronized (loads) {
+			if (running == null) {
+				running = runnable;
+				loaders.execute(running);
+			} else {
+				// superseding a previously queued loading
+				queued = runnable;
+			}
+		}
+	}
+
+	/**
+	 * Cancel a pending loading.
+	 * 
+	 * @see #load(Loader)
+	 */
+	protected void cancelLoad() {
+		synchronized (loads) {
+			queued = null;
+		}
+
+		OrganPlay organPlay = getOrganPlay();
+		if (organPlay == null) {
+			loading++;
+			pending = false;
+		} else {
+			synchronized (organPlay) {
+				loading++;
+				if (pending) {
+					pending = false;
+					removeProblem(Severity.WARNING, "loading");
+				}
+			}
+		}
+	}
+
 	/**
 	 * A channel implementation.
 	 */
@@ -0,0 +1,52 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.play.sound;
+
+/**
+ * A loader of resources needed by a sound, performed asynchronously.
+ * 
+ * @see jorgan.play.SoundPlayer#load(Loader)
+ */
+public interface Loader<T> {
+
+	/**
+	 * Load - called on a worker thread, thus must not access the organ or its
+	 * play.
+	 * 
+	 * @return the loaded resource
+	 */
+	public T load();
+
+	/**
+	 * The resource was loaded - called synchronized to the organ play.
+	 * 
+	 * @param loaded
+	 *            the loaded resource
+	 */
+	public void loaded(T loaded);
+
+	/**
+	 * The resource is no longer needed, because it was superseded by another
+	 * loading or the player was destroyed in the meantime.
+	 * 
+	 * @param loaded
+	 *            the loaded resource
+	 */
+	public void discard(T loaded);
+}
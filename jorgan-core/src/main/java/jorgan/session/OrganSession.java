@@ -19,24 +19,43 @@
 package jorgan.session;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.swing.SwingUtilities;
+
 import bias.Configuration;
 import jorgan.Version;
+import jorgan.disposition.Element;
 import jorgan.disposition.Element.FastPropertyChange;
 import jorgan.disposition.Organ;
 import jorgan.disposition.event.Change;
+import jorgan.disposition.event.OrganAdapter;
+import jorgan.disposition.event.OrganListener;
 import jorgan.disposition.event.OrganObserver;
 import jorgan.disposition.spi.ElementRegistry;
 import jorgan.io.DispositionStream;
 import jorgan.io.disposition.Backup;
+import jorgan.io.disposition.Journal;
+import jorgan.io.disposition.Snapshot;
 import jorgan.session.spi.SessionRegistry;
+import jorgan.util.IOUtils;
 import jorgan.util.ShutdownHook;
 
 /**
@@ -48,6 +67,28 @@ public class OrganSession {
 
 	private static Configuration config = Configuration.getRoot().get(OrganSession.class);
 
+	/**
+	 * Worker for saving in the background, shared by all sessions.
+	 */
+	private static final ScheduledExecutorService saver = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "jOrgan Session Saver");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/**
+	 * Workers for backups, running concurrently to saving.
+	 */
+	private static final ExecutorService backups = Executors.newCachedThreadPool(new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "jOrgan Session Backup");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
 	/**
 	 * The file the current organ is associated with.
 	 */
@@ -55,31 +96,144 @@ public class OrganSession {
 
 	private Organ organ;
 
-	private List<SessionListener> listeners = new ArrayList<SessionListener>();
+	private List<SessionListener> listeners = new CopyOnWriteArrayList<SessionListener>();
 
-	private boolean modified = false;
+	private volatile boolean modified = false;
+
+	/**
+	 * Count of changes, to detect changes while saving.
+	 */
+	private volatile int changes;
 
 	private boolean constructing = false;
 
 	private int backupCount;
 
+	/**
+	 * Milliseconds to wait for further requests before saving in the
+	 * background.
+	 */
+	private int saveDelay = 500;
+
+	/**
+	 * The pending request to save in the background.
+	 */
+	private SaveRequest request;
+
+	/**
+	 * Keep a binary snapshot next to the file.
+	 */
+	private boolean snapshot = true;
+
+	/**
+	 * Journal changes next to the file.
+	 */
+	private boolean journaling = true;
+
+	/**
+	 * Length in bytes of the journal when it gets compacted.
+	 */
+	private int journalLimit = 1048576;
+
+	/**
+	 * The journal of changes, <code>null</code> if not journaling.
+	 */
+	private volatile Journal journal;
+
+	/**
+	 * Is a flush of the journal scheduled.
+	 */
+	private boolean journalFlush;
+
+	/**
+	 * Lock for writing the file.
+	 */
+	private Object writing = new Object();
+
 	private Map<Class<? extends Object>, Object> ts = new HashMap<Class<? extends Object>, Object>();
 
 	private ShutdownHook shutdownHook;
 
+	/**
+	 * Feeds the journal.
+	 */
+	private OrganListener journaler = new OrganListener() {
+		public void elementAdded(Element element) {
+			journal.changed(element);
+		}
+
+		public void elementRemoved(Element element) {
+			journal.removed(element);
+		}
+
+		public void propertyChanged(Element element, String name) {
+			journal.changed(element);
+		}
+
+		public void indexedPropertyAdded(Element element, String name, Object value) {
+			journal.changed(element);
+		}
+
+		public void indexedPropertyChanged(Element element, String name, Object value) {
+			journal.changed(element);
+		}
+
+		public void indexedPropertyRemoved(Element element, String name, Object value) {
+			journal.changed(element);
+		}
+	};
+
+	/**
+	 * Feeds the journal with values changed while playing.
+	 */
+	private OrganListener valueJournaler = new OrganAdapter() {
+		@Override
+		public void propertyChanged(Element element, String name) {
+			journal.valueChanged(element);
+		}
+	};
+
 	public OrganSession(File file) throws IOException {
 		if (file == null) {
 			throw new IllegalArgumentException("file must not be null");
 		}
 		this.file = file.getAbsoluteFile();
 
+		config.read(this);
+
 		if (file.exists()) {
-			organ = new DispositionStream().read(file);
+			if (snapshot) {
+				organ = new Snapshot(this.file).read();
+			}
+			if (organ == null) {
+				long lastModified = this.file.lastModified();
+				long length = this.file.length();
+
+				organ = new DispositionStream().read(file);
+
+				if (snapshot) {
+					writeSnapshotLater(organ.snapshot(), lastModified, length);
+				}
+			}
+
+			if (journaling) {
+				journal = new Journal(this.file);
+				if (journal.replay(organ) > 0) {
+					logger.log(Level.INFO, "recovered changes from journal");
+
+					markModified();
+				}
+			}
 		} else {
 			file.createNewFile();
 
 			organ = createOrgan();
 			markModified();
+
+			if (journaling) {
+				journal = new Journal(this.file);
+				journal.delete();
+			}
 		}
 
 		organ.addOrganObserver(new OrganObserver() {
@@ -91,14 +245,24 @@ public class OrganSession {
 					}
 				}
 
+				changes++;
+
+				if (journal != null) {
+					if (change instanceof FastPropertyChange) {
+						change.notify(valueJournaler);
+					} else {
+						change.notify(journaler);
+					}
+
+					flushJournalLater();
+				}
+
 				markModified();
 			}
 		});
 
 		SessionRegistry.init(this);
 
-		config.read(this);
-
 		new History().addRecentFile(file);
 	}
 
@@ -149,15 +313,251 @@ public class OrganSession {
 		}
 	}
 
+	public boolean getSnapshot() {
+		return snapshot;
+	}
+
+	public void setSnapshot(boolean snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	public boolean getJournaling() {
+		return journaling;
+	}
+
+	public void setJournaling(boolean journaling) {
+		this.journaling = journaling;
+	}
+
+	public int getJournalLimit() {
+		return journalLimit;
+	}
+
+	public void setJournalLimit(int journalLimit) {
+		this.journalLimit = journalLimit;
+	}
+
+	public int getSaveDelay() {
+		return saveDelay;
+	}
+
+	public void setSaveDelay(int saveDelay) {
+		this.saveDelay = saveDelay;
+	}
+
+	/**
+	 * Save synchronously.
+	 * 
+	 * @see #saveLater()
+	 */
 	public void save() throws IOException {
-		// TODO do this as SessionListener#beforeSave(file);
-		new Backup(file).write(backupCount);
+		organ.setVersion(new Version().get());
+
+		int changes = this.changes;
+		long mark = markJournal();
+
+		synchronized (writing) {
+			write(organ);
+
+			if (snapshot) {
+				writeSnapshot(organ);
+			}
+
+			truncateJournal(mark);
+		}
 
+		saved(changes);
+	}
+
+	/**
+	 * Save in the background - a snapshot of the organ is taken immediately,
+	 * while serialization and writing happen on another thread. Requests
+	 * following in quick succession are coalesced into a single write of the
+	 * latest snapshot.<br>
+	 * Listeners are notified of completion via {@link SessionListener#saved(File)}
+	 * or {@link SessionListener#saveFailed(File, IOException)} on the event
+	 * dispatch thread, before the returned future is completed.
+	 * 
+	 * @return future completed when the snapshot is written
+	 * @see #save()
+	 */
+	public Future<File> saveLater() {
 		organ.setVersion(new Version().get());
 
-		new DispositionStream().write(organ, file);
+		Organ snapshot = organ.snapshot();
+		long mark = markJournal();
+
+		synchronized (this) {
+			if (request == null) {
+				request = new SaveRequest();
+
+				saver.schedule(request, saveDelay, TimeUnit.MILLISECONDS);
+			}
+
+			request.snapshot = snapshot;
+			request.changes = changes;
+			request.mark = mark;
+
+			return request.future;
+		}
+	}
+
+	/**
+	 * Write the given organ, rotating backups concurrently.
+	 */
+	private void write(Organ organ) throws IOException {
+		// TODO do this as SessionListener#beforeSave(file);
+		Future<?> backup = backups.submit(new Runnable() {
+			public void run() {
+				new Backup(file).write(backupCount);
+			}
+		});
+
+		File temp = new File(file.getParentFile(), "." + file.getName());
+
+		FileOutputStream output = new FileOutputStream(temp);
+		try {
+			new DispositionStream().write(organ, output);
+		} finally {
+			IOUtils.closeQuietly(output);
+		}
+
+		try {
+			backup.get();
+		} catch (InterruptedException ex) {
+			throw new IOException(ex);
+		} catch (ExecutionException ex) {
+			throw new IOException(ex.getCause());
+		}
+
+		if (file.exists() && !file.delete()) {
+			throw new IOException("unable to delete previous version");
+		}
+
+		if (!temp.renameTo(file)) {
+			throw new IOException("unable to rename new version");
+		}
+	}
+
+	/**
+	 * Write a binary snapshot of the given organ, just written to the file -
+	 * has to be called while holding the lock for writing, so no other write
+	 * can come in between.
+	 * 
+	 * @see Snapshot
+	 */
+	private void writeSnapshot(Organ organ) {
+		try {
+			new Snapshot(file).write(organ);
+		} catch (IOException ex) {
+			logger.log(Level.FINE, "unable to write snapshot", ex);
+		}
+	}
+
+	/**
+	 * Write a binary snapshot of the given organ in the background - the
+	 * snapshot is dropped if the file was changed since it was read.
+	 * 
+	 * @param organ
+	 *            organ read from the file
+	 * @param lastModified
+	 *            modification time of the file when it was read
+	 * @param length
+	 *            length of the file when it was read
+	 * @see Snapshot
+	 */
+	private void writeSnapshotLater(final Organ organ, final long lastModified,
+			final long length) {
+		backups.execute(new Runnable() {
+			public void run() {
+				synchronized (writing) {
+					if (file.lastModified() != lastModified
+							|| file.length() != length) {
+						// replaced by a newer save
+						return;
+					}
+
+					try {
+						new Snapshot(file).write(organ, lastModified, length);
+					} catch (IOException ex) {
+						logger.log(Level.FINE, "unable to write snapshot", ex);
+					}
+				}
+			}
+		});
+	}
+
+	private long markJournal() {
+		if (journal == null) {
+			return 0;
+		}
+		return journal.mark();
+	}
+
+	/**
+	 * Truncate the journal after the file was written.
+	 * 
+	 * @param mark
+	 *            mark of changes included in the file
+	 */
+	private void truncateJournal(long mark) {
+		if (journal != null) {
+			try {
+				journal.truncate(mark);
+			} catch (IOException ex) {
+				logger.log(Level.WARNING, "unable to truncate journal", ex);
+			}
+		}
+	}
+
+	/**
+	 * Flush the journal in the background - changes following in quick
+	 * succession are coalesced into a single append.
+	 */
+	private void flushJournalLater() {
+		synchronized (this) {
+			if (journalFlush) {
+				return;
+			}
+			journalFlush = true;
+		}
+
+		saver.schedule(new Runnable() {
+			public void run() {
+				synchronized (OrganSession.this) {
+					journalFlush = false;
+				}
 
-		modified = false;
+				synchronized (writing) {
+					if (journal == null) {
+						// destroyed
+						return;
+					}
+
+					try {
+						journal.flush();
+
+						if (journal.length() > journalLimit) {
+							journal.compact();
+						}
+					} catch (IOException ex) {
+						logger.log(Level.WARNING, "unable to write journal", ex);
+					}
+				}
+			}
+		}, saveDelay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * The organ was saved.
+	 * 
+	 * @param changes
+	 *            count of changes included in the save
+	 */
+	private void saved(int changes) throws IOException {
+		if (this.changes == changes) {
+			modified = false;
+		}
 
 		new History().addRecentFile(file);
 
@@ -166,6 +566,88 @@ public class OrganSession {
 		}
 	}
 
+	/**
+	 * A request to save in the background.
+	 */
+	private class SaveRequest implements Runnable {
+
+		private Organ snapshot;
+
+		private int changes;
+
+		private long mark;
+
+		private CompletableFuture<File> future = new CompletableFuture<File>();
+
+		public void run() {
+			Organ snapshot;
+			int changes;
+			long mark;
+			synchronized (OrganSession.this) {
+				// following requests are handled separately
+				request = null;
+
+				snapshot = this.snapshot;
+				changes = this.changes;
+				mark = this.mark;
+			}
+
+			Throwable failure = null;
+			try {
+				synchronized (writing) {
+					write(snapshot);
+
+					if (OrganSession.this.snapshot) {
+						writeSnapshot(snapshot);
+					}
+
+					truncateJournal(mark);
+				}
+			} catch (Throwable ex) {
+				failure = ex;
+			}
+
+			// listeners are notified on the EDT, as for all other changes
+			final Throwable written = failure;
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					completed(changes, written);
+				}
+			});
+		}
+
+		private void completed(int changes, Throwable failure) {
+			if (failure == null) {
+				try {
+					saved(changes);
+
+					future.complete(file);
+					return;
+				} catch (Throwable ex) {
+					failure = ex;
+				}
+			}
+
+			logger.log(Level.INFO, "saving failed", failure);
+
+			// waiting callers must not block on anything unexpected
+			IOException ex;
+			if (failure instanceof IOException) {
+				ex = (IOException) failure;
+			} else {
+				ex = new IOException(failure);
+			}
+
+			try {
+				for (SessionListener listener : listeners) {
+					listener.saveFailed(file, ex);
+				}
+			} finally {
+				future.completeExceptionally(ex);
+			}
+		}
+	}
+
 	public File getFile() {
 		return file;
 	}
@@ -251,6 +733,28 @@ public class OrganSession {
 	}
 
 	public void destroy() {
+		Future<File> pending = null;
+		synchronized (this) {
+			if (request != null) {
+				pending = request.future;
+			}
+		}
+		if (pending != null) {
+			// don't lose a pending save
+			try {
+				pending.get();
+			} catch (Exception ignore) {
+			}
+		}
+
+		synchronized (writing) {
+			if (journal != null) {
+				// changes are either saved or discarded
+				journal.delete();
+				journal = null;
+			}
+		}
+
 		for (SessionListener listener : listeners) {
 			listener.destroyed();
 		}
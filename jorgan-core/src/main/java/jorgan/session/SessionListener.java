@@ -42,6 +42,12 @@ public interface SessionListener {
 	 */
 	public void saved(File file) throws IOException;
 
+	/**
+	 * @see {@link OrganSession#saveLater()}
+	 */
+	public default void saveFailed(File file, IOException ex) {
+	}
+
 	/**
 	 * @see {@link OrganSession#destroy()}
 	 */
@@ -0,0 +1,81 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jorgan.disposition.Coupler;
+import jorgan.disposition.Organ;
+import jorgan.disposition.Stop;
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link DispositionStream}.
+ */
+public class DispositionStreamTest extends TestCase {
+
+	public void testConcurrent() throws Exception {
+		final Organ organ = new Organ();
+		for (int s = 0; s < 50; s++) {
+			Stop stop = new Stop();
+			stop.setName("stop" + s);
+			organ.addElement(stop);
+
+			Coupler coupler = new Coupler();
+			organ.addElement(coupler);
+			coupler.reference(stop);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Organ>> futures = new ArrayList<Future<Organ>>();
+			for (int t = 0; t < 16; t++) {
+				futures.add(executor.submit(new Callable<Organ>() {
+					public Organ call() throws Exception {
+						ByteArrayOutputStream output = new ByteArrayOutputStream();
+						new DispositionStream().write(organ, output);
+
+						return new DispositionStream().read(new ByteArrayInputStream(
+								output.toByteArray()));
+					}
+				}));
+			}
+
+			for (Future<Organ> future : futures) {
+				Organ read = future.get();
+				assertEquals(organ.getElements().size(), read.getElements()
+						.size());
+				for (Coupler coupler : read.getElements(Coupler.class)) {
+					assertEquals(1, coupler.getReferences().size());
+					assertTrue(read.containsElement(coupler.getReference(0)
+							.getElement()));
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
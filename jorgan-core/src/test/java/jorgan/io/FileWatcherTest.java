@@ -0,0 +1,115 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jorgan.io.FileWatcher.Listener;
+import jorgan.io.FileWatcher.Watch;
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link FileWatcher}.
+ */
+public class FileWatcherTest extends TestCase {
+
+	private File directory;
+
+	private List<File> changes = new ArrayList<File>();
+
+	private Listener listener = new Listener() {
+		public void onChange(File file) {
+			synchronized (changes) {
+				changes.add(file);
+				changes.notifyAll();
+			}
+		}
+	};
+
+	@Override
+	protected void setUp() throws Exception {
+		directory = File.createTempFile("jorgan", "");
+		directory.delete();
+		directory.mkdir();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	public void testWatch() throws Exception {
+		assertCoalesced(new FileWatcher(200, 1000, false));
+	}
+
+	public void testPoll() throws Exception {
+		assertCoalesced(new FileWatcher(200, 100, true));
+	}
+
+	private void assertCoalesced(FileWatcher watcher) throws Exception {
+		File file = new File(directory, "test.txt");
+		write(file, 1);
+
+		Watch watch = watcher.watch(file, listener);
+		watcher.watch(new File(directory, "other.txt"), listener);
+
+		for (int c = 2; c < 6; c++) {
+			write(file, c);
+			Thread.sleep(20);
+		}
+
+		assertEquals(1, await(1));
+		assertEquals(file.getAbsoluteFile(), changes.get(0));
+
+		watch.cancel();
+		write(file, 10);
+
+		assertEquals(1, await(2));
+	}
+
+	private int await(int count) throws InterruptedException {
+		long end = System.currentTimeMillis() + 2000;
+		synchronized (changes) {
+			while (changes.size() < count) {
+				long timeout = end - System.currentTimeMillis();
+				if (timeout <= 0) {
+					break;
+				}
+				changes.wait(timeout);
+			}
+			return changes.size();
+		}
+	}
+
+	private void write(File file, int length) throws IOException {
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(new byte[length]);
+		} finally {
+			output.close();
+		}
+	}
+}
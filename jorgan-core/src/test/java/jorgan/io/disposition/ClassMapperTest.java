@@ -16,6 +16,11 @@ public class ClassMapperTest extends TestCase {
 		assertEquals("rank$engaged", mapper.serializedClass(Rank.Engaged.class));
 	}
 
+	public void testSerializedClassCached() {
+		assertSame(mapper.serializedClass(Rank.Engaged.class), mapper
+				.serializedClass(Rank.Engaged.class));
+	}
+
 	public void testRealClass() {
 		assertEquals(Rank.Engaged.class, mapper.realClass("rank$engaged"));
 	}
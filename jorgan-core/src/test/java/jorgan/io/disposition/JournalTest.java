@@ -0,0 +1,116 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.io.disposition;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import jorgan.disposition.Organ;
+import jorgan.disposition.Stop;
+import jorgan.io.DispositionStream;
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link Journal}.
+ */
+public class JournalTest extends TestCase {
+
+	private File file;
+
+	private Organ organ;
+
+	private Stop stop;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("jorgan", ".disposition");
+
+		organ = new Organ();
+		stop = new Stop();
+		stop.setName("stop");
+		organ.addElement(stop);
+
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			new DispositionStream().write(organ, output);
+		} finally {
+			output.close();
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		new Journal(file).delete();
+		file.delete();
+	}
+
+	public void testCompact() throws Exception {
+		Journal journal = new Journal(file);
+		for (int i = 0; i < 10; i++) {
+			stop.setName("stop" + i);
+			journal.changed(stop);
+			journal.flush();
+		}
+		long length = journal.length();
+
+		journal.compact();
+		assertTrue(journal.length() < length);
+
+		Organ read = new DispositionStream().read(file);
+		assertEquals(1, new Journal(file).replay(read));
+		assertEquals("stop9", read.getElements(Stop.class).iterator().next()
+				.getName());
+	}
+
+	public void testIncomplete() throws Exception {
+		Journal journal = new Journal(file);
+		stop.setName("first");
+		journal.changed(stop);
+		journal.flush();
+		stop.setName("second");
+		journal.changed(stop);
+		journal.flush();
+
+		// crashed while writing last record
+		RandomAccessFile raf = new RandomAccessFile(journal.getFile(), "rw");
+		raf.setLength(raf.length() - 3);
+		raf.close();
+
+		Organ read = new DispositionStream().read(file);
+		assertEquals(1, new Journal(file).replay(read));
+		assertEquals("first", read.getElements(Stop.class).iterator().next()
+				.getName());
+	}
+
+	public void testStale() throws Exception {
+		Journal journal = new Journal(file);
+		stop.setName("changed");
+		journal.changed(stop);
+		journal.flush();
+
+		file.setLastModified(file.lastModified() - 10000);
+
+		Organ read = new DispositionStream().read(file);
+		assertEquals(0, journal.replay(read));
+		assertEquals("stop", read.getElements(Stop.class).iterator().next()
+				.getName());
+		assertFalse(journal.getFile().exists());
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.io.disposition;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import jorgan.disposition.Console;
+import jorgan.disposition.Coupler;
+import jorgan.disposition.Organ;
+import jorgan.disposition.Rank;
+import jorgan.disposition.Stop;
+import jorgan.io.DispositionStream;
+import junit.framework.TestCase;
+
+/**
+ * Benchmark for loading a large disposition from XML and from a
+ * {@link Snapshot}.
+ */
+public class SnapshotBenchmarkTest extends TestCase {
+
+	private static final int COUNT = 1250;
+
+	private static final int RUNS = 10;
+
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("jorgan", ".disposition");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		new Snapshot(file).delete();
+		file.delete();
+	}
+
+	public void testLoad() throws Exception {
+		Organ organ = createOrgan();
+
+		OutputStream output = new FileOutputStream(file);
+		try {
+			new DispositionStream().write(organ, output);
+		} finally {
+			output.close();
+		}
+		Snapshot snapshot = new Snapshot(file);
+		snapshot.write(organ);
+
+		long xml = Long.MAX_VALUE;
+		long binary = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) {
+			long start = System.nanoTime();
+			Organ fromXml = new DispositionStream().read(file);
+			xml = Math.min(xml, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			Organ fromSnapshot = snapshot.read();
+			binary = Math.min(binary, System.nanoTime() - start);
+
+			assertEquals(organ.getElements().size(), fromXml.getElements()
+					.size());
+			assertEquals(organ.getElements().size(), fromSnapshot
+					.getElements().size());
+		}
+
+		System.out.println(String.format(
+				"%s elements: xml %d ms (%d kB), snapshot %d ms (%d kB)",
+				organ.getElements().size(), xml / 1000000,
+				file.length() / 1024, binary / 1000000, snapshot.getFile()
+						.length() / 1024));
+	}
+
+	public void testStale() throws Exception {
+		Organ organ = createOrgan();
+
+		new DispositionStream().write(organ, file);
+		Snapshot snapshot = new Snapshot(file);
+		snapshot.write(organ);
+
+		Organ read = snapshot.read();
+		assertNotNull(read);
+		for (Stop stop : read.getElements(Stop.class)) {
+			assertSame(read, stop.getOrgan());
+			if (stop.getName().startsWith("stop")) {
+				assertEquals(1, stop.getReferenced(Rank.class).size());
+			}
+		}
+
+		organ.getElements(Stop.class).iterator().next().setName("changed");
+		new DispositionStream().write(organ, file);
+		file.setLastModified(file.lastModified() + 1000);
+
+		assertNull(snapshot.read());
+	}
+
+	private Organ createOrgan() {
+		Organ organ = new Organ();
+
+		Console console = new Console();
+		organ.addElement(console);
+
+		for (int e = 0; e < COUNT; e++) {
+			Rank rank = new Rank();
+			rank.setName("rank " + e);
+			organ.addElement(rank);
+
+			Stop stop = new Stop();
+			stop.setName("stop " + e);
+			organ.addElement(stop);
+			stop.reference(rank);
+			console.reference(stop);
+
+			Coupler coupler = new Coupler();
+			coupler.setName("coupler " + e);
+			organ.addElement(coupler);
+
+			Stop other = new Stop();
+			other.setName("other " + e);
+			organ.addElement(other);
+			coupler.reference(other);
+		}
+
+		return organ;
+	}
+}
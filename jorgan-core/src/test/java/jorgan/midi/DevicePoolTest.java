@@ -0,0 +1,160 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.midi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.MidiDevice.Info;
+import javax.sound.midi.MidiUnavailableException;
+
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link DevicePool}.
+ */
+public class DevicePoolTest extends TestCase {
+
+	private List<Info> infos = new ArrayList<Info>();
+
+	private int enumerations;
+
+	private List<String> events = new ArrayList<String>();
+
+	private List<DevicePool> pools = new ArrayList<DevicePool>();
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (DevicePool pool : pools) {
+			pool.shutdown();
+		}
+	}
+
+	private DevicePool createPool(boolean cache, int watch) {
+		DevicePool pool = new DevicePool(cache, watch) {
+			@Override
+			Info[] enumerateDevices() {
+				synchronized (infos) {
+					enumerations++;
+					return infos.toArray(new Info[infos.size()]);
+				}
+			}
+
+			@Override
+			MidiDevice getDevice(Info info) throws MidiUnavailableException {
+				return new Loopback(info, info.getName().startsWith("both"), true);
+			}
+		};
+		pools.add(pool);
+		return pool;
+	}
+
+	private void plug(String name) {
+		synchronized (infos) {
+			infos.add(new Info(name, "test", "test", "1.0") {
+			});
+		}
+	}
+
+	private void unplug(String name) {
+		synchronized (infos) {
+			for (Info info : infos) {
+				if (info.getName().equals(name)) {
+					infos.remove(info);
+					return;
+				}
+			}
+		}
+	}
+
+	public void testLookup() throws Exception {
+		plug("in");
+		plug("both");
+
+		DevicePool pool = createPool(false, 0);
+		for (int i = 0; i < 300; i++) {
+			assertNotNull(pool.getMidiDevice("in", Direction.IN));
+			assertNotNull(pool.getMidiDevice("both", Direction.OUT));
+		}
+		assertEquals(1, enumerations);
+
+		try {
+			pool.getMidiDevice("in", Direction.OUT);
+			fail();
+		} catch (MidiUnavailableException expected) {
+		}
+		try {
+			pool.getMidiDevice("in", Direction.OUT);
+			fail();
+		} catch (MidiUnavailableException expected) {
+		}
+		// no refresh for misses in quick succession
+		assertEquals(1, enumerations);
+
+		assertEquals(1, pool.getMidiDeviceNames(Direction.OUT).length);
+	}
+
+	public void testWatch() throws Exception {
+		plug("in");
+
+		DevicePool pool = createPool(true, 10);
+		pool.addListener(new DeviceListener() {
+			public void deviceAdded(String name, Direction direction) {
+				synchronized (events) {
+					events.add("+" + name + " " + direction);
+					events.notifyAll();
+				}
+			}
+
+			public void deviceRemoved(String name, Direction direction) {
+				synchronized (events) {
+					events.add("-" + name + " " + direction);
+					events.notifyAll();
+				}
+			}
+		});
+		assertEquals(1, pool.getMidiDeviceNames(Direction.IN).length);
+
+		plug("both");
+		awaitEvents(2);
+		assertTrue(events.contains("+both IN"));
+		assertTrue(events.contains("+both OUT"));
+		assertNotNull(pool.getMidiDevice("both", Direction.OUT));
+
+		unplug("in");
+		awaitEvents(3);
+		assertEquals("-in IN", events.get(2));
+		try {
+			pool.getMidiDevice("in", Direction.IN);
+			fail();
+		} catch (MidiUnavailableException expected) {
+		}
+	}
+
+	private void awaitEvents(int count) throws InterruptedException {
+		synchronized (events) {
+			long end = System.currentTimeMillis() + 2000;
+			while (events.size() < count && System.currentTimeMillis() < end) {
+				events.wait(100);
+			}
+			assertEquals(count, events.size());
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.midi;
+
+import java.util.concurrent.CountDownLatch;
+
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Transmitter;
+
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link Loopback}.
+ */
+public class LoopbackTest extends TestCase {
+
+	private Loopback loopback = new Loopback(new MidiDevice.Info("test",
+			"test", "test", "1.0") {
+	}, true, true);
+
+	public void testSynchronous() throws Exception {
+		loopback.open();
+
+		Counter counter1 = new Counter();
+		Transmitter transmitter1 = loopback.getTransmitter();
+		transmitter1.setReceiver(counter1);
+
+		Counter counter2 = new Counter();
+		Transmitter transmitter2 = loopback.getTransmitter();
+		transmitter2.setReceiver(counter2);
+
+		Receiver receiver = loopback.getReceiver();
+		receiver.send(MessageUtils.createMessage(144, 64, 100), -1);
+
+		transmitter1.close();
+
+		receiver.send(MessageUtils.createMessage(128, 64, 0), -1);
+
+		assertEquals(1, counter1.count);
+		assertEquals(2, counter2.count);
+		assertEquals(1, loopback.getTransmitters().size());
+
+		loopback.close();
+		assertEquals(0, loopback.getTransmitters().size());
+	}
+
+	public void testAsynchronous() throws Exception {
+		loopback.setAsynchronous(2);
+		loopback.open();
+
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		Counter counter = new Counter() {
+			@Override
+			public void send(MidiMessage message, long timeStamp) {
+				super.send(message, timeStamp);
+
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException ex) {
+				}
+			}
+		};
+		loopback.getTransmitter().setReceiver(counter);
+
+		Receiver receiver = loopback.getReceiver();
+		receiver.send(MessageUtils.createMessage(144, 64, 100), -1);
+		blocked.await();
+
+		// queued
+		receiver.send(MessageUtils.createMessage(144, 65, 100), -1);
+		receiver.send(MessageUtils.createMessage(144, 66, 100), -1);
+		// overflow
+		receiver.send(MessageUtils.createMessage(144, 67, 100), -1);
+
+		assertEquals(1, loopback.getOverflowCount());
+
+		loopback.close();
+		release.countDown();
+
+		assertEquals(3, loopback.getDropCount());
+	}
+
+	private class Counter implements Receiver {
+
+		protected int count;
+
+		public void send(MidiMessage message, long timeStamp) {
+			count++;
+		}
+
+		public void close() {
+		}
+	}
+}
@@ -39,6 +39,15 @@ public class MessageUtilsTest extends TestCase {
 		assertFalse(MessageUtils.isChannelStatus((byte) 255));
 	}
 
+	public void testGetLength() throws Exception {
+		assertEquals(3, MessageUtils.getLength(0x90));
+		assertEquals(2, MessageUtils.getLength(0xC5));
+		assertEquals(2, MessageUtils.getLength(0xD0));
+		assertEquals(-1, MessageUtils.getLength(0xF0));
+		assertEquals(3, MessageUtils.getLength(0xF2));
+		assertEquals(1, MessageUtils.getLength(0xFE));
+	}
+
 	public void testMeta() throws Exception {
 		assertTrue(Arrays.equals(BYTES, MessageUtils.createMetaMessage(
 				MessageUtils.META_TEXT, STRING).getMessage()));
@@ -0,0 +1,263 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.session;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import jorgan.disposition.Console;
+import jorgan.disposition.Continuous;
+import jorgan.disposition.Organ;
+import jorgan.disposition.Stop;
+import jorgan.io.DispositionStream;
+import jorgan.io.disposition.Journal;
+import jorgan.io.disposition.Snapshot;
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link OrganSession}.
+ */
+public class OrganSessionTest extends TestCase {
+
+	private File file;
+
+	private int saved;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("jorgan", ".disposition");
+		file.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		new Snapshot(file).delete();
+		new Journal(file).delete();
+		file.delete();
+	}
+
+	public void testSaveLater() throws Exception {
+		OrganSession session = new OrganSession(file);
+		session.addListener(new SessionListener() {
+			public void constructingChanged(boolean constructing) {
+			}
+
+			public void modified() {
+			}
+
+			public void saved(File file) throws IOException {
+				assertTrue(SwingUtilities.isEventDispatchThread());
+
+				saved++;
+			}
+
+			public void destroyed() {
+			}
+		});
+
+		Organ organ = session.getOrgan();
+
+		Stop stop = new Stop();
+		organ.addElement(stop);
+		Future<File> first = session.saveLater();
+
+		Console console = new Console();
+		console.setName("test");
+		organ.addElement(console);
+		console.reference(stop);
+		Future<File> second = session.saveLater();
+
+		assertSame(first, second);
+		assertEquals(file, second.get());
+		assertEquals(1, saved);
+		assertFalse(session.isModified());
+
+		stop.setName("changed");
+		Future<File> third = session.saveLater();
+		// changed after snapshot
+		organ.addElement(new Stop());
+		third.get();
+		assertEquals(2, saved);
+		assertTrue(session.isModified());
+
+		Organ read = new DispositionStream().read(file);
+		assertEquals(organ.getElements().size() - 1, read.getElements()
+				.size());
+		Console readConsole = null;
+		for (Console candidate : read.getElements(Console.class)) {
+			if ("test".equals(candidate.getName())) {
+				readConsole = candidate;
+			}
+		}
+		assertNotNull(readConsole);
+		assertEquals("changed", readConsole.getReferenced(Stop.class).get(0)
+				.getName());
+	}
+
+	public void testSaveLaterFailed() throws Exception {
+		OrganSession session = new OrganSession(file);
+		session.addListener(new SessionListener() {
+			public void constructingChanged(boolean constructing) {
+			}
+
+			public void modified() {
+			}
+
+			public void saved(File file) throws IOException {
+				throw new IllegalStateException();
+			}
+
+			public void destroyed() {
+			}
+		});
+
+		session.getOrgan().addElement(new Stop());
+		try {
+			session.saveLater().get(10, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException expected) {
+			assertTrue(expected.getCause() instanceof IOException);
+		}
+	}
+
+	public void testSnapshot() throws Exception {
+		OrganSession session = new OrganSession(file);
+		session.setSnapshot(true);
+
+		Organ organ = session.getOrgan();
+		organ.addElement(new Stop());
+		session.saveLater().get();
+
+		organ.addElement(new Stop());
+		session.saveLater().get();
+
+		// snapshot is written with the file it belongs to
+		Organ read = new Snapshot(file).read();
+		assertNotNull(read);
+		assertEquals(organ.getElements().size(), read.getElements().size());
+	}
+
+	public void testJournal() throws Exception {
+		OrganSession session = new OrganSession(file);
+		session.setSaveDelay(10);
+		Organ organ = session.getOrgan();
+
+		Stop stop = new Stop();
+		stop.setName("stop");
+		organ.addElement(stop);
+		Console console = new Console();
+		console.setName("test");
+		organ.addElement(console);
+		console.reference(stop);
+		session.save();
+		assertFalse(new Journal(file).getFile().exists());
+
+		stop.setName("changed");
+		Stop added = new Stop();
+		added.setName("added");
+		organ.addElement(added);
+		console.reference(added);
+		organ.removeElement(stop);
+		waitForJournal();
+
+		// crashed, i.e. not destroyed
+		OrganSession recovered = new OrganSession(file);
+		assertTrue(recovered.isModified());
+
+		Organ organ2 = recovered.getOrgan();
+		assertEquals(organ.getElements().size(), organ2.getElements().size());
+		for (Console console2 : organ2.getElements(Console.class)) {
+			if ("test".equals(console2.getName())) {
+				assertEquals(1, console2.getReferenced(Stop.class).size());
+				Stop stop2 = console2.getReferenced(Stop.class).get(0);
+				assertEquals("added", stop2.getName());
+				assertTrue(organ2.containsElement(stop2));
+			}
+		}
+
+		recovered.save();
+		assertFalse(new Journal(file).getFile().exists());
+	}
+
+	public void testJournalValues() throws Exception {
+		OrganSession session = new OrganSession(file);
+		session.setSaveDelay(10);
+		Organ organ = session.getOrgan();
+
+		Stop stop = new Stop();
+		organ.addElement(stop);
+		Continuous continuous = new Continuous();
+		continuous.setName("continuous");
+		organ.addElement(continuous);
+		session.save();
+
+		stop.setName("changed");
+		for (int i = 0; i < 100; i++) {
+			stop.setActive(i % 2 == 1);
+			continuous.setValue(i / 100.0f);
+		}
+		waitForJournal();
+
+		// crashed, i.e. not destroyed
+		OrganSession recovered = new OrganSession(file);
+		assertTrue(recovered.isModified());
+
+		Organ organ2 = recovered.getOrgan();
+		Stop stop2 = (Stop) organ2.getElement(stop.getId());
+		assertEquals("changed", stop2.getName());
+		assertTrue(stop2.isActive());
+		Continuous continuous2 = (Continuous) organ2.getElement(continuous
+				.getId());
+		assertEquals(0.99f, continuous2.getValue(), 0.0f);
+
+		recovered.save();
+	}
+
+	public void testJournalDiscarded() throws Exception {
+		OrganSession session = new OrganSession(file);
+		session.setSaveDelay(10);
+		session.save();
+
+		session.getOrgan().addElement(new Stop());
+		waitForJournal();
+
+		try {
+			session.destroy();
+		} catch (IllegalStateException playNotOpened) {
+		}
+		assertFalse(new Journal(file).getFile().exists());
+
+		assertFalse(new OrganSession(file).isModified());
+	}
+
+	private void waitForJournal() throws InterruptedException {
+		File journal = new Journal(file).getFile();
+		long end = System.currentTimeMillis() + 2000;
+		while (!journal.exists() && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		// give flush time to complete
+		Thread.sleep(100);
+	}
+}
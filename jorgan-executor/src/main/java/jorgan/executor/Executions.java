@@ -22,17 +22,35 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import bias.Configuration;
 import jorgan.disposition.Element;
 import jorgan.disposition.event.OrganAdapter;
 import jorgan.executor.disposition.Executor;
+import jorgan.play.OrganPlay;
 import jorgan.problem.ElementProblems;
 import jorgan.problem.Problem;
 import jorgan.problem.Severity;
 import jorgan.session.OrganSession;
+import jorgan.session.SessionListener;
+import jorgan.util.IOUtils;
 
+/**
+ * Executions of {@link Executor}s - commands are executed in the
+ * background, so the organ is never blocked by a running process or a
+ * preceding save.
+ */
 public class Executions extends OrganAdapter {
 
 	private static final Configuration config = Configuration.getRoot()
@@ -47,21 +65,93 @@ public class Executions extends OrganAdapter {
 
 	private boolean allowed = false;
 
+	/**
+	 * Log the output of executions.
+	 */
 	private boolean poll = true;
 
+	/**
+	 * Maximum number of concurrent executions.
+	 */
+	private int threads = 2;
+
+	/**
+	 * Maximum number of waiting executions.
+	 */
+	private int queue = 8;
+
+	private ThreadPoolExecutor service;
+
+	private Map<Executor, Metrics> metrics = new HashMap<Executor, Metrics>();
+
+	private boolean destroyed;
+
 	public Executions(OrganSession session) {
 		config.read(this);
 
 		this.session = session;
 		session.getOrgan().addOrganListener(this);
+		session.addListener(new SessionListener() {
+			public void constructingChanged(boolean constructing) {
+			}
+
+			public void modified() {
+			}
+
+			public void saved(File file) {
+			}
+
+			public void destroyed() {
+				destroy();
+			}
+		});
 
 		problems = session.lookup(ElementProblems.class);
+
+		service = new ThreadPoolExecutor(threads, threads, 60,
+				TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queue),
+				new ThreadFactory() {
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable,
+								"jOrgan Execution");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		service.allowCoreThreadTimeOut(true);
 	}
 
 	public void setAllowed(boolean allowed) {
 		this.allowed = allowed;
 	}
 
+	/**
+	 * Get the metrics of executions of the given executor.
+	 * 
+	 * @param executor
+	 *            the executor
+	 * @return metrics or <code>null</code> if the executor was not executed
+	 */
+	public Metrics getMetrics(Executor executor) {
+		synchronized (metrics) {
+			return this.metrics.get(executor);
+		}
+	}
+
+	/**
+	 * Get the metrics of the given executor, created on its first execution.
+	 */
+	private Metrics metrics(Executor executor) {
+		synchronized (metrics) {
+			Metrics metrics = this.metrics.get(executor);
+			if (metrics == null) {
+				metrics = new Metrics();
+				this.metrics.put(executor, metrics);
+			}
+			return metrics;
+		}
+	}
+
 	@Override
 	public void propertyChanged(Element element, String name) {
 		if (Executor.class.isInstance(element)) {
@@ -75,6 +165,15 @@ public class Executions extends OrganAdapter {
 		}
 	}
 
+	@Override
+	public void elementRemoved(Element element) {
+		if (Executor.class.isInstance(element)) {
+			synchronized (metrics) {
+				metrics.remove(element);
+			}
+		}
+	}
+
 	private void execute(OrganSession session, Executor executor) {
 		if (!allowed) {
 			return;
@@ -83,89 +182,186 @@ public class Executions extends OrganAdapter {
 		removeProblem(executor);
 
 		try {
+			Future<File> save = null;
 			if (executor.getSave()) {
-				session.save();
+				save = session.saveLater();
 			}
 
+			File file = null;
 			String command = executor.getCommand();
 			if (command != null) {
-				File file = session.resolve(command);
+				file = session.resolve(command);
+			}
+
+			if (file != null) {
+				service.execute(new Execution(executor, metrics(executor),
+						save, file));
+			}
+		} catch (RejectedExecutionException e) {
+			addProblem(executor, "too many executions");
+		}
+	}
 
-				Process process = Runtime.getRuntime().exec(
-						file.getCanonicalPath(), null,
-						session.getFile().getParentFile().getCanonicalFile());
+	private void destroy() {
+		session.getOrgan().removeOrganListener(this);
 
-				if (poll) {
-					new Poller(process);
-				}
+		synchronized (this) {
+			destroyed = true;
+		}
+
+		service.shutdown();
+
+		synchronized (metrics) {
+			for (Map.Entry<Executor, Metrics> entry : metrics.entrySet()) {
+				log.info(String.format("executor %s: %s", entry.getKey()
+						.getName(), entry.getValue()));
+			}
+		}
+	}
+
+	/**
+	 * Report a problem from an execution.
+	 */
+	private void report(Executor executor, Severity severity, String message) {
+		synchronized (this) {
+			if (destroyed) {
+				return;
+			}
+		}
+
+		synchronized (session.lookup(OrganPlay.class)) {
+			if (message == null) {
+				problems.removeProblem(new Problem(severity, executor,
+						"command", null));
+			} else {
+				problems.addProblem(new Problem(severity, executor, "command",
+						message));
 			}
-		} catch (IOException e) {
-			addProblem(executor, e);
 		}
 	}
 
-	private void addProblem(Executor executor, IOException e) {
+	private void addProblem(Executor executor, String message) {
 		problems.addProblem(new Problem(Severity.ERROR, executor, "command",
-				getMessage(e)));
+				message));
 	}
 
 	private void removeProblem(Executor executor) {
 		problems.removeProblem(
 				new Problem(Severity.ERROR, executor, "command", null));
+		problems.removeProblem(
+				new Problem(Severity.WARNING, executor, "command", null));
 	}
 
-	private String getMessage(IOException e) {
+	private String getMessage(Throwable e) {
 		while (e.getCause() != null && e.getCause() != e
 				&& e.getCause() instanceof IOException) {
-			e = (IOException) e.getCause();
+			e = e.getCause();
 		}
 
 		String message = e.getMessage();
+		if (message == null) {
+			return e.getClass().getSimpleName();
+		}
 		message = message.replaceFirst(".*Exception:?\\s*", "");
 		return message;
 	}
 
-	public static class Poller implements Runnable {
+	/**
+	 * A single execution.
+	 */
+	private class Execution implements Runnable {
 
-		private Process process;
+		private Executor executor;
 
-		private BufferedReader reader;
+		private Metrics metrics;
 
-		public Poller(Process process) {
-			this.process = process;
+		private Future<File> save;
 
-			this.reader = new BufferedReader(
-					new InputStreamReader(process.getInputStream()));
+		private File file;
 
-			new Thread(this).start();
+		public Execution(Executor executor, Metrics metrics,
+				Future<File> save, File file) {
+			this.executor = executor;
+			this.metrics = metrics;
+			this.save = save;
+			this.file = file;
 		}
 
 		@Override
 		public void run() {
+			long start = System.nanoTime();
+
+			Process process = null;
 			try {
-				while (process.isAlive()) {
-					read();
-					Thread.sleep(500);
+				if (save != null) {
+					// execute on the saved disposition only
+					save.get();
+				}
+
+				ProcessBuilder builder = new ProcessBuilder(file
+						.getCanonicalPath());
+				builder.directory(session.getFile().getParentFile()
+						.getCanonicalFile());
+				builder.redirectErrorStream(true);
+				if (!poll) {
+					builder.redirectOutput(Redirect.DISCARD);
+				}
+
+				process = builder.start();
+
+				if (poll) {
+					read(process);
 				}
 
-				read();
+				int status = process.waitFor();
+
+				long duration = TimeUnit.NANOSECONDS.toMillis(System
+						.nanoTime()
+						- start);
+				metrics.executed(duration, status);
 
-				log("finished");
-			} catch (Exception ex) {
-				log(ex.getMessage());
+				log(process, String.format("finished with %s in %s ms (%s)",
+						status, duration, metrics));
+
+				// failed exits are shown with the metrics
+				report(executor, Severity.WARNING, status == 0 ? null
+						: metrics.toString());
+			} catch (IOException e) {
+				metrics.failed();
+
+				report(executor, Severity.ERROR, getMessage(e));
+			} catch (ExecutionException e) {
+				metrics.failed();
+
+				report(executor, Severity.ERROR, getMessage(e.getCause()));
+			} catch (InterruptedException e) {
+				if (process != null) {
+					process.destroy();
+				}
 			}
 		}
 
-		private void read() throws IOException {
-			String line = reader.readLine();
-			if (line == null) {
-				return;
+		/**
+		 * Read the output, logging it line by line.
+		 */
+		private void read(Process process) throws IOException {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					process.getInputStream()));
+			try {
+				while (true) {
+					String line = reader.readLine();
+					if (line == null) {
+						break;
+					}
+					log(process, line);
+				}
+			} finally {
+				IOUtils.closeQuietly(reader);
 			}
-			log(line);
 		}
 
-		private void log(String text) {
+		private void log(Process process, String text) {
 			log.info(String.format("execution %s: %s", process.pid(), text));
 		}
 	}
-}
\ No newline at end of file
+}
@@ -24,10 +24,13 @@ import jorgan.session.spi.SessionProvider;
 public class ExecutorSessionProvider implements SessionProvider {
 
 	public void init(final OrganSession session) {
-		new Executions(session);
+		session.lookup(Executions.class);
 	}
 
 	public Object create(OrganSession session, Class<?> clazz) {
+		if (clazz == Executions.class) {
+			return new Executions(session);
+		}
 		return null;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.executor;
+
+/**
+ * Metrics of executions of a single {@link jorgan.executor.disposition.Executor}.
+ */
+public class Metrics {
+
+	private int executions;
+
+	private int failures;
+
+	private int finished;
+
+	private int exitStatus = -1;
+
+	private long duration;
+
+	private long totalDuration;
+
+	synchronized void executed(long duration, int exitStatus) {
+		this.executions++;
+		this.finished++;
+		if (exitStatus != 0) {
+			this.failures++;
+		}
+
+		this.exitStatus = exitStatus;
+		this.duration = duration;
+		this.totalDuration += duration;
+	}
+
+	synchronized void failed() {
+		this.executions++;
+		this.failures++;
+
+		this.exitStatus = -1;
+	}
+
+	/**
+	 * Get the count of executions.
+	 */
+	public synchronized int getExecutions() {
+		return executions;
+	}
+
+	/**
+	 * Get the count of executions which could not be started or exited with
+	 * a non-zero status.
+	 */
+	public synchronized int getFailures() {
+		return failures;
+	}
+
+	/**
+	 * Get the exit status of the last execution, <code>-1</code> if unknown.
+	 */
+	public synchronized int getExitStatus() {
+		return exitStatus;
+	}
+
+	/**
+	 * Get the duration of the last execution in milliseconds.
+	 */
+	public synchronized long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Get the average duration of finished executions in milliseconds.
+	 */
+	public synchronized long getAverageDuration() {
+		return finished == 0 ? 0 : totalDuration / finished;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format(
+				"%s executions, %s failed, last status %s, average %s ms",
+				executions, failures, exitStatus, getAverageDuration());
+	}
+}
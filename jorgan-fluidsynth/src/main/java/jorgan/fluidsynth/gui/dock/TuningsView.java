@@ -39,6 +39,7 @@ import jorgan.disposition.event.OrganListener;
 import jorgan.fluidsynth.disposition.FluidsynthSound;
 import jorgan.fluidsynth.disposition.Tuning;
 import jorgan.fluidsynth.gui.construct.CreateTuningWizard;
+import jorgan.gui.EventBridge;
 import jorgan.gui.dock.AbstractView;
 import jorgan.gui.selection.ElementSelection;
 import jorgan.gui.selection.SelectionListener;
@@ -51,7 +52,6 @@ import jorgan.swing.table.SimpleCellRenderer;
 import jorgan.swing.table.SpinnerCellEditor;
 import jorgan.swing.table.StringCellEditor;
 import jorgan.swing.table.TableUtils;
-import spin.Spin;
 import swingx.dnd.ObjectTransferable;
 import swingx.docking.Docked;
 import bias.Configuration;
@@ -225,7 +225,7 @@ public class TuningsView extends AbstractView {
 	public void setSession(OrganSession session) {
 		if (this.session != null) {
 			this.session.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(tableModel));
+					EventBridge.organ(tableModel));
 			this.session.lookup(ElementSelection.class).removeListener(
 					selectionHandler);
 		}
@@ -234,7 +234,7 @@ public class TuningsView extends AbstractView {
 
 		if (this.session != null) {
 			this.session.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(tableModel));
+					EventBridge.organ(tableModel));
 			this.session.lookup(ElementSelection.class).addListener(
 					selectionHandler);
 		}
@@ -18,6 +18,7 @@
  */
 package jorgan.fluidsynth.play;
 
+import java.io.File;
 import java.io.IOException;
 
 import javax.sound.midi.InvalidMidiDataException;
@@ -29,6 +30,7 @@ import jorgan.fluidsynth.disposition.Reverb;
 import jorgan.fluidsynth.disposition.Tuning;
 import jorgan.midi.MessageUtils;
 import jorgan.play.SoundPlayer;
+import jorgan.play.sound.Loader;
 import jorgan.problem.Severity;
 
 /**
@@ -36,9 +38,16 @@ import jorgan.problem.Severity;
  */
 public class FluidsynthSoundPlayer extends SoundPlayer<FluidsynthSound> {
 
+	/**
+	 * The configuration of the current synth, loaded or still loading.
+	 */
 	private FluidsynthSound clone;
 
-	private Fluidsynth synth;
+	/**
+	 * The current synth, <code>null</code> while loading - thus acting as a
+	 * dead channel.
+	 */
+	private volatile Fluidsynth synth;
 
 	public FluidsynthSoundPlayer(FluidsynthSound sound) {
 		super(sound);
@@ -54,15 +63,22 @@ public class FluidsynthSoundPlayer extends SoundPlayer<FluidsynthSound> {
 			removeProblem(Severity.WARNING, "soundfont");
 		}
 
-		if (synth == null) {
+		if (clone == null) {
 			createSynth();
 		} else {
 			if (!clone.equals(sound)) {
-				destroySynth();
-				createSynth();
+				// gain and interpolation can be changed on the live synth
+				clone.setGain(sound.getGain());
+				clone.setInterpolate(sound.getInterpolate());
+
+				if (!clone.equals(sound)) {
+					destroySynth();
+					createSynth();
+				}
 			}
 		}
 
+		configureGain();
 		configureTunings();
 		configureReverb();
 		configureChorus();
@@ -88,6 +104,7 @@ public class FluidsynthSoundPlayer extends SoundPlayer<FluidsynthSound> {
 			throw new InvalidMidiDataException("short messages supported only");
 		}
 
+		Fluidsynth synth = this.synth;
 		if (synth != null) {
 			int status = datas[0] & 0xff;
 			int data1 = datas[1] & 0xff;
@@ -106,42 +123,30 @@ public class FluidsynthSoundPlayer extends SoundPlayer<FluidsynthSound> {
 		}
 	}
 
+	/**
+	 * Create the synth - the synth is loaded in the background and swapped in
+	 * when ready. Note that a previous synth has to be destroyed beforehand,
+	 * since its audio device might not be shareable.
+	 */
 	private void createSynth() {
 		FluidsynthSound sound = getElement();
 
 		removeProblem(Severity.ERROR, "audioDriver");
 		removeProblem(Severity.ERROR, "soundfont");
 
-		try {
-			synth = new Fluidsynth(name(sound.getName()), sound.getCores(),
-					sound.getChannels(), sound.getPolyphony(),
-					sound.getSampleRate(), sound.getAudioDriver(),
-					sound.getAudioDevice(), sound.getAudioBuffers(),
-					sound.getAudioBufferSize(), sound.getOverflowAge(),
-					sound.getOverflowPercussion(), sound.getOverflowReleased(),
-					sound.getOverflowSustained(), sound.getOverflowVolume());
-
-			clone = (FluidsynthSound) sound.clone();
-		} catch (IOException e) {
-			addProblem(Severity.ERROR, "audioDriver", "create");
-			return;
-		} catch (NoClassDefFoundError failure) {
-			addProblem(Severity.ERROR, "audioDriver", "fluidsynthFailure");
-			return;
-		}
+		clone = (FluidsynthSound) sound.clone();
 
+		File soundfont = null;
 		if (sound.getSoundfont() != null) {
 			try {
-				synth.soundFontLoad(resolve(sound.getSoundfont()),
-						sound.getBank());
+				soundfont = resolve(sound.getSoundfont());
 			} catch (IOException ex) {
 				addProblem(Severity.ERROR, "soundfont", "soundfontLoad",
 						sound.getSoundfont());
 			}
 		}
 
-		synth.setGain(sound.getGain() * 2.0f);
-		synth.setInterpolate(sound.getInterpolate().number());
+		load(new SynthLoader(clone, soundfont));
 	}
 
 	private String name(String name) {
@@ -155,6 +160,15 @@ public class FluidsynthSoundPlayer extends SoundPlayer<FluidsynthSound> {
 		return buffer.toString();
 	}
 
+	public void configureGain() {
+		if (synth != null) {
+			FluidsynthSound sound = getElement();
+
+			synth.setGain(sound.getGain() * 2.0f);
+			synth.setInterpolate(sound.getInterpolate().number());
+		}
+	}
+
 	public void configureTunings() {
 		if (synth != null) {
 			FluidsynthSound sound = getElement();
@@ -255,11 +269,94 @@ public class FluidsynthSoundPlayer extends SoundPlayer<FluidsynthSound> {
 	 * a disposition) the system might lock-up completely.
 	 */
 	private void destroySynth() {
+		cancelLoad();
+
 		if (synth != null) {
 			synth.destroy();
 			synth = null;
+		}
+
+		clone = null;
+	}
+
+	/**
+	 * Loader of a synth.
+	 */
+	private class SynthLoader implements Loader<Fluidsynth> {
+
+		private FluidsynthSound sound;
+
+		private File soundfont;
 
-			clone = null;
+		private String audioDriverFailure;
+
+		private boolean soundfontFailure;
+
+		public SynthLoader(FluidsynthSound sound, File soundfont) {
+			this.sound = sound;
+			this.soundfont = soundfont;
+		}
+
+		public Fluidsynth load() {
+			Fluidsynth synth;
+			try {
+				synth = new Fluidsynth(name(sound.getName()),
+						sound.getCores(), sound.getChannels(),
+						sound.getPolyphony(), sound.getSampleRate(),
+						sound.getAudioDriver(), sound.getAudioDevice(),
+						sound.getAudioBuffers(), sound.getAudioBufferSize(),
+						sound.getOverflowAge(), sound.getOverflowPercussion(),
+						sound.getOverflowReleased(),
+						sound.getOverflowSustained(), sound.getOverflowVolume());
+			} catch (IOException e) {
+				audioDriverFailure = "create";
+				return null;
+			} catch (NoClassDefFoundError failure) {
+				audioDriverFailure = "fluidsynthFailure";
+				return null;
+			}
+
+			if (soundfont != null) {
+				try {
+					synth.soundFontLoad(soundfont, sound.getBank());
+				} catch (IOException ex) {
+					soundfontFailure = true;
+				}
+			}
+
+			synth.setGain(sound.getGain() * 2.0f);
+			synth.setInterpolate(sound.getInterpolate().number());
+
+			return synth;
+		}
+
+		public void loaded(Fluidsynth loaded) {
+			if (audioDriverFailure != null) {
+				addProblem(Severity.ERROR, "audioDriver", audioDriverFailure);
+			}
+			if (soundfontFailure) {
+				addProblem(Severity.ERROR, "soundfont", "soundfontLoad",
+						sound.getSoundfont());
+			}
+
+			if (loaded == null) {
+				// retry on next update
+				clone = null;
+				return;
+			}
+
+			synth = loaded;
+
+			configureGain();
+			configureTunings();
+			configureReverb();
+			configureChorus();
+		}
+
+		public void discard(Fluidsynth loaded) {
+			if (loaded != null) {
+				loaded.destroy();
+			}
 		}
 	}
 }
@@ -0,0 +1,115 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.graph.gui.dock;
+
+import gj.model.Edge;
+import gj.model.Vertex;
+import gj.util.DefaultEdge;
+import gj.util.DefaultGraph;
+import gj.util.DefaultVertex;
+
+import java.awt.geom.Ellipse2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jorgan.disposition.Element;
+import jorgan.disposition.Reference;
+
+/**
+ * A graph of elements, reachable by references from a set of sources.
+ * <br>
+ * Ids and names of all elements are captured on construction, so the graph
+ * can be laid out without touching the disposition.
+ */
+class ElementGraph extends DefaultGraph {
+
+	private Map<Element, DefaultVertex<Element>> vertices = new LinkedHashMap<Element, DefaultVertex<Element>>();
+
+	private List<DefaultEdge<Element>> edges = new ArrayList<DefaultEdge<Element>>();
+
+	private Map<Vertex, Long> ids = new HashMap<Vertex, Long>();
+
+	private Map<Vertex, String> names = new HashMap<Vertex, String>();
+
+	public ElementGraph(Collection<Element> sources) {
+		super(null, new Ellipse2D.Double(-30, -20, 60, 40));
+
+		for (Element source : sources) {
+			vertex(source);
+		}
+	}
+
+	/**
+	 * Get the vertex for the given element, creating it and all vertices
+	 * reachable from it if not yet contained.
+	 */
+	private DefaultVertex<Element> vertex(Element element) {
+		DefaultVertex<Element> result = vertices.get(element);
+		if (result == null) {
+			result = new DefaultVertex<Element>(element);
+			vertices.put(element, result);
+			ids.put(result, element.getId());
+			names.put(result, name(element));
+
+			for (Reference<? extends Element> reference : element
+					.getReferences()) {
+				edges.add(new DefaultEdge<Element>(result, vertex(reference
+						.getElement())));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the id of the element of the given vertex.
+	 */
+	public Long getId(Vertex vertex) {
+		return ids.get(vertex);
+	}
+
+	/**
+	 * Get the name of the element of the given vertex, as it was when this
+	 * graph was created.
+	 */
+	public String getName(Vertex vertex) {
+		return names.get(vertex);
+	}
+
+	@Override
+	public Collection<? extends Edge> getEdges() {
+		return edges;
+	}
+
+	@Override
+	public Collection<? extends Vertex> getVertices() {
+		return vertices.values();
+	}
+
+	/**
+	 * create a non-empty name representation
+	 */
+	public static String name(Element element) {
+		return element.getName().length() > 0 ? element.getName() : element
+				.getClass().getSimpleName();
+	}
+}
@@ -0,0 +1,290 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.graph.gui.dock;
+
+import gj.geom.Path;
+import gj.layout.LayoutException;
+import gj.layout.graph.hierarchical.HierarchicalLayout;
+import gj.model.Edge;
+import gj.model.Vertex;
+import gj.util.DefaultLayoutContext;
+import gj.util.LayoutHelper;
+
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Layout of an {@link ElementGraph}, incremental to the last layout with the
+ * same key. <br>
+ * Vertices keep their previous positions unless they are new or their
+ * referrers have changed, only these are placed anew below their referrers. A
+ * full hierarchical layout is done if there is no previous layout or too many
+ * vertices have changed.
+ */
+class StructureLayout {
+
+	private static final double DISTANCE = 30;
+
+	/**
+	 * Share of changed vertices up to which the layout is incremental.
+	 */
+	private static final double INCREMENTAL = 0.25;
+
+	/**
+	 * Number of layouts to keep.
+	 */
+	private static final int CACHE = 8;
+
+	private static final Map<String, Snapshot> snapshots = new LinkedHashMap<String, Snapshot>(
+			16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+			return size() > CACHE;
+		}
+	};
+
+	private String key;
+
+	private ElementGraph graph;
+
+	/**
+	 * Layout the given graph.
+	 * 
+	 * @param key
+	 *            key of the last layout to be incremental to
+	 * @param graph
+	 *            graph to layout
+	 */
+	public StructureLayout(String key, ElementGraph graph) {
+		this.key = key;
+		this.graph = graph;
+	}
+
+	/**
+	 * Apply the layout.
+	 * 
+	 * @return the bounds of the graph
+	 */
+	public Rectangle apply() throws LayoutException {
+		Snapshot previous;
+		synchronized (snapshots) {
+			previous = snapshots.get(key);
+		}
+
+		Snapshot current = new Snapshot(graph);
+
+		Rectangle bounds;
+		if (previous == null) {
+			bounds = full();
+		} else {
+			Set<Vertex> moved = new HashSet<Vertex>();
+			for (Vertex vertex : graph.getVertices()) {
+				Node node = previous.nodes.get(graph.getId(vertex));
+				if (node == null
+						|| !node.referrers.equals(current.nodes.get(graph
+								.getId(vertex)).referrers)) {
+					moved.add(vertex);
+				}
+			}
+
+			if (moved.size() > graph.getVertices().size() * INCREMENTAL) {
+				bounds = full();
+			} else {
+				bounds = incremental(previous, moved);
+			}
+		}
+
+		current.record(graph);
+		synchronized (snapshots) {
+			snapshots.put(key, current);
+		}
+
+		return bounds;
+	}
+
+	private Rectangle full() throws LayoutException {
+		HierarchicalLayout layout = new HierarchicalLayout();
+		layout.setDistanceBetweenLayers(DISTANCE);
+		layout.setDistanceBetweenVertices(DISTANCE);
+		layout.setOrderOfVerticesInLayer(new Comparator<Vertex>() {
+			public int compare(Vertex v1, Vertex v2) {
+				return graph.getName(v1).compareTo(graph.getName(v2));
+			}
+		});
+		return layout.apply(graph, new DefaultLayoutContext()).getBounds();
+	}
+
+	private Rectangle incremental(Snapshot previous, Set<Vertex> moved) {
+		Map<Vertex, Point2D> placed = new HashMap<Vertex, Point2D>();
+
+		Rectangle2D all = null;
+		for (Vertex vertex : graph.getVertices()) {
+			if (!moved.contains(vertex)) {
+				Point2D position = previous.nodes.get(graph.getId(vertex)).position;
+				graph.setPositionOfVertex(vertex, position);
+				placed.put(vertex, position);
+
+				if (all == null) {
+					all = new Rectangle2D.Double(position.getX(), position
+							.getY(), 0, 0);
+				} else {
+					all.add(position);
+				}
+			}
+		}
+
+		for (Edge edge : graph.getEdges()) {
+			if (!moved.contains(edge.getStart())
+					&& !moved.contains(edge.getEnd())) {
+				Node node = previous.nodes.get(graph.getId(edge.getStart()));
+				Path path = node.paths.get(graph.getId(edge.getEnd()));
+				if (path != null) {
+					graph.setPathOfEdge(edge, path);
+				}
+			}
+		}
+
+		// vertices are in order of reachability, so referrers are mostly
+		// placed before
+		for (Vertex vertex : graph.getVertices()) {
+			if (moved.contains(vertex)) {
+				Point2D position = place(vertex, placed, all);
+				graph.setPositionOfVertex(vertex, position);
+				placed.put(vertex, position);
+
+				if (all == null) {
+					all = new Rectangle2D.Double(position.getX(), position
+							.getY(), 0, 0);
+				} else {
+					all.add(position);
+				}
+			}
+		}
+
+		return LayoutHelper.getBounds(graph).getBounds();
+	}
+
+	/**
+	 * Place a vertex in the layer below its referrers, as near as possible to
+	 * its neighbours.
+	 */
+	private Point2D place(Vertex vertex, Map<Vertex, Point2D> placed,
+			Rectangle2D all) {
+		Rectangle2D shape = graph.getShapeOfVertex(vertex).getBounds2D();
+		double width = shape.getWidth() + DISTANCE;
+		double height = shape.getHeight() + DISTANCE;
+
+		double y = Double.NaN;
+		double x = 0;
+		int referrers = 0;
+		for (Edge edge : graph.getEdges()) {
+			if (edge.getEnd() == vertex) {
+				Point2D position = placed.get(edge.getStart());
+				if (position != null) {
+					if (Double.isNaN(y) || position.getY() + height > y) {
+						y = position.getY() + height;
+					}
+					x += position.getX();
+					referrers++;
+				}
+			}
+		}
+
+		if (referrers > 0) {
+			x = x / referrers;
+		} else if (all == null) {
+			return new Point2D.Double(0, 0);
+		} else {
+			// new source at the top right
+			x = all.getMaxX() + width;
+			y = all.getMinY();
+		}
+
+		for (int offset = 0;; offset++) {
+			// alternate right and left of the wanted position
+			double candidate = x + ((offset + 1) / 2) * width
+					* (offset % 2 == 0 ? -1 : 1);
+			if (isFree(placed, candidate, y, width, height)) {
+				return new Point2D.Double(candidate, y);
+			}
+		}
+	}
+
+	private boolean isFree(Map<Vertex, Point2D> placed, double x, double y,
+			double width, double height) {
+		for (Point2D position : placed.values()) {
+			if (Math.abs(position.getX() - x) < width
+					&& Math.abs(position.getY() - y) < height) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A snapshot of a layout.
+	 */
+	private static class Snapshot {
+
+		private Map<Long, Node> nodes = new HashMap<Long, Node>();
+
+		public Snapshot(ElementGraph graph) {
+			for (Vertex vertex : graph.getVertices()) {
+				nodes.put(graph.getId(vertex), new Node());
+			}
+			for (Edge edge : graph.getEdges()) {
+				nodes.get(graph.getId(edge.getEnd())).referrers.add(graph
+						.getId(edge.getStart()));
+			}
+		}
+
+		/**
+		 * Record the current layout of the graph.
+		 */
+		public void record(ElementGraph graph) {
+			for (Vertex vertex : graph.getVertices()) {
+				nodes.get(graph.getId(vertex)).position = graph
+						.getPositionOfVertex(vertex);
+			}
+			for (Edge edge : graph.getEdges()) {
+				nodes.get(graph.getId(edge.getStart())).paths.put(graph
+						.getId(edge.getEnd()), graph.getPathOfEdge(edge));
+			}
+		}
+	}
+
+	/**
+	 * A node of a snapshot.
+	 */
+	private static class Node {
+
+		private Point2D position;
+
+		private Set<Long> referrers = new HashSet<Long>();
+
+		private Map<Long, Path> paths = new HashMap<Long, Path>();
+	}
+}
@@ -1,48 +1,53 @@
 package jorgan.graph.gui.dock;
 
-import gj.layout.LayoutException;
-import gj.layout.graph.hierarchical.HierarchicalLayout;
+import gj.geom.Path;
+import gj.layout.Graph2D;
 import gj.model.Edge;
 import gj.model.Vertex;
 import gj.ui.DefaultGraphRenderer;
 import gj.ui.GraphWidget;
-import gj.util.DefaultEdge;
-import gj.util.DefaultGraph;
-import gj.util.DefaultLayoutContext;
 import gj.util.DefaultVertex;
 import gj.util.EmptyGraph;
 
 import java.awt.Color;
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.awt.geom.Ellipse2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.swing.AbstractButton;
 import javax.swing.Icon;
 import javax.swing.JScrollPane;
 import javax.swing.JToggleButton;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import jorgan.disposition.Captor;
 import jorgan.disposition.Element;
 import jorgan.disposition.Elements;
 import jorgan.disposition.Keyboard;
-import jorgan.disposition.Reference;
 import jorgan.disposition.event.OrganAdapter;
-import jorgan.disposition.event.OrganListener;
+import jorgan.gui.EventBridge;
 import jorgan.gui.dock.AbstractView;
 import jorgan.gui.selection.ElementSelection;
 import jorgan.gui.selection.SelectionListener;
-import jorgan.play.OrganPlay;
-import jorgan.play.event.PlayListener;
 import jorgan.session.OrganSession;
 import jorgan.swing.button.ButtonGroup;
 import spin.Spin;
@@ -54,16 +59,48 @@ import bias.Configuration;
  */
 public class StructureView extends AbstractView {
 
+	private static Logger logger = Logger.getLogger(StructureView.class
+			.getName());
+
 	private static Configuration config = Configuration.getRoot().get(
 			StructureView.class);
 
+	/**
+	 * Delay of a rebuild after changes of the disposition.
+	 */
+	private static final int DELAY = 100;
+
+	/**
+	 * Number of visible vertices up to which texts, icons and arrows are
+	 * rendered.
+	 */
+	private static final int DETAIL = 250;
+
+	/**
+	 * The executor of layouts - a single thread, so subsequent layouts can
+	 * build on each other.
+	 */
+	private static final ExecutorService layouts = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable,
+							"jOrgan Structure Layout");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
 	private GraphWidget graphWidget;
 
+	private Timer timer;
+
+	private Relayout relayout;
+
 	private ListenerImpl listener = new ListenerImpl();
 
 	private OrganSession session = null;
 
-	private List<Element> selection = new ArrayList<Element>();
+	private Set<Element> selection = new HashSet<Element>();
 
 	private List<Class<? extends Element>> sources = new ArrayList<Class<? extends Element>>();
 
@@ -77,6 +114,59 @@ public class StructureView extends AbstractView {
 
 		graphWidget = new GraphWidget();
 		graphWidget.setRenderer(new DefaultGraphRenderer() {
+			/**
+			 * Render only vertices and edges intersecting the clip, without
+			 * details if too many of them are visible.
+			 */
+			@Override
+			public void render(Graph2D graph, Graphics2D g) {
+				Rectangle clip = g.getClipBounds();
+
+				List<Vertex> vertices = new ArrayList<Vertex>();
+				for (Vertex vertex : graph.getVertices()) {
+					if (intersects(clip, graph.getShapeOfVertex(vertex)
+							.getBounds2D(), graph.getPositionOfVertex(vertex))) {
+						vertices.add(vertex);
+					}
+				}
+				boolean detailed = vertices.size() <= DETAIL;
+
+				for (Edge edge : graph.getEdges()) {
+					Path path = graph.getPathOfEdge(edge);
+					Point2D position = graph.getPositionOfVertex(edge
+							.getStart());
+					if (intersects(clip, path.getBounds2D(), position)) {
+						if (detailed) {
+							renderEdge(graph, edge, g);
+						} else {
+							AffineTransform transform = g.getTransform();
+							g.setColor(getColor(edge));
+							g.translate(position.getX(), position.getY());
+							g.draw(path);
+							g.setTransform(transform);
+						}
+					}
+				}
+
+				for (Vertex vertex : vertices) {
+					if (detailed) {
+						renderVertex(graph, vertex, g);
+					} else {
+						g.setColor(getColor(vertex));
+						draw(graph.getShapeOfVertex(vertex), graph
+								.getPositionOfVertex(vertex), true, g);
+					}
+				}
+			}
+
+			private boolean intersects(Rectangle clip, Rectangle2D bounds,
+					Point2D position) {
+				return clip == null
+						|| clip.intersects(bounds.getX() + position.getX(),
+								bounds.getY() + position.getY(), bounds
+										.getWidth(), bounds.getHeight());
+			}
+
 			@Override
 			@SuppressWarnings( { "unchecked" })
 			protected Color getColor(Vertex vertex) {
@@ -111,12 +201,20 @@ public class StructureView extends AbstractView {
 			@Override
 			@SuppressWarnings( { "unchecked" })
 			protected String getText(Vertex vertex) {
-				return name(((DefaultVertex<Element>) vertex).getContent());
+				return ElementGraph.name(((DefaultVertex<Element>) vertex)
+						.getContent());
 			}
 		});
 
 		graphWidget.addMouseListener(listener);
 
+		timer = new Timer(DELAY, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				rebuild();
+			}
+		});
+		timer.setRepeats(false);
+
 		// prepare source buttons
 		sources.add(Captor.class);
 		sources.add(Keyboard.class);
@@ -163,10 +261,16 @@ public class StructureView extends AbstractView {
 
 		if (this.session != null) {
 			this.session.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(listener));
+					EventBridge.organ(listener));
 			this.session.lookup(ElementSelection.class).removeListener(
 					(SelectionListener) Spin.over(listener));
 
+			timer.stop();
+			if (relayout != null) {
+				relayout.cancel();
+				relayout = null;
+			}
+
 			graphWidget.setGraph2D(new EmptyGraph());
 		}
 
@@ -174,40 +278,31 @@ public class StructureView extends AbstractView {
 
 		if (this.session != null) {
 			this.session.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(listener));
+					EventBridge.organ(listener));
 			this.session.lookup(ElementSelection.class).addListener(
 					(SelectionListener) Spin.over(listener));
-			this.session.lookup(OrganPlay.class).addPlayerListener(
-					(PlayListener) Spin.over(listener));
 
 			rebuild();
 		}
 	}
 
 	/**
-	 * create a non-empty name representation
-	 */
-	private String name(Element element) {
-		return element.getName().length() > 0 ? element.getName() : element
-				.getClass().getSimpleName();
-	}
-
-	/**
-	 * find all sources
+	 * get the selected type of sources
 	 */
-	private Set<Element> sources() {
-
-		Class<? extends Element> sourcetype = null;
+	private Class<? extends Element> sourceType() {
 		for (int i = 0; i < sourcesToggles.size(); i++) {
 			if (sourcesToggles.get(i).isSelected()) {
-				sourcetype = sources.get(i);
-				break;
+				return sources.get(i);
 			}
 		}
-		if (sourcetype == null)
-			throw new IllegalArgumentException("no source type selected");
+		throw new IllegalArgumentException("no source type selected");
+	}
 
-		Set<Element> result = new HashSet<Element>();
+	/**
+	 * find all sources
+	 */
+	private List<Element> sources(Class<? extends Element> sourcetype) {
+		List<Element> result = new ArrayList<Element>();
 		for (Element element : session.getOrgan().getElements()) {
 			if (sourcetype.isAssignableFrom(element.getClass()))
 				result.add(element);
@@ -217,113 +312,118 @@ public class StructureView extends AbstractView {
 	}
 
 	/**
-	 * rebuild structure
+	 * rebuild structure after a delay, coalescing subsequent changes
+	 */
+	private void rebuildLater() {
+		if (isDocked()) {
+			timer.restart();
+		}
+	}
+
+	/**
+	 * rebuild structure, the layout is done in the background
 	 */
 	private void rebuild() {
 		if (!isDocked()) {
 			return;
 		}
+		timer.stop();
+
+		if (relayout != null) {
+			relayout.cancel();
+			relayout = null;
+		}
+
+		Class<? extends Element> sourcetype = sourceType();
 
 		// build an element graph on all sources
-		// TODO this is kinda bad to redo all over every time :)
-		ElementGraph graph = new ElementGraph(sources());
+		ElementGraph graph = new ElementGraph(sources(sourcetype));
 		if (graph.getVertices().isEmpty()) {
 			graphWidget.setGraph2D(new EmptyGraph());
 			return;
 		}
 
-		// collect all info
-		Rectangle bounds = new Rectangle();
-		try {
-			HierarchicalLayout a = new HierarchicalLayout();
-			a.setDistanceBetweenLayers(30);
-			a.setDistanceBetweenVertices(30);
-			a.setOrderOfVerticesInLayer(new ElementComparator());
-			bounds = a.apply(graph, new DefaultLayoutContext()).getBounds();
-		} catch (LayoutException e) {
-			// FIXME report something
-			e.printStackTrace();
-		}
-		graphWidget.setGraph2D(graph, bounds);
-
+		relayout = new Relayout(session.getFile().getPath() + "#"
+				+ sourcetype.getName(), graph);
+		relayout.start();
 	}
 
 	/**
-	 * our interpretation of sorted vertices in a layer
+	 * A layout of a graph in the background.
 	 */
-	private class ElementComparator implements Comparator<Vertex> {
-		@SuppressWarnings( { "unchecked" })
-		public int compare(Vertex v1, Vertex v2) {
-			Element e1 = ((DefaultVertex<Element>) v1).getContent();
-			Element e2 = ((DefaultVertex<Element>) v2).getContent();
-			return name(e1).compareTo(name(e2));
-		}
-	} // ElementComparator
+	private class Relayout implements Callable<Rectangle> {
 
-	/**
-	 * a filter action
-	 */
-	private class ElementFilter {
-		boolean isSelected;
+		private String key;
 
-		Class<? extends Element> type;
+		private ElementGraph graph;
 
-		ElementFilter(Class<? extends Element> type, boolean isSelected) {
-			this.type = type;
-			this.isSelected = isSelected;
-		}
-	} // ElementFilter
+		private FutureTask<Rectangle> future;
 
-	/**
-	 * a graph of elements
-	 */
-	private class ElementGraph extends DefaultGraph {
+		public Relayout(String key, ElementGraph graph) {
+			this.key = key;
+			this.graph = graph;
 
-		private Map<Element, DefaultVertex<Element>> vertices = new HashMap<Element, DefaultVertex<Element>>();
+			future = new FutureTask<Rectangle>(this) {
+				@Override
+				protected void done() {
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							publish();
+						}
+					});
+				}
+			};
+		}
 
-		private List<DefaultEdge<Element>> edges = new ArrayList<DefaultEdge<Element>>();
+		public void start() {
+			layouts.execute(future);
+		}
 
-		private ElementGraph(Set<Element> sources) {
-			super(null, new Ellipse2D.Double(-30, -20, 60, 40));
-			for (Element source : sources) {
-				DefaultVertex<Element> vertex = new DefaultVertex<Element>(
-						source);
-				vertices.put(source, vertex);
-				source2sink(vertex);
-			}
+		public void cancel() {
+			future.cancel(false);
 		}
 
-		private void source2sink(DefaultVertex<Element> from) {
+		public Rectangle call() throws Exception {
+			long start = System.currentTimeMillis();
 
-			for (Reference<? extends Element> reference : from.getContent()
-					.getReferences()) {
-				DefaultVertex<Element> to = vertex(reference.getElement());
-				edges.add(new DefaultEdge<Element>(from, to));
-				source2sink(to);
-			}
+			Rectangle bounds = new StructureLayout(key, graph).apply();
+
+			logger.log(Level.FINE, "layout of " + graph.getVertices().size()
+					+ " vertices in " + (System.currentTimeMillis() - start)
+					+ "ms");
 
+			return bounds;
 		}
 
-		private DefaultVertex<Element> vertex(Element element) {
-			DefaultVertex<Element> result = vertices.get(element);
-			if (result == null) {
-				result = new DefaultVertex<Element>(element);
-				vertices.put(element, result);
+		private void publish() {
+			if (future.isCancelled() || relayout != Relayout.this) {
+				return;
+			}
+			relayout = null;
+
+			try {
+				graphWidget.setGraph2D(graph, future.get());
+			} catch (ExecutionException e) {
+				logger.log(Level.WARNING, "layout failed", e.getCause());
+			} catch (InterruptedException e) {
+				throw new Error(e);
 			}
-			return result;
 		}
+	}
 
-		@Override
-		public Collection<? extends Edge> getEdges() {
-			return edges;
-		}
+	/**
+	 * a filter action
+	 */
+	private class ElementFilter {
+		boolean isSelected;
 
-		@Override
-		public Collection<? extends Vertex> getVertices() {
-			return vertices.values();
-		}
+		Class<? extends Element> type;
 
-	} // ElementGraph
+		ElementFilter(Class<? extends Element> type, boolean isSelected) {
+			this.type = type;
+			this.isSelected = isSelected;
+		}
+	} // ElementFilter
 
 	/**
 	 * our listener for organ events
@@ -332,8 +432,8 @@ public class StructureView extends AbstractView {
 			SelectionListener {
 
 		public void selectionChanged() {
-			selection = session.lookup(ElementSelection.class)
-					.getSelectedElements();
+			selection = new HashSet<Element>(session.lookup(
+					ElementSelection.class).getSelectedElements());
 
 			if (isDocked()) {
 				graphWidget.repaint();
@@ -342,17 +442,17 @@ public class StructureView extends AbstractView {
 
 		@Override
 		public void elementAdded(Element element) {
-			rebuild();
+			rebuildLater();
 		}
 
 		public void elementRemoved(Element element) {
-			rebuild();
+			rebuildLater();
 		}
 		
 		public void propertyChanged(Element element, String name) {
 			// rebuild graph if name has changed (a change in order of vertices)
 			if ("name".equals(name)) {
-				rebuild();
+				rebuildLater();
 			}
 		}
 
@@ -360,7 +460,7 @@ public class StructureView extends AbstractView {
 		public void indexedPropertyAdded(Element element, String name,
 				Object value) {
 			if (Element.REFERENCE.equals(name)) {
-				rebuild();
+				rebuildLater();
 			}
 		}
 
@@ -368,7 +468,7 @@ public class StructureView extends AbstractView {
 		public void indexedPropertyRemoved(Element element, String name,
 				Object value) {
 			if (Element.REFERENCE.equals(name)) {
-				rebuild();
+				rebuildLater();
 			}
 		}
 
@@ -40,6 +40,7 @@ import java.awt.event.MouseEvent;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -51,6 +52,7 @@ import javax.swing.JPopupMenu;
 import javax.swing.JViewport;
 import javax.swing.Scrollable;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.ToolTipManager;
 import javax.swing.border.LineBorder;
 import javax.swing.event.MouseInputAdapter;
@@ -62,10 +64,10 @@ import jorgan.disposition.Element;
 import jorgan.disposition.Elements;
 import jorgan.disposition.Reference;
 import jorgan.disposition.event.OrganAdapter;
-import jorgan.disposition.event.OrganListener;
 import jorgan.gui.console.ConsoleStack;
 import jorgan.gui.console.View;
 import jorgan.gui.console.ViewContainer;
+import jorgan.gui.console.ViewIndex;
 import jorgan.gui.console.spi.ViewRegistry;
 import jorgan.gui.construct.layout.StackVerticalLayout;
 import jorgan.gui.construct.layout.ViewLayout;
@@ -123,6 +125,21 @@ public class ConsolePanel extends JComponent
 	 */
 	private Map<Displayable, View<? extends Displayable>> viewsByDisplayable = new HashMap<Displayable, View<? extends Displayable>>();
 
+	/**
+	 * The spatial index of views.
+	 */
+	private ViewIndex index = new ViewIndex();
+
+	/**
+	 * Is the order of views in the index up to date.
+	 */
+	private boolean ordered;
+
+	/**
+	 * Dirty regions to repaint.
+	 */
+	private List<Rectangle> dirty = new ArrayList<Rectangle>();
+
 	/**
 	 * Currently constructing.
 	 */
@@ -195,7 +212,7 @@ public class ConsolePanel extends JComponent
 		}
 		this.session = session;
 		this.session.getOrgan()
-				.addOrganListener((OrganListener) Spin.over(eventHandler));
+				.addOrganListener(EventBridge.organ(eventHandler));
 		this.session.addListener((SessionListener) Spin.over(eventHandler));
 		this.session.lookup(ElementSelection.class).addListener(eventHandler);
 
@@ -259,7 +276,7 @@ public class ConsolePanel extends JComponent
 		this.session.lookup(ElementSelection.class)
 				.removeListener(eventHandler);
 		this.session.getOrgan()
-				.removeOrganListener((OrganListener) Spin.over(eventHandler));
+				.removeOrganListener(EventBridge.organ(eventHandler));
 		this.session.removeListener((SessionListener) Spin.over(eventHandler));
 		this.session = null;
 
@@ -451,12 +468,34 @@ public class ConsolePanel extends JComponent
 		session.lookup(ElementProblems.class).removeProblem(
 				new Problem(Severity.ERROR, console, "skin", null));
 
-		String skin = console.getSkin();
+		final String skin = console.getSkin();
 		if (skin == null) {
 			this.skin = null;
 		} else {
-			this.skin = session.lookup(SkinManager.class).getSkin(console);
+			// views fall back to default styles until the skin is prepared
+			this.skin = session.lookup(SkinManager.class).getSkin(console,
+					new Runnable() {
+						public void run() {
+							if (session != null
+									&& skin.equals(console.getSkin())) {
+								initSkin();
+								updateViews();
+							}
+						}
+					});
+		}
+	}
+
+	private void updateViews() {
+		consoleView.update();
+		for (View<? extends Displayable> view : viewsByDisplayable.values()) {
+			view.update();
+
+			index.put(view);
 		}
+
+		repaint();
+		revalidate();
 	}
 
 	protected View<? extends Displayable> getView(Displayable element) {
@@ -470,6 +509,9 @@ public class ConsolePanel extends JComponent
 		viewsByDisplayable.put(displayable, view);
 		view.setContainer(this);
 
+		index.put(view);
+		ordered = false;
+
 		repaint();
 		revalidate();
 	}
@@ -480,6 +522,8 @@ public class ConsolePanel extends JComponent
 		viewsByDisplayable.remove(element);
 		view.setContainer(null);
 
+		index.remove(view);
+
 		if (pressedView == view) {
 			pressedView = null;
 		}
@@ -537,6 +581,7 @@ public class ConsolePanel extends JComponent
 	 *            y position
 	 * @return element
 	 */
+	@SuppressWarnings("unchecked")
 	protected View<? extends Displayable> getView(int x, int y) {
 		// prefer selected
 		for (Element element : session.lookup(ElementSelection.class)
@@ -550,13 +595,12 @@ public class ConsolePanel extends JComponent
 			}
 		}
 
-		// iterate over elements from front to back
-		for (int r = console.getReferenceCount() - 1; r >= 0; r--) {
-			Displayable element = (Displayable) console.getReference(r)
-					.getElement();
-			View<? extends Displayable> view = getView(element);
-			if (view != null && view.contains(x, y)) {
-				return view;
+		// iterate over views from front to back
+		List<View<?>> views = getViews(new Rectangle(x, y, 1, 1));
+		for (int v = views.size() - 1; v >= 0; v--) {
+			View<?> view = views.get(v);
+			if (view.contains(x, y)) {
+				return (View<? extends Displayable>) view;
 			}
 		}
 		return null;
@@ -582,13 +626,90 @@ public class ConsolePanel extends JComponent
 		return new Dimension(x, y);
 	}
 
+	/**
+	 * Get the views intersecting the given area.
+	 * 
+	 * @return views from back to front
+	 */
+	private List<View<?>> getViews(Rectangle area) {
+		if (!ordered) {
+			List<View<?>> views = new ArrayList<View<?>>();
+			for (Reference<? extends Element> reference : console
+					.getReferences()) {
+				if (reference.getElement() instanceof Displayable) {
+					View<?> view = getView((Displayable) reference
+							.getElement());
+					if (view != null) {
+						views.add(view);
+					}
+				}
+			}
+			index.setOrder(views);
+
+			ordered = true;
+		}
+
+		return index.get(area);
+	}
+
+	/**
+	 * Repaint the given view - repaints following in the same event are merged
+	 * into minimal dirty regions, so views far apart don't cause a repaint of
+	 * everything in between.
+	 */
 	private void repaintView(View<? extends Displayable> view) {
-		int x1 = view.getX();
-		int y1 = view.getY();
-		int x2 = view.getX() + view.getWidth();
-		int y2 = view.getY() + view.getHeight();
+		if (view.getWidth() <= 0 || view.getHeight() <= 0) {
+			return;
+		}
+
+		if (dirty.isEmpty()) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					repaintDirty();
+				}
+			});
+		}
+
+		dirty.add(new Rectangle(view.getX(), view.getY(), view.getWidth(),
+				view.getHeight()));
+	}
+
+	private void repaintDirty() {
+		List<Rectangle> merged = new ArrayList<Rectangle>();
+		for (Rectangle rectangle : dirty) {
+			Rectangle current = rectangle;
+
+			boolean merging = true;
+			while (merging) {
+				merging = false;
+
+				Iterator<Rectangle> iterator = merged.iterator();
+				while (iterator.hasNext()) {
+					Rectangle other = iterator.next();
+
+					// merge if no larger than both
+					Rectangle union = other.union(current);
+					if (area(union) <= area(other) + area(current)) {
+						iterator.remove();
+						current = union;
+						merging = true;
+					}
+				}
+			}
+
+			merged.add(current);
+		}
+		dirty.clear();
+
+		if (isShowing()) {
+			for (Rectangle rectangle : merged) {
+				paintImmediately(rectangle);
+			}
+		}
+	}
 
-		repaint(x1, y1, x2 - x1, y2 - y1);
+	private static long area(Rectangle rectangle) {
+		return (long) rectangle.width * rectangle.height;
 	}
 
 	public Component getHost() {
@@ -644,26 +765,14 @@ public class ConsolePanel extends JComponent
 
 		consoleView.paint(g);
 
-		// iterate elements in order defined by console
+		// iterate views intersecting the clip in order defined by console
 		Rectangle clip = g.getClipBounds();
-		for (Displayable element : console.getReferenced(Displayable.class)) {
-			View<?> view = getView(element);
-			if (view != null) {
-				int x = view.getX();
-				int y = view.getY();
-				int width = view.getWidth();
-				int height = view.getHeight();
-
-				if ((clip.x + clip.width > x && clip.x < x + width)
-						&& (clip.y + clip.height > y && clip.y < y + height)) {
-
-					// clipping a scaled graphics corrupts the clip so don't do
-					// it
-					// g.clipRect(x, y, width, height);
-					view.paint(g);
-					// g.setClip(clip);
-				}
-			}
+		for (View<?> view : getViews(clip)) {
+			// clipping a scaled graphics corrupts the clip so don't do
+			// it
+			// g.clipRect(x, y, width, height);
+			view.paint(g);
+			// g.setClip(clip);
 		}
 	}
 
@@ -676,16 +785,11 @@ public class ConsolePanel extends JComponent
 		@Override
 		public void propertyChanged(Element element, String name) {
 			if (element == console) {
-				initSkin();
-
-				consoleView.update();
-				for (View<? extends Displayable> view : viewsByDisplayable
-						.values()) {
-					view.update();
+				if ("skin".equals(name)) {
+					initSkin();
 				}
 
-				repaint();
-				revalidate();
+				updateViews();
 
 				if (constructing) {
 					constructionHandler.updateSelection();
@@ -701,6 +805,7 @@ public class ConsolePanel extends JComponent
 					} else {
 						view.update(name);
 					}
+					index.put(view);
 
 					repaintView(view);
 				}
@@ -720,7 +825,14 @@ public class ConsolePanel extends JComponent
 				View<? extends Displayable> view = getView(
 						(Displayable) reference.getElement());
 				if (view != null) {
+					// location or order changed
+					repaintView(view);
+
 					view.update();
+					index.put(view);
+					ordered = false;
+
+					repaintView(view);
 
 					constructionHandler.updateSelection();
 				}
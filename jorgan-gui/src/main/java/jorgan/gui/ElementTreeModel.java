@@ -40,10 +40,14 @@ public class ElementTreeModel extends BaseTreeModel<Element> {
 		this.organ = organ;
 		this.comparator = comparator;
 
+		Set<Element> referenced = new HashSet<Element>();
+		for (Group group : organ.getElements(Group.class)) {
+			referenced.addAll(group.getReferenced(Element.class));
+		}
+
 		roots.clear();
 		for (Element element : elements) {
-			Set<Group> referrer = organ.getReferrer(element, Group.class);
-			if (referrer.isEmpty()) {
+			if (!referenced.contains(element)) {
 				roots.add(element);
 			}
 		}
@@ -54,6 +58,155 @@ public class ElementTreeModel extends BaseTreeModel<Element> {
 		fireRootsChanged();
 	}
 
+	/**
+	 * An element was added to the organ.
+	 */
+	public void addElement(Element element) {
+		Set<Group> groups = organ.getReferrer(element, Group.class);
+		if (groups.isEmpty()) {
+			insert(null, roots, element);
+		}
+		for (Group group : groups) {
+			addChild(group, element);
+		}
+
+		if (element instanceof Group) {
+			// children are grouped now
+			for (Element child : ((Group) element)
+					.getReferenced(Element.class)) {
+				remove(null, roots, child);
+			}
+		}
+	}
+
+	/**
+	 * An element was removed from the organ.
+	 */
+	public void removeElement(Element element) {
+		remove(null, roots, element);
+
+		for (Map.Entry<Group, List<Element>> entry : grouped.entrySet()) {
+			remove(entry.getKey(), entry.getValue(), element);
+		}
+		grouped.remove(element);
+
+		if (element instanceof Group) {
+			// children might no longer be grouped
+			for (Element child : ((Group) element)
+					.getReferenced(Element.class)) {
+				if (organ.containsElement(child)
+						&& organ.getReferrer(child, Group.class).isEmpty()
+						&& indexOf(roots, child) == -1) {
+					insert(null, roots, child);
+				}
+			}
+		}
+	}
+
+	/**
+	 * An element was referenced by a group.
+	 */
+	public void addChild(Group group, Element element) {
+		List<Element> children = grouped.get(group);
+		if (children != null && indexOf(children, element) == -1) {
+			insert(group, children, element);
+		}
+
+		remove(null, roots, element);
+	}
+
+	/**
+	 * An element is no longer referenced by a group.
+	 */
+	public void removeChild(Group group, Element element) {
+		List<Element> children = grouped.get(group);
+		if (children != null && !group.references(element)) {
+			remove(group, children, element);
+		}
+
+		if (organ.containsElement(element)
+				&& organ.getReferrer(element, Group.class).isEmpty()
+				&& indexOf(roots, element) == -1) {
+			insert(null, roots, element);
+		}
+	}
+
+	/**
+	 * The sort key of an element changed, so move it to its new position.
+	 */
+	public void moveElement(Element element) {
+		reposition(null, roots, element);
+
+		for (Map.Entry<Group, List<Element>> entry : grouped.entrySet()) {
+			reposition(entry.getKey(), entry.getValue(), element);
+		}
+	}
+
+	private void insert(Group parent, List<Element> elements, Element element) {
+		int index = Collections.binarySearch(elements, element, comparator);
+		if (index < 0) {
+			index = -index - 1;
+		}
+		elements.add(index, element);
+
+		fireNodeInserted(parent, index, element);
+	}
+
+	private void remove(Group parent, List<Element> elements, Element element) {
+		int index = indexOf(elements, element);
+		if (index != -1) {
+			elements.remove(index);
+
+			fireNodeRemoved(parent, index, element);
+		}
+	}
+
+	private void reposition(Group parent, List<Element> elements,
+			Element element) {
+		int index = indexOf(elements, element);
+		if (index != -1) {
+			elements.remove(index);
+
+			int newIndex = Collections.binarySearch(elements, element,
+					comparator);
+			if (newIndex < 0) {
+				newIndex = -newIndex - 1;
+			}
+			elements.add(newIndex, element);
+
+			if (index == newIndex) {
+				fireNodeChanged(element);
+			} else {
+				fireNodeRemoved(parent, index, element);
+				fireNodeInserted(parent, newIndex, element);
+			}
+		}
+	}
+
+	/**
+	 * Find an element by binary search, falling back to a linear search if
+	 * the sort key of the element has changed.
+	 */
+	private int indexOf(List<Element> elements, Element element) {
+		int index = Collections.binarySearch(elements, element, comparator);
+		if (index >= 0) {
+			for (int i = index; i >= 0
+					&& comparator.compare(elements.get(i), element) == 0; i--) {
+				if (elements.get(i) == element) {
+					return i;
+				}
+			}
+			for (int i = index + 1; i < elements.size()
+					&& comparator.compare(elements.get(i), element) == 0; i++) {
+				if (elements.get(i) == element) {
+					return i;
+				}
+			}
+		}
+
+		return elements.indexOf(element);
+	}
+
 	@Override
 	protected List<Element> getRoots() {
 		return roots;
@@ -0,0 +1,507 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.gui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.sound.midi.MidiMessage;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import jorgan.disposition.Element;
+import jorgan.disposition.event.OrganListener;
+import jorgan.play.event.PlayListener;
+
+/**
+ * A bridge of organ and play events onto the EDT.<br>
+ * Events fired on other threads are queued and delivered in batches, at most
+ * once per frame. Repeated property changes of an element are coalesced while
+ * queued. Events fired on the EDT are delivered immediately, after all queued
+ * events.<br>
+ * Bridged listeners are equal if their bridged listeners are identical, so a
+ * listener can be removed with a bridge created anew:
+ * 
+ * <pre>
+ * organ.addOrganListener(EventBridge.organ(listener));
+ * ...
+ * organ.removeOrganListener(EventBridge.organ(listener));
+ * </pre>
+ */
+public class EventBridge {
+
+	/**
+	 * Minimal milliseconds between two drains of the queue.
+	 */
+	private static final int FRAME = 20;
+
+	/**
+	 * Maximum count of recycled events.
+	 */
+	private static final int POOL = 1024;
+
+	private static final int ELEMENT_ADDED = 0;
+
+	private static final int ELEMENT_REMOVED = 1;
+
+	private static final int PROPERTY_CHANGED = 2;
+
+	private static final int INDEXED_PROPERTY_ADDED = 3;
+
+	private static final int INDEXED_PROPERTY_REMOVED = 4;
+
+	private static final int INDEXED_PROPERTY_CHANGED = 5;
+
+	private static final int RECEIVED = 6;
+
+	private static final int SENT = 7;
+
+	private static final Object lock = new Object();
+
+	private static final ArrayDeque<Event> queue = new ArrayDeque<Event>();
+
+	/**
+	 * Queued events which are subject to coalescing.
+	 */
+	private static final Set<Event> coalescable = new HashSet<Event>();
+
+	private static final ArrayDeque<Event> pool = new ArrayDeque<Event>();
+
+	private static boolean scheduled;
+
+	/**
+	 * Time of the first event queued since the last drain.
+	 */
+	private static long first;
+
+	private static long lastDrain;
+
+	private static final Runnable drainer = new Runnable() {
+		public void run() {
+			drain();
+		}
+	};
+
+	private static final Timer timer = new Timer(FRAME, new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+			drain();
+		}
+	});
+
+	static {
+		timer.setRepeats(false);
+	}
+
+	private static long posted;
+
+	private static long coalesced;
+
+	private static long drains;
+
+	private static int maxDepth;
+
+	private static long latency;
+
+	private static long maxLatency;
+
+	private static long totalLatency;
+
+	private EventBridge() {
+	}
+
+	/**
+	 * Bridge the given listener.
+	 * 
+	 * @param listener
+	 *            listener to bridge
+	 * @return bridged listener
+	 */
+	public static OrganListener organ(OrganListener listener) {
+		return new BridgedOrganListener(listener);
+	}
+
+	/**
+	 * Bridge the given listener.
+	 * 
+	 * @param listener
+	 *            listener to bridge
+	 * @return bridged listener
+	 */
+	public static PlayListener play(PlayListener listener) {
+		return new BridgedPlayListener(listener);
+	}
+
+	/**
+	 * Get the current metrics.
+	 */
+	public static Metrics getMetrics() {
+		synchronized (lock) {
+			return new Metrics();
+		}
+	}
+
+	private static void post(Object target, int type, Element element,
+			String name, Object value) {
+		Event event;
+		synchronized (lock) {
+			posted++;
+
+			event = pool.poll();
+			if (event == null) {
+				event = new Event();
+			}
+			event.init(target, type, element, name, value);
+
+			if (!SwingUtilities.isEventDispatchThread()) {
+				if (event.isCoalescable() && !coalescable.add(event)) {
+					coalesced++;
+					recycle(event);
+					return;
+				}
+
+				queue.add(event);
+				maxDepth = Math.max(maxDepth, queue.size());
+
+				if (!scheduled) {
+					scheduled = true;
+					first = System.currentTimeMillis();
+
+					long delay = lastDrain + FRAME - first;
+					if (delay <= 0) {
+						SwingUtilities.invokeLater(drainer);
+					} else {
+						timer.setInitialDelay((int) delay);
+						timer.restart();
+					}
+				}
+				return;
+			}
+		}
+
+		// keep order with queued events
+		drain();
+
+		try {
+			event.deliver();
+		} finally {
+			synchronized (lock) {
+				recycle(event);
+			}
+		}
+	}
+
+	private static void recycle(Event event) {
+		event.init(null, 0, null, null, null);
+
+		if (pool.size() < POOL) {
+			pool.add(event);
+		}
+	}
+
+	/**
+	 * Deliver all queued events.
+	 */
+	private static void drain() {
+		List<Event> events;
+		synchronized (lock) {
+			if (queue.isEmpty()) {
+				return;
+			}
+
+			events = new ArrayList<Event>(queue);
+			queue.clear();
+			coalescable.clear();
+			scheduled = false;
+
+			lastDrain = System.currentTimeMillis();
+			latency = lastDrain - first;
+			maxLatency = Math.max(maxLatency, latency);
+			totalLatency += latency;
+			drains++;
+		}
+
+		try {
+			for (Event event : events) {
+				try {
+					event.deliver();
+				} catch (RuntimeException ex) {
+					Thread thread = Thread.currentThread();
+					thread.getUncaughtExceptionHandler().uncaughtException(
+							thread, ex);
+				}
+			}
+		} finally {
+			synchronized (lock) {
+				for (Event event : events) {
+					recycle(event);
+				}
+			}
+		}
+	}
+
+	private static class Event {
+
+		private Object target;
+
+		private int type;
+
+		private Element element;
+
+		private String name;
+
+		private Object value;
+
+		public void init(Object target, int type, Element element, String name,
+				Object value) {
+			this.target = target;
+			this.type = type;
+			this.element = element;
+			this.name = name;
+			this.value = value;
+		}
+
+		public boolean isCoalescable() {
+			return type == PROPERTY_CHANGED
+					|| type == INDEXED_PROPERTY_CHANGED;
+		}
+
+		public void deliver() {
+			switch (type) {
+			case ELEMENT_ADDED:
+				((OrganListener) target).elementAdded(element);
+				break;
+			case ELEMENT_REMOVED:
+				((OrganListener) target).elementRemoved(element);
+				break;
+			case PROPERTY_CHANGED:
+				((OrganListener) target).propertyChanged(element, name);
+				break;
+			case INDEXED_PROPERTY_ADDED:
+				((OrganListener) target).indexedPropertyAdded(element, name,
+						value);
+				break;
+			case INDEXED_PROPERTY_REMOVED:
+				((OrganListener) target).indexedPropertyRemoved(element, name,
+						value);
+				break;
+			case INDEXED_PROPERTY_CHANGED:
+				((OrganListener) target).indexedPropertyChanged(element, name,
+						value);
+				break;
+			case RECEIVED:
+				((PlayListener) target).received(element, (MidiMessage) value);
+				break;
+			case SENT:
+				((PlayListener) target).sent(element, (MidiMessage) value);
+				break;
+			}
+		}
+
+		/**
+		 * Equal if targeting the same listener with an identical change.
+		 */
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof Event)) {
+				return false;
+			}
+
+			Event other = (Event) object;
+			return this.target == other.target && this.type == other.type
+					&& this.element == other.element
+					&& this.value == other.value
+					&& (this.name == null ? other.name == null : this.name
+							.equals(other.name));
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = System.identityHashCode(target);
+			hash = 31 * hash + type;
+			hash = 31 * hash + System.identityHashCode(element);
+			hash = 31 * hash + (name == null ? 0 : name.hashCode());
+			hash = 31 * hash + System.identityHashCode(value);
+			return hash;
+		}
+	}
+
+	private static class BridgedOrganListener implements OrganListener {
+
+		private OrganListener listener;
+
+		public BridgedOrganListener(OrganListener listener) {
+			this.listener = listener;
+		}
+
+		public void elementAdded(Element element) {
+			post(listener, ELEMENT_ADDED, element, null, null);
+		}
+
+		public void elementRemoved(Element element) {
+			post(listener, ELEMENT_REMOVED, element, null, null);
+		}
+
+		public void propertyChanged(Element element, String name) {
+			post(listener, PROPERTY_CHANGED, element, name, null);
+		}
+
+		public void indexedPropertyAdded(Element element, String name,
+				Object value) {
+			post(listener, INDEXED_PROPERTY_ADDED, element, name, value);
+		}
+
+		public void indexedPropertyRemoved(Element element, String name,
+				Object value) {
+			post(listener, INDEXED_PROPERTY_REMOVED, element, name, value);
+		}
+
+		public void indexedPropertyChanged(Element element, String name,
+				Object value) {
+			post(listener, INDEXED_PROPERTY_CHANGED, element, name, value);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof BridgedOrganListener
+					&& ((BridgedOrganListener) object).listener == listener;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(listener);
+		}
+	}
+
+	private static class BridgedPlayListener implements PlayListener {
+
+		private PlayListener listener;
+
+		public BridgedPlayListener(PlayListener listener) {
+			this.listener = listener;
+		}
+
+		public void received(Element element, MidiMessage message) {
+			post(listener, RECEIVED, element, null, message);
+		}
+
+		public void sent(Element element, MidiMessage message) {
+			post(listener, SENT, element, null, message);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof BridgedPlayListener
+					&& ((BridgedPlayListener) object).listener == listener;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(listener);
+		}
+	}
+
+	/**
+	 * Metrics of the bridge.
+	 */
+	public static class Metrics {
+
+		private long posted = EventBridge.posted;
+
+		private long coalesced = EventBridge.coalesced;
+
+		private long drains = EventBridge.drains;
+
+		private int depth = queue.size();
+
+		private int maxDepth = EventBridge.maxDepth;
+
+		private long latency = EventBridge.latency;
+
+		private long maxLatency = EventBridge.maxLatency;
+
+		private long totalLatency = EventBridge.totalLatency;
+
+		private Metrics() {
+		}
+
+		/**
+		 * Count of posted events.
+		 */
+		public long getPosted() {
+			return posted;
+		}
+
+		/**
+		 * Count of events coalesced into already queued events.
+		 */
+		public long getCoalesced() {
+			return coalesced;
+		}
+
+		/**
+		 * Count of drains of the queue.
+		 */
+		public long getDrains() {
+			return drains;
+		}
+
+		/**
+		 * Current count of queued events.
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		public int getMaxDepth() {
+			return maxDepth;
+		}
+
+		/**
+		 * Milliseconds from queuing to delivery of the first event of the
+		 * last drain.
+		 */
+		public long getLatency() {
+			return latency;
+		}
+
+		public long getMaxLatency() {
+			return maxLatency;
+		}
+
+		public long getAverageLatency() {
+			if (drains == 0) {
+				return 0;
+			}
+			return totalLatency / drains;
+		}
+
+		@Override
+		public String toString() {
+			return "posted " + posted + ", coalesced " + coalesced
+					+ ", drains " + drains + ", depth " + depth + "/"
+					+ maxDepth + ", latency " + getAverageLatency() + "/"
+					+ maxLatency + "ms";
+		}
+	}
+}
@@ -22,6 +22,7 @@ import java.io.File;
 
 import jorgan.disposition.Element;
 import jorgan.disposition.event.OrganAdapter;
+import jorgan.gui.search.SearchIndex;
 import jorgan.gui.selection.ElementSelection;
 import jorgan.gui.selection.SelectionListener;
 import jorgan.gui.shortcut.ShortcutHandler;
@@ -93,6 +94,8 @@ public class GUISessionProvider implements SessionProvider {
 			});
 
 			return selection;
+		} else if (clazz == SearchIndex.class) {
+			return new SearchIndex(session.getOrgan());
 		} else if (clazz == ShortcutHandler.class) {
 			final ShortcutHandler handler = new ShortcutHandler(session
 					.getOrgan());
@@ -297,6 +297,8 @@ public class OrganFrame extends JFrame implements SessionAware {
 			this.session.destroy();
 
 			this.session.removeListener((SessionListener) Spin.over(handler));
+
+			logger.log(Level.INFO, "event bridge " + EventBridge.getMetrics());
 		}
 
 		this.session = session;
@@ -366,8 +368,6 @@ public class OrganFrame extends JFrame implements SessionAware {
 	public boolean saveOrgan() {
 		try {
 			session.save();
-
-			showStatusMessage("organSaved");
 		} catch (IOException ex) {
 			logger.log(Level.INFO, "saving organ failed", ex);
 
@@ -560,7 +560,8 @@ public class OrganFrame extends JFrame implements SessionAware {
 		}
 
 		public void actionPerformed(ActionEvent ev) {
-			saveOrgan();
+			// save in the background, see EventHandler
+			session.saveLater();
 		}
 
 		public void onSession() {
@@ -678,6 +679,13 @@ public class OrganFrame extends JFrame implements SessionAware {
 
 		public void saved(File file) {
 			saveAction.onSession();
+
+			showStatusMessage("organSaved");
+		}
+
+		public void saveFailed(File file, IOException ex) {
+			showBoxMessage("saveIOException", MessageBox.OPTIONS_OK,
+					file.getName());
 		}
 
 		public void destroyed() {
@@ -42,7 +42,6 @@ import javax.swing.border.EmptyBorder;
 import jorgan.disposition.Console;
 import jorgan.disposition.Element;
 import jorgan.disposition.event.OrganAdapter;
-import jorgan.disposition.event.OrganListener;
 import jorgan.gui.console.ConsoleStack;
 import jorgan.gui.dock.AbstractEditor;
 import jorgan.gui.dock.AbstractView;
@@ -206,9 +205,9 @@ public class OrganPanel extends JPanel implements SessionAware, ConsoleStack {
 	public void setSession(OrganSession session) {
 		if (this.session != null) {
 			this.session.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(eventsListener));
+					EventBridge.organ(eventsListener));
 			this.session.lookup(OrganPlay.class).removePlayerListener(
-					(PlayListener) Spin.over(eventsListener));
+					EventBridge.play(eventsListener));
 			this.session.lookup(ElementProblems.class).removeListener(
 					(ProblemListener) Spin.over(eventsListener));
 			this.session.lookup(ElementSelection.class).removeListener(
@@ -246,9 +245,9 @@ public class OrganPanel extends JPanel implements SessionAware, ConsoleStack {
 			this.session.lookup(ElementProblems.class).addListener(
 					(ProblemListener) Spin.over(eventsListener));
 			this.session.lookup(OrganPlay.class).addPlayerListener(
-					(PlayListener) Spin.over(eventsListener));
+					EventBridge.play(eventsListener));
 			this.session.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(eventsListener));
+					EventBridge.organ(eventsListener));
 
 			for (Object key : views.getDockableKeys()) {
 				AbstractView view = (AbstractView) views.getDockable(key);
@@ -13,7 +13,7 @@ import javax.swing.SwingUtilities;
 import jorgan.disposition.Console;
 import jorgan.disposition.Element;
 import jorgan.disposition.event.OrganAdapter;
-import jorgan.disposition.event.OrganListener;
+import jorgan.gui.EventBridge;
 import jorgan.gui.FullScreen;
 import jorgan.gui.OrganFrame;
 import jorgan.problem.ElementProblems;
@@ -22,7 +22,6 @@ import jorgan.problem.Severity;
 import jorgan.session.OrganSession;
 import jorgan.session.SessionListener;
 import jorgan.swing.BaseAction;
-import spin.Spin;
 import bias.Configuration;
 import bias.util.MessageBuilder;
 
@@ -65,7 +64,7 @@ public class FullScreenAction extends BaseAction {
 			}
 		});
 		this.session.getOrgan().addOrganListener(
-				(OrganListener) Spin.over(new OrganAdapter() {
+				EventBridge.organ(new OrganAdapter() {
 
 					public void elementAdded(Element element) {
 						if (element instanceof Console) {
@@ -0,0 +1,200 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.gui.console;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A spatial index of {@link View}s - a grid of cells, each holding the views
+ * overlapping it.<br>
+ * Views are returned in their order from back to front.
+ */
+public class ViewIndex {
+
+	/**
+	 * Size of a cell in pixels.
+	 */
+	private static final int CELL = 128;
+
+	private Map<Long, List<View<?>>> cells = new HashMap<Long, List<View<?>>>();
+
+	private Map<View<?>, Rectangle> bounds = new HashMap<View<?>, Rectangle>();
+
+	private Map<View<?>, Integer> order = new HashMap<View<?>, Integer>();
+
+	private Comparator<View<?>> comparator = new Comparator<View<?>>() {
+		public int compare(View<?> view1, View<?> view2) {
+			return Integer.compare(getOrder(view1), getOrder(view2));
+		}
+	};
+
+	/**
+	 * Put a view, i.e. add it or update it for its current bounds.
+	 * 
+	 * @param view
+	 *            view to put
+	 */
+	public void put(View<?> view) {
+		Rectangle rectangle = new Rectangle(view.getX(), view.getY(),
+				view.getWidth(), view.getHeight());
+
+		Rectangle old = bounds.get(view);
+		if (rectangle.equals(old)) {
+			return;
+		}
+
+		if (old != null) {
+			unindex(view, old);
+		}
+		bounds.put(view, rectangle);
+		index(view, rectangle);
+	}
+
+	/**
+	 * Remove a view.
+	 * 
+	 * @param view
+	 *            view to remove
+	 */
+	public void remove(View<?> view) {
+		Rectangle old = bounds.remove(view);
+		if (old != null) {
+			unindex(view, old);
+		}
+		order.remove(view);
+	}
+
+	/**
+	 * Set the order of views.
+	 * 
+	 * @param views
+	 *            views from back to front
+	 */
+	public void setOrder(List<? extends View<?>> views) {
+		order.clear();
+		for (int v = 0; v < views.size(); v++) {
+			order.put(views.get(v), v);
+		}
+	}
+
+	/**
+	 * Get all views intersecting the given area.
+	 * 
+	 * @param area
+	 *            area to get views for
+	 * @return views from back to front
+	 */
+	public List<View<?>> get(Rectangle area) {
+		List<View<?>> views = new ArrayList<View<?>>();
+
+		int x1 = cell(area.x);
+		int y1 = cell(area.y);
+		int x2 = cell(area.x + area.width - 1);
+		int y2 = cell(area.y + area.height - 1);
+
+		// views might span several cells
+		Set<View<?>> found = null;
+		if (x1 != x2 || y1 != y2) {
+			found = new HashSet<View<?>>();
+		}
+
+		for (int x = x1; x <= x2; x++) {
+			for (int y = y1; y <= y2; y++) {
+				List<View<?>> cell = cells.get(key(x, y));
+				if (cell != null) {
+					for (View<?> view : cell) {
+						if (bounds.get(view).intersects(area)
+								&& (found == null || found.add(view))) {
+							views.add(view);
+						}
+					}
+				}
+			}
+		}
+
+		Collections.sort(views, comparator);
+
+		return views;
+	}
+
+	private int getOrder(View<?> view) {
+		Integer index = order.get(view);
+		if (index == null) {
+			return Integer.MAX_VALUE;
+		}
+		return index;
+	}
+
+	private void index(View<?> view, Rectangle rectangle) {
+		if (rectangle.isEmpty()) {
+			return;
+		}
+
+		for (int x = cell(rectangle.x); x <= cell(rectangle.x
+				+ rectangle.width - 1); x++) {
+			for (int y = cell(rectangle.y); y <= cell(rectangle.y
+					+ rectangle.height - 1); y++) {
+				Long key = key(x, y);
+				List<View<?>> cell = cells.get(key);
+				if (cell == null) {
+					cell = new ArrayList<View<?>>(4);
+					cells.put(key, cell);
+				}
+				cell.add(view);
+			}
+		}
+	}
+
+	private void unindex(View<?> view, Rectangle rectangle) {
+		if (rectangle.isEmpty()) {
+			return;
+		}
+
+		for (int x = cell(rectangle.x); x <= cell(rectangle.x
+				+ rectangle.width - 1); x++) {
+			for (int y = cell(rectangle.y); y <= cell(rectangle.y
+					+ rectangle.height - 1); y++) {
+				Long key = key(x, y);
+				List<View<?>> cell = cells.get(key);
+				if (cell != null) {
+					cell.remove(view);
+					if (cell.isEmpty()) {
+						cells.remove(key);
+					}
+				}
+			}
+		}
+	}
+
+	private static int cell(int coordinate) {
+		return Math.floorDiv(coordinate, CELL);
+	}
+
+	private static Long key(int x, int y) {
+		return ((long) x << 32) | (y & 0xffffffffL);
+	}
+}
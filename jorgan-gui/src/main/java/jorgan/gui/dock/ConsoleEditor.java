@@ -24,10 +24,9 @@ import jorgan.disposition.Console;
 import jorgan.disposition.Element;
 import jorgan.disposition.Elements;
 import jorgan.disposition.event.OrganAdapter;
-import jorgan.disposition.event.OrganListener;
 import jorgan.gui.ConsolePanel;
+import jorgan.gui.EventBridge;
 import jorgan.session.OrganSession;
-import spin.Spin;
 
 /**
  * Panel that manages views to display a console of an organ.
@@ -49,7 +48,7 @@ public class ConsoleEditor extends AbstractEditor {
 	public void setSession(OrganSession session) {
 		if (this.session != null) {
 			this.session.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(eventHandler));
+					EventBridge.organ(eventHandler));
 
 			setContent(null);
 			panel.dispose();
@@ -65,7 +64,7 @@ public class ConsoleEditor extends AbstractEditor {
 			updateTitle();
 
 			this.session.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(eventHandler));
+					EventBridge.organ(eventHandler));
 		}
 	}
 
@@ -28,11 +28,10 @@ import javax.swing.border.EmptyBorder;
 
 import jorgan.disposition.Element;
 import jorgan.disposition.event.OrganAdapter;
-import jorgan.disposition.event.OrganListener;
+import jorgan.gui.EventBridge;
 import jorgan.gui.selection.ElementSelection;
 import jorgan.gui.selection.SelectionListener;
 import jorgan.session.OrganSession;
-import spin.Spin;
 import bias.Configuration;
 
 /**
@@ -89,7 +88,7 @@ public class DescriptionView extends AbstractView {
 	public void setSession(OrganSession session) {
 		if (this.session != null) {
 			this.session.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(elementHandler));
+					EventBridge.organ(elementHandler));
 			this.session.lookup(ElementSelection.class).removeListener(
 					elementHandler);
 
@@ -101,7 +100,7 @@ public class DescriptionView extends AbstractView {
 
 		if (this.session != null) {
 			this.session.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(elementHandler));
+					EventBridge.organ(elementHandler));
 			this.session.lookup(ElementSelection.class).addListener(
 					elementHandler);
 
@@ -31,6 +31,7 @@ import javax.swing.JComponent;
 import javax.swing.JScrollPane;
 import javax.swing.JToggleButton;
 import javax.swing.JTree;
+import javax.swing.SwingUtilities;
 import javax.swing.TransferHandler;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
@@ -38,10 +39,11 @@ import javax.swing.event.TreeSelectionListener;
 import jorgan.disposition.Element;
 import jorgan.disposition.ElementNameComparator;
 import jorgan.disposition.Group;
+import jorgan.disposition.Reference;
 import jorgan.disposition.event.OrganAdapter;
-import jorgan.disposition.event.OrganListener;
 import jorgan.gui.ElementTreeCellRenderer;
 import jorgan.gui.ElementTreeModel;
+import jorgan.gui.EventBridge;
 import jorgan.gui.construct.CreateElementWizard;
 import jorgan.gui.construct.ElementTypeComparator;
 import jorgan.gui.selection.ElementSelection;
@@ -79,6 +81,12 @@ public class ElementsView extends AbstractView {
 
 	private boolean updating = false;
 
+	/**
+	 * Is a refresh of the tree pending, coalescing changes of a
+	 * {@link Compound}.
+	 */
+	private boolean refreshing = false;
+
 	/**
 	 * The handler of events.
 	 */
@@ -231,7 +239,7 @@ public class ElementsView extends AbstractView {
 
 		if (this.session != null) {
 			this.session.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(eventsHandler));
+					EventBridge.organ(eventsHandler));
 			this.session.lookup(ElementProblems.class).removeListener(
 					(ProblemListener) Spin.over(eventsHandler));
 			this.session.lookup(ElementSelection.class).removeListener(
@@ -246,7 +254,7 @@ public class ElementsView extends AbstractView {
 
 		if (this.session != null) {
 			this.session.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(eventsHandler));
+					EventBridge.organ(eventsHandler));
 			this.session.lookup(ElementProblems.class).addListener(
 					(ProblemListener) Spin.over(eventsHandler));
 			this.session.lookup(ElementSelection.class).addListener(
@@ -313,16 +321,26 @@ public class ElementsView extends AbstractView {
 		}
 
 		public void propertyChanged(Element element, String name) {
-			if ("name".equals(name)) {
-				initTree();
+			if ("name".equals(name) && !refreshLater()) {
+				updating = true;
+
+				model.moveElement(element);
+
+				updating = false;
 			}
 		}
 
 		@Override
 		public void indexedPropertyAdded(Element element, String name,
 				Object value) {
-			if (element instanceof Group) {
-				initTree();
+			if (element instanceof Group && Element.REFERENCE.equals(name)
+					&& !refreshLater()) {
+				updating = true;
+
+				model.addChild((Group) element, ((Reference<?>) value)
+						.getElement());
+
+				updating = false;
 
 				TreeUtils.expand(tree, element);
 			}
@@ -331,20 +349,65 @@ public class ElementsView extends AbstractView {
 		@Override
 		public void indexedPropertyRemoved(Element element, String name,
 				Object value) {
-			if (element instanceof Group) {
-				initTree();
+			if (element instanceof Group && Element.REFERENCE.equals(name)
+					&& !refreshLater()) {
+				updating = true;
+
+				model.removeChild((Group) element, ((Reference<?>) value)
+						.getElement());
+
+				updating = false;
 
 				TreeUtils.expand(tree, element);
 			}
 		}
 
 		public void elementAdded(Element element) {
-			initTree();
+			if (!refreshLater()) {
+				updating = true;
+
+				model.addElement(element);
+
+				updateSelection();
+
+				updating = false;
+			}
 		}
 
 		public void elementRemoved(Element element) {
-			initTree();
+			if (!refreshLater()) {
+				updating = true;
+
+				model.removeElement(element);
+
+				updating = false;
+			}
+		}
+	}
+
+	/**
+	 * Refresh the tree later if a {@link Compound} is running, so bulk
+	 * changes result in a single refresh only.
+	 * 
+	 * @return <code>true</code> if refreshed later
+	 */
+	private boolean refreshLater() {
+		if (!session.lookup(UndoManager.class).isCompounding()) {
+			return refreshing;
+		}
+
+		if (!refreshing) {
+			refreshing = true;
+
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					refreshing = false;
+
+					initTree();
+				}
+			});
 		}
+		return true;
 	}
 
 	private void initTree() {
@@ -51,6 +51,7 @@ import jorgan.disposition.Input.InputMessage;
 import jorgan.disposition.Message;
 import jorgan.disposition.Output.OutputMessage;
 import jorgan.disposition.event.OrganListener;
+import jorgan.gui.EventBridge;
 import jorgan.gui.MessageTableCellRenderer;
 import jorgan.gui.construct.CreateMessageWizard;
 import jorgan.gui.selection.ElementSelection;
@@ -66,7 +67,6 @@ import jorgan.swing.BaseAction;
 import jorgan.swing.table.BaseTableModel;
 import jorgan.swing.table.FormatterCellEditor;
 import jorgan.swing.table.TableUtils;
-import spin.Spin;
 import swingx.dnd.ObjectTransferable;
 import swingx.docking.Docked;
 import bias.Configuration;
@@ -245,7 +245,7 @@ public class MessagesView extends AbstractView {
 	public void setSession(OrganSession session) {
 		if (this.session != null) {
 			this.session.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(tableModel));
+					EventBridge.organ(tableModel));
 			this.session.lookup(ElementSelection.class).removeListener(
 					selectionHandler);
 		}
@@ -254,7 +254,7 @@ public class MessagesView extends AbstractView {
 
 		if (this.session != null) {
 			this.session.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(tableModel));
+					EventBridge.organ(tableModel));
 			this.session.lookup(ElementSelection.class).addListener(
 					selectionHandler);
 		}
@@ -23,23 +23,24 @@ import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.sound.midi.MidiMessage;
-import javax.sound.midi.ShortMessage;
 import javax.swing.JComponent;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JToggleButton;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
+import javax.swing.Timer;
 import javax.swing.ToolTipManager;
 import javax.swing.TransferHandler;
 import javax.swing.table.TableColumn;
 
 import jorgan.disposition.Element;
 import jorgan.gui.selection.ElementSelection;
+import jorgan.gui.selection.SelectionListener;
 import jorgan.midi.MessageUtils;
 import jorgan.play.OrganPlay;
 import jorgan.play.event.PlayListener;
@@ -48,19 +49,26 @@ import jorgan.swing.BaseAction;
 import jorgan.swing.table.BaseTableModel;
 import jorgan.swing.table.SimpleCellRenderer;
 import jorgan.swing.table.TableUtils;
-import spin.Spin;
 import swingx.docking.Docked;
 import bias.Configuration;
 import bias.util.MessageBuilder;
 
 /**
- * A monitor of MIDI messages.
+ * A monitor of MIDI messages.<br>
+ * Messages are captured into a fixed-capacity ring buffer on the thread
+ * they are played on, the table is updated at most once per frame and
+ * formats visible rows only.
  */
 public class MonitorView extends AbstractView {
 
 	private static final Configuration config = Configuration.getRoot().get(
 			MonitorView.class);
 
+	/**
+	 * Minimum milliseconds between updates of the table.
+	 */
+	private static final int FRAME = 20;
+
 	private static final Color[] colors = new Color[] {
 			new Color(255, 240, 240), // 0x80
 			new Color(240, 255, 240), // 0x90
@@ -73,11 +81,52 @@ public class MonitorView extends AbstractView {
 
 	private PlayListener listener = new InternalListener();
 
+	private SelectionListener selectionListener = new SelectionListener() {
+		public void selectionChanged() {
+			updateFilter();
+		}
+	};
+
 	private boolean skip;
 
 	private int max;
 
-	private List<Message> messages = new ArrayList<Message>();
+	/**
+	 * Bits of channels to capture.
+	 */
+	private int channels = 0xffff;
+
+	/**
+	 * Bits of channel statuses to capture, starting with 0x80.
+	 */
+	private int statuses = 0x7f;
+
+	private volatile boolean captureInput;
+
+	private volatile boolean captureOutput;
+
+	/**
+	 * Sorted ids of elements to capture, <code>null</code> for all elements.
+	 */
+	private volatile long[] filter;
+
+	private Messages messages;
+
+	/**
+	 * The first captured message shown in the table.
+	 */
+	private long shownFirst;
+
+	/**
+	 * The end of captured messages shown in the table.
+	 */
+	private long shownEnd;
+
+	private Timer timer = new Timer(FRAME, new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+			update();
+		}
+	});
 
 	private JTable table = new JTable();
 
@@ -85,6 +134,8 @@ public class MonitorView extends AbstractView {
 
 	private JToggleButton outputButton = new JToggleButton();
 
+	private JToggleButton filterButton = new JToggleButton();
+
 	private JToggleButton scrollLockButton = new JToggleButton();
 
 	private MessagesModel tableModel = new MessagesModel();
@@ -97,12 +148,36 @@ public class MonitorView extends AbstractView {
 	public MonitorView() {
 		config.read(this);
 
+		messages = new Messages(Math.max(1, max));
+
+		timer.setRepeats(false);
+
 		config.get("input").read(inputButton);
+		inputButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				captureInput = inputButton.isSelected();
+			}
+		});
 
 		config.get("output").read(outputButton);
+		outputButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				captureOutput = outputButton.isSelected();
+			}
+		});
+
+		config.get("filter").read(filterButton);
+		filterButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				updateFilter();
+			}
+		});
 
 		config.get("scrollLock").read(scrollLockButton);
 
+		captureInput = inputButton.isSelected();
+		captureOutput = outputButton.isSelected();
+
 		config.get("table").read(tableModel);
 		ToolTipManager.sharedInstance().registerComponent(table);
 		table.setModel(tableModel);
@@ -116,7 +191,7 @@ public class MonitorView extends AbstractView {
 				StringBuilder builder = new StringBuilder();
 
 				for (int row : table.getSelectedRows()) {
-					builder.append(messages.get(row));
+					builder.append(tableModel.getRow(row));
 					builder.append("\n");
 				}
 				clip.setContents(new StringSelection(builder.toString()), null);
@@ -125,7 +200,7 @@ public class MonitorView extends AbstractView {
 		TableUtils.addActionListener(table, new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
-				Message message = messages.get(table.getSelectedRow());
+				Message message = tableModel.getRow(table.getSelectedRow());
 
 				Element element;
 				try {
@@ -149,23 +224,29 @@ public class MonitorView extends AbstractView {
 
 			column.setCellRenderer(new MessageCellRenderer());
 		}
-		TableUtils.fixColumnWidth(table, 0, new Message(0, false,
-				new ShortMessage()));
+		TableUtils.fixColumnWidth(table, 0, new Message(0, 0, false,
+				Messages.pack(0x90, 64, 127), 3));
 	}
 
 	@Override
 	public void setSession(OrganSession session) {
 		if (this.session != null) {
-			this.session.lookup(OrganPlay.class).removePlayerListener(
-					(PlayListener) Spin.over(listener));
+			// captured directly, the table is updated per frame
+			this.session.lookup(OrganPlay.class)
+					.removePlayerListener(listener);
+			this.session.lookup(ElementSelection.class).removeListener(
+					selectionListener);
 		}
 
 		this.session = session;
 
 		if (this.session != null) {
-			this.session.lookup(OrganPlay.class).addPlayerListener(
-					(PlayListener) Spin.over(listener));
+			this.session.lookup(OrganPlay.class).addPlayerListener(listener);
+			this.session.lookup(ElementSelection.class).addListener(
+					selectionListener);
 		}
+
+		updateFilter();
 	}
 
 	@Override
@@ -173,19 +254,74 @@ public class MonitorView extends AbstractView {
 
 		docked.addTool(inputButton);
 		docked.addTool(outputButton);
+		docked.addTool(filterButton);
 		docked.addToolSeparator();
 		docked.addTool(scrollLockButton);
 		docked.addToolSeparator();
 		docked.addTool(new ClearAction());
 	}
 
+	private void updateFilter() {
+		if (session == null || !filterButton.isSelected()) {
+			filter = null;
+		} else {
+			List<Element> elements = session.lookup(ElementSelection.class)
+					.getSelectedElements();
+
+			long[] ids = new long[elements.size()];
+			for (int e = 0; e < ids.length; e++) {
+				ids[e] = elements.get(e).getId();
+			}
+			Arrays.sort(ids);
+
+			filter = ids;
+		}
+	}
+
 	/**
 	 * Clear this log.
 	 */
 	public void clear() {
 		messages.clear();
 
-		tableModel.fireTableDataChanged();
+		update();
+	}
+
+	/**
+	 * Update the table to the captured messages.
+	 */
+	private void update() {
+		long first;
+		long end;
+		synchronized (messages) {
+			first = messages.getFirst();
+			end = messages.getEnd();
+		}
+
+		if (first == shownFirst && end == shownEnd) {
+			return;
+		}
+
+		int deleted = (int) (Math.min(first, shownEnd) - shownFirst);
+		long previousEnd = shownEnd;
+
+		shownFirst = first;
+		shownEnd = end;
+
+		if (deleted > 0) {
+			tableModel.fireTableRowsDeleted(0, deleted - 1);
+		}
+		if (end > previousEnd) {
+			int from = (int) (Math.max(first, previousEnd) - first);
+			int to = (int) (end - first) - 1;
+			if (from <= to) {
+				tableModel.fireTableRowsInserted(from, to);
+			}
+
+			if (!scrollLockButton.isSelected()) {
+				table.scrollRectToVisible(table.getCellRect(to, 0, true));
+			}
+		}
 	}
 
 	public void setMax(int max) {
@@ -196,47 +332,151 @@ public class MonitorView extends AbstractView {
 		this.skip = skip;
 	}
 
+	public void setChannels(int channels) {
+		this.channels = channels;
+	}
+
+	public void setStatuses(int statuses) {
+		this.statuses = statuses;
+	}
+
 	private class InternalListener implements PlayListener {
 
 		@Override
 		public void received(Element element, MidiMessage message) {
-			if (!skip(message) && inputButton.isSelected()) {
-				add(element, true, message);
+			if (captureInput) {
+				capture(element, true, message);
 			}
 		}
 
 		@Override
 		public void sent(Element element, MidiMessage message) {
-			if (!skip(message) && outputButton.isSelected()) {
-				add(element, false, message);
+			if (captureOutput) {
+				capture(element, false, message);
 			}
 		}
 
-		private boolean skip(MidiMessage message) {
+		private void capture(Element element, boolean input,
+				MidiMessage message) {
 			int status = message.getStatus() & 0xff;
 
-			// skip everything greater System exclusive
-			return skip && status > 0xf0;
-		}
+			if (MessageUtils.isChannelStatus(status)) {
+				if ((statuses & (1 << ((status >> 4) - 8))) == 0
+						|| (channels & (1 << (status & 0x0f))) == 0) {
+					return;
+				}
+			} else if (skip && status > 0xf0) {
+				// skip everything greater System exclusive
+				return;
+			}
 
-		private void add(Element element, boolean input, MidiMessage message) {
-			messages.add(new Message(element.getId(), input, message));
-			int row = messages.size() - 1;
+			long[] filter = MonitorView.this.filter;
+			if (filter != null
+					&& Arrays.binarySearch(filter, element.getId()) < 0) {
+				return;
+			}
 
-			tableModel.fireTableRowsInserted(row, row);
+			byte[] bytes = message.getMessage();
+			int data1 = bytes.length > 1 ? bytes[1] & 0xff : 0;
+			int data2 = bytes.length > 2 ? bytes[2] & 0xff : 0;
 
-			if (!scrollLockButton.isSelected()) {
-				table.scrollRectToVisible(table.getCellRect(row, 0, true));
+			if (messages.add(System.currentTimeMillis(), element.getId(),
+					input, Messages.pack(status, data1, data2), message
+							.getLength())) {
+				timer.restart();
 			}
+		}
+	}
 
-			int over = messages.size() - max;
-			if (over > 0) {
-				for (int m = 0; m < over; m++) {
-					messages.remove(0);
-				}
+	/**
+	 * A ring buffer of captured messages, stored in primitive arrays.
+	 */
+	private static class Messages {
+
+		private final long[] times;
+
+		private final long[] ids;
+
+		private final boolean[] inputs;
+
+		private final int[] datas;
 
-				tableModel.fireTableRowsDeleted(0, over - 1);
+		private final int[] lengths;
+
+		/**
+		 * The first message not cleared.
+		 */
+		private long first;
+
+		/**
+		 * The end of added messages.
+		 */
+		private long end;
+
+		/**
+		 * Is an update pending.
+		 */
+		private boolean pending;
+
+		public Messages(int capacity) {
+			times = new long[capacity];
+			ids = new long[capacity];
+			inputs = new boolean[capacity];
+			datas = new int[capacity];
+			lengths = new int[capacity];
+		}
+
+		/**
+		 * Add a message.
+		 * 
+		 * @return whether an update has to be scheduled
+		 */
+		public synchronized boolean add(long time, long id, boolean input,
+				int data, int length) {
+			int index = (int) (end % times.length);
+
+			times[index] = time;
+			ids[index] = id;
+			inputs[index] = input;
+			datas[index] = data;
+			lengths[index] = length;
+
+			end++;
+
+			if (pending) {
+				return false;
 			}
+			pending = true;
+			return true;
+		}
+
+		public synchronized void clear() {
+			first = end;
+		}
+
+		/**
+		 * Get the first available message, marking the update as no longer
+		 * pending.
+		 */
+		public synchronized long getFirst() {
+			pending = false;
+
+			return Math.max(first, end - times.length);
+		}
+
+		public synchronized long getEnd() {
+			return end;
+		}
+
+		public synchronized Message get(long sequence) {
+			int index = (int) (sequence % times.length);
+
+			return new Message(times[index], ids[index], inputs[index],
+					datas[index], lengths[index]);
+		}
+
+		public static int pack(int status, int data1, int data2) {
+			return (status & 0xff) | (data1 & 0xff) << 8 | (data2 & 0xff) << 16;
 		}
 	}
 
@@ -247,12 +487,12 @@ public class MonitorView extends AbstractView {
 		}
 
 		public int getRowCount() {
-			return messages.size();
+			return (int) (shownEnd - shownFirst);
 		}
 
 		@Override
 		protected Message getRow(int rowIndex) {
-			return messages.get(rowIndex);
+			return messages.get(shownFirst + rowIndex);
 		}
 
 		@Override
@@ -261,59 +501,73 @@ public class MonitorView extends AbstractView {
 		}
 	}
 
-	private class Message {
-
-		private long id;
-
-		public final boolean input;
+	/**
+	 * A captured message, formatted on demand.
+	 */
+	private static class Message {
 
-		public final String channel;
+		private final long time;
 
-		public final String status;
+		private final long id;
 
-		public final String data1;
+		private final boolean input;
 
-		public final String data2;
+		private final int status;
 
-		public final int length;
+		private final int data1;
 
-		private final String description;
+		private final int data2;
 
-		private Color color;
+		private final int length;
 
-		public Message(long id, boolean input, MidiMessage message) {
+		public Message(long time, long id, boolean input, int data, int length) {
+			this.time = time;
 			this.id = id;
-
 			this.input = input;
+			this.status = data & 0xff;
+			this.data1 = (data >> 8) & 0xff;
+			this.data2 = (data >> 16) & 0xff;
+			this.length = length;
+		}
 
-			int status = message.getStatus();
+		public String getChannel() {
+			if (MessageUtils.isChannelStatus(status)) {
+				return String.valueOf(status & 0x0f);
+			}
+			return "-";
+		}
 
-			if (message instanceof ShortMessage) {
-				ShortMessage shortMessage = (ShortMessage) message;
+		public String getStatus() {
+			if (MessageUtils.isChannelStatus(status)) {
+				return String.valueOf(status & 0xf0);
+			}
+			return String.valueOf(status);
+		}
 
-				if (MessageUtils.isChannelStatus(status)) {
-					this.status = String.valueOf(status & 0xf0);
-					this.channel = String.valueOf(shortMessage.getChannel());
-				} else {
-					this.status = String.valueOf(status);
-					this.channel = "-";
-				}
+		public String getData1() {
+			if (isShort()) {
+				return String.valueOf(data1);
+			}
+			return "-";
+		}
 
-				this.data1 = String.valueOf(shortMessage.getData1());
-				this.data2 = String.valueOf(shortMessage.getData2());
-			} else {
-				this.status = String.valueOf(status);
-				this.data1 = "-";
-				this.data2 = "-";
-				this.channel = "-";
+		public String getData2() {
+			if (isShort()) {
+				return String.valueOf(data2);
 			}
-			this.length = message.getLength();
+			return "-";
+		}
 
-			this.description = buildDescription();
-			this.color = buildColor(status);
+		private boolean isShort() {
+			// neither system exclusive nor meta
+			return status != 0xf0 && status != 0xf7 && status != 0xff;
 		}
 
-		private String buildDescription() {
+		public String getDescription() {
+			String status = getStatus();
+			String data1 = getData1();
+			String data2 = getData2();
+
 			MessageBuilder builder = new MessageBuilder();
 
 			config.get(status + ">" + data1 + ">" + data2).read(builder);
@@ -323,10 +577,11 @@ public class MonitorView extends AbstractView {
 					config.get("" + status).read(builder);
 				}
 			}
-			return builder.build(status, data1, data2, length);
+			return String.format("%tT.%<tL %s", time, builder.build(status,
+					data1, data2, length));
 		}
 
-		public Color buildColor(int status) {
+		public Color getColor() {
 			if (status >= 0x80 && status < 0xf0) {
 				return colors[(status - 0x80) >> 4];
 			} else {
@@ -335,8 +590,8 @@ public class MonitorView extends AbstractView {
 		}
 
 		public String toString() {
-			return String.format("%s\t%s\t%s", this.status, this.data1,
-					this.data2);
+			return String.format("%s\t%s\t%s", getStatus(), getData1(),
+					getData2());
 		}
 	}
 
@@ -355,7 +610,7 @@ public class MonitorView extends AbstractView {
 			this.message = message;
 
 			if (!isSelected) {
-				setBackground(message.color);
+				setBackground(message.getColor());
 			}
 
 			switch (column) {
@@ -367,16 +622,16 @@ public class MonitorView extends AbstractView {
 				}
 				break;
 			case 1:
-				setText(message.channel);
+				setText(message.getChannel());
 				break;
 			case 2:
-				setText(message.status);
+				setText(message.getStatus());
 				break;
 			case 3:
-				setText(message.data1);
+				setText(message.getData1());
 				break;
 			case 4:
-				setText(message.data2);
+				setText(message.getData2());
 				break;
 			}
 		}
@@ -384,7 +639,7 @@ public class MonitorView extends AbstractView {
 		@Override
 		public String getToolTipText() {
 			if (message != null) {
-				return message.description;
+				return message.getDescription();
 			}
 			return null;
 		}
@@ -399,4 +654,4 @@ public class MonitorView extends AbstractView {
 			clear();
 		}
 	}
-}
\ No newline at end of file
+}
@@ -33,7 +33,7 @@ import bias.Configuration;
 import jorgan.disposition.Element;
 import jorgan.disposition.Elements;
 import jorgan.disposition.event.OrganAdapter;
-import jorgan.disposition.event.OrganListener;
+import jorgan.gui.EventBridge;
 import jorgan.gui.construct.editor.ElementAwareEditor;
 import jorgan.gui.construct.info.spi.BeanInfoSearchPathRegistry;
 import jorgan.gui.selection.ElementSelection;
@@ -42,7 +42,6 @@ import jorgan.gui.undo.Compound;
 import jorgan.gui.undo.UndoManager;
 import jorgan.session.OrganSession;
 import jorgan.swing.beans.PropertiesPanel;
-import spin.Spin;
 
 /**
  * Dockable shows the properties of elements.
@@ -112,7 +111,7 @@ public class PropertiesView extends AbstractView {
 			this.session.lookup(ElementSelection.class)
 					.removeListener(selectionHandler);
 			this.session.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(selectionHandler));
+					EventBridge.organ(selectionHandler));
 
 			selectionHandler.clearProperties();
 		}
@@ -123,7 +122,7 @@ public class PropertiesView extends AbstractView {
 			this.session.lookup(ElementSelection.class)
 					.addListener(selectionHandler);
 			this.session.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(selectionHandler));
+					EventBridge.organ(selectionHandler));
 
 			selectionHandler.updateProperties();
 		}
@@ -37,6 +37,7 @@ import javax.swing.JList;
 import javax.swing.JScrollPane;
 import javax.swing.JToggleButton;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
 import javax.swing.TransferHandler;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
@@ -47,6 +48,7 @@ import jorgan.disposition.Reference;
 import jorgan.disposition.event.OrganAdapter;
 import jorgan.disposition.event.OrganListener;
 import jorgan.gui.ElementListCellRenderer;
+import jorgan.gui.EventBridge;
 import jorgan.gui.construct.CreateReferencesWizard;
 import jorgan.gui.construct.ElementTypeComparator;
 import jorgan.gui.selection.ElementSelection;
@@ -58,7 +60,6 @@ import jorgan.swing.BaseAction;
 import jorgan.swing.button.ButtonGroup;
 import jorgan.swing.list.ListUtils;
 import jorgan.util.ComparatorChain;
-import spin.Spin;
 import swingx.dnd.ObjectTransferable;
 import swingx.docking.Docked;
 import bias.Configuration;
@@ -80,6 +81,12 @@ public class ReferencesView extends AbstractView {
 
 	private List<Item> items = new ArrayList<Item>();
 
+	/**
+	 * Is an update of references pending, coalescing changes of a
+	 * {@link Compound}.
+	 */
+	private boolean refreshing = false;
+
 	private EventHandler eventHandler = new EventHandler();
 
 	private AddAction addAction = new AddAction();
@@ -282,7 +289,7 @@ public class ReferencesView extends AbstractView {
 	public void setSession(OrganSession session) {
 		if (this.session != null) {
 			this.session.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(eventHandler));
+					EventBridge.organ(eventHandler));
 			this.session.lookup(ElementSelection.class).removeListener(
 					eventHandler);
 		}
@@ -291,7 +298,7 @@ public class ReferencesView extends AbstractView {
 
 		if (this.session != null) {
 			this.session.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(eventHandler));
+					EventBridge.organ(eventHandler));
 			this.session.lookup(ElementSelection.class).addListener(
 					eventHandler);
 		}
@@ -371,8 +378,8 @@ public class ReferencesView extends AbstractView {
 
 				if (getElement() != null
 						&& getReferencesModel().onReferenceChange(element,
-								reference)) {
-					updateReferences();
+								reference) && !refreshLater()) {
+					getReferencesModel().referenceAdded(element, reference);
 				}
 			}
 		}
@@ -385,8 +392,8 @@ public class ReferencesView extends AbstractView {
 
 				if (getElement() != null
 						&& getReferencesModel().onReferenceChange(element,
-								reference)) {
-					updateReferences();
+								reference) && !refreshLater()) {
+					getReferencesModel().referenceRemoved(reference);
 				}
 			}
 		}
@@ -398,13 +405,38 @@ public class ReferencesView extends AbstractView {
 				Reference<?> reference = (Reference<?>) value;
 				if (getElement() != null
 						&& getReferencesModel().onReferenceChange(element,
-								reference)) {
-					updateReferences();
+								reference) && !refreshLater()) {
+					getReferencesModel().referenceChanged(reference);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Update references later if a {@link Compound} is running, so bulk
+	 * changes result in a single update only.
+	 * 
+	 * @return <code>true</code> if updated later
+	 */
+	private boolean refreshLater() {
+		if (!session.lookup(UndoManager.class).isCompounding()) {
+			return refreshing;
+		}
+
+		if (!refreshing) {
+			refreshing = true;
+
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					refreshing = false;
+
+					updateReferences();
+				}
+			});
+		}
+		return true;
+	}
+
 	private abstract class ReferencesModel extends AbstractListModel implements
 			Comparator<Item> {
 
@@ -456,6 +488,64 @@ public class ReferencesView extends AbstractView {
 
 		public abstract void add(Item item, int index);
 
+		/**
+		 * A reference was added.
+		 */
+		public void referenceAdded(Element referrer, Reference<?> reference) {
+			Item item = new Item(referrer, reference);
+
+			int index;
+			if (sortByNameButton.isSelected() || sortByTypeButton.isSelected()) {
+				index = Collections.binarySearch(items, item, this);
+				if (index < 0) {
+					index = -index - 1;
+				}
+			} else {
+				index = getUnsortedIndex(item);
+			}
+			items.add(index, item);
+
+			fireIntervalAdded(this, index, index);
+		}
+
+		/**
+		 * A reference was removed.
+		 */
+		public void referenceRemoved(Reference<?> reference) {
+			int index = indexOf(reference);
+			if (index != -1) {
+				items.remove(index);
+
+				fireIntervalRemoved(this, index, index);
+			}
+		}
+
+		/**
+		 * A reference was changed.
+		 */
+		public void referenceChanged(Reference<?> reference) {
+			int index = indexOf(reference);
+			if (index != -1) {
+				fireContentsChanged(this, index, index);
+			}
+		}
+
+		private int indexOf(Reference<?> reference) {
+			for (int i = 0; i < items.size(); i++) {
+				if (items.get(i).getReference() == reference) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Get the index of an item if unsorted.
+		 */
+		protected int getUnsortedIndex(Item item) {
+			return items.size();
+		}
+
 		public abstract boolean onReferenceChange(Element element,
 				Reference<?> reference);
 
@@ -488,6 +578,13 @@ public class ReferencesView extends AbstractView {
 			return element == this.getElement();
 		}
 
+		@Override
+		protected int getUnsortedIndex(Item item) {
+			int index = getElement().getReferences().indexOf(
+					item.getReference());
+			return Math.max(0, Math.min(index, items.size()));
+		}
+
 		@Override
 		protected List<Item> createItems() {
 			List<Item> items = new ArrayList<Item>();
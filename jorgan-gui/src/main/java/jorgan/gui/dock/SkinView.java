@@ -46,7 +46,7 @@ import jorgan.disposition.Displayable;
 import jorgan.disposition.Element;
 import jorgan.disposition.Reference;
 import jorgan.disposition.event.OrganAdapter;
-import jorgan.disposition.event.OrganListener;
+import jorgan.gui.EventBridge;
 import jorgan.gui.console.View;
 import jorgan.gui.console.ViewContainer;
 import jorgan.gui.console.spi.ViewRegistry;
@@ -57,7 +57,6 @@ import jorgan.skin.Skin;
 import jorgan.skin.SkinManager;
 import jorgan.skin.Style;
 import jorgan.swing.BaseAction;
-import spin.Spin;
 import swingx.docking.Docked;
 import bias.Configuration;
 import bias.util.MessageBuilder;
@@ -114,14 +113,14 @@ public class SkinView extends AbstractView {
 			this.session.lookup(ElementSelection.class).removeListener(
 					eventHandler);
 			this.session.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(eventHandler));
+					EventBridge.organ(eventHandler));
 		}
 
 		this.session = session;
 
 		if (this.session != null) {
 			this.session.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(eventHandler));
+					EventBridge.organ(eventHandler));
 			this.session.lookup(ElementSelection.class).addListener(
 					eventHandler);
 		}
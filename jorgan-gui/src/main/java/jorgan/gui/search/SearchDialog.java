@@ -20,14 +20,12 @@ package jorgan.gui.search;
 
 import java.awt.Component;
 import java.awt.Window;
-import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.JDialog;
 import javax.swing.JFrame;
 
 import jorgan.disposition.Element;
-import jorgan.disposition.Elements;
 import jorgan.gui.ElementListCellRenderer;
 import jorgan.gui.selection.ElementSelection;
 import jorgan.session.OrganSession;
@@ -73,18 +71,7 @@ public class SearchDialog extends StandardDialog {
 		list = new FilterList<Element>(false, new ElementListCellRenderer()) {
 			@Override
 			protected List<Element> getItems(String filter) {
-				List<Element> elements = new ArrayList<Element>();
-
-				String name = filter.toLowerCase();
-				if (!name.isEmpty()) {
-					for (Element element : session.getOrgan().getElements()) {
-						if (Elements.getDisplayName(element).toLowerCase()
-								.contains(name)) {
-							elements.add(element);
-						}
-					}
-				}
-				return elements;
+				return session.lookup(SearchIndex.class).search(filter);
 			}
 
 			@Override
@@ -0,0 +1,408 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.gui.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jorgan.disposition.Element;
+import jorgan.disposition.Elements;
+import jorgan.disposition.Message;
+import jorgan.disposition.Organ;
+import jorgan.disposition.event.OrganListener;
+
+/**
+ * An index of the elements of an organ for searching, maintained from
+ * {@link OrganListener} events.<br>
+ * Names, types, referenced elements, descriptions and messages of elements
+ * are indexed by trigrams and by prefixes of their words, changed elements
+ * are indexed again lazily on the next search.
+ */
+public class SearchIndex {
+
+	private static final int NAME = 0;
+
+	private static final int TYPE = 1;
+
+	private static final int REFERENCES = 2;
+
+	private static final int DESCRIPTION = 3;
+
+	private static final int MESSAGES = 4;
+
+	/**
+	 * Weights of fields for ranking.
+	 */
+	private static final int[] WEIGHTS = { 16, 8, 4, 2, 2 };
+
+	private Organ organ;
+
+	private Map<Element, Entry> entries = new HashMap<Element, Entry>();
+
+	private Map<String, Set<Entry>> grams = new HashMap<String, Set<Entry>>();
+
+	private Set<Element> dirty = new HashSet<Element>();
+
+	private String lastQuery;
+
+	private List<Entry> lastResults;
+
+	public SearchIndex(Organ organ) {
+		this.organ = organ;
+
+		organ.addOrganListener(new OrganListener() {
+			public void elementAdded(Element element) {
+				changed(element);
+			}
+
+			public void elementRemoved(Element element) {
+				changed(element);
+			}
+
+			public void propertyChanged(Element element, String name) {
+				changed(element);
+
+				if ("name".equals(name)) {
+					// referrers index names of referenced elements
+					for (Element referrer : SearchIndex.this.organ
+							.getReferrer(element)) {
+						changed(referrer);
+					}
+				}
+			}
+
+			public void indexedPropertyAdded(Element element, String name,
+					Object value) {
+				changed(element);
+			}
+
+			public void indexedPropertyChanged(Element element, String name,
+					Object value) {
+				changed(element);
+			}
+
+			public void indexedPropertyRemoved(Element element, String name,
+					Object value) {
+				changed(element);
+			}
+		});
+
+		synchronized (this) {
+			dirty.addAll(organ.getElements());
+		}
+	}
+
+	private synchronized void changed(Element element) {
+		dirty.add(element);
+	}
+
+	/**
+	 * Search elements, ranked by relevance.<br>
+	 * All words of the query have to be matched, words shorter than three
+	 * characters match prefixes of words only.
+	 * 
+	 * @param query
+	 *            the query
+	 * @return matching elements
+	 */
+	public synchronized List<Element> search(String query) {
+		refresh();
+
+		String[] words = normalize(query).trim().split(" ");
+		if (words[0].isEmpty()) {
+			lastQuery = null;
+			lastResults = null;
+			return new ArrayList<Element>();
+		}
+
+		String normalized = join(words);
+
+		Iterable<Entry> candidates;
+		if (narrows(normalized)) {
+			// type-ahead narrows previous results
+			candidates = lastResults;
+		} else {
+			candidates = getCandidates(words);
+		}
+
+		String[] prefixes = new String[words.length];
+		String[] tokens = new String[words.length];
+		for (int w = 0; w < words.length; w++) {
+			prefixes[w] = " " + words[w];
+			tokens[w] = prefixes[w] + " ";
+		}
+
+		List<Hit> hits = new ArrayList<Hit>();
+		for (Entry entry : candidates) {
+			int score = entry.score(words, prefixes, tokens);
+			if (score > 0) {
+				hits.add(new Hit(entry, score));
+			}
+		}
+		Collections.sort(hits);
+
+		List<Entry> results = new ArrayList<Entry>(hits.size());
+		for (Hit hit : hits) {
+			results.add(hit.entry);
+		}
+
+		lastQuery = normalized;
+		lastResults = results;
+
+		List<Element> elements = new ArrayList<Element>(results.size());
+		for (Entry entry : results) {
+			elements.add(entry.element);
+		}
+		return elements;
+	}
+
+	/**
+	 * Does the given query narrow the last query, i.e. words are appended or
+	 * the last word is extended without turning from a prefix into a
+	 * substring match.
+	 */
+	private boolean narrows(String query) {
+		if (lastQuery == null) {
+			return false;
+		}
+
+		if (query.startsWith(lastQuery + " ")) {
+			return true;
+		}
+
+		String lastWord = lastQuery.substring(lastQuery.lastIndexOf(' ') + 1);
+		return query.startsWith(lastQuery)
+				&& query.indexOf(' ', lastQuery.length()) == -1
+				&& (lastWord.length() >= 3 || query.length()
+						- lastQuery.length() + lastWord.length() < 3);
+	}
+
+	/**
+	 * Get candidates for the given words, i.e. the entries of the rarest key
+	 * - candidates are verified by scoring.
+	 */
+	private Set<Entry> getCandidates(String[] words) {
+		Set<Entry> candidates = null;
+
+		for (String word : words) {
+			List<String> keys = new ArrayList<String>();
+			if (word.length() < 3) {
+				keys.add(" " + word);
+			} else {
+				for (int g = 0; g + 3 <= word.length(); g++) {
+					keys.add(word.substring(g, g + 3));
+				}
+			}
+
+			for (String key : keys) {
+				Set<Entry> entries = grams.get(key);
+				if (entries == null) {
+					return Collections.emptySet();
+				}
+
+				if (candidates == null || entries.size() < candidates.size()) {
+					candidates = entries;
+				}
+			}
+		}
+
+		return candidates;
+	}
+
+	/**
+	 * Index all changed elements again.
+	 */
+	private void refresh() {
+		if (dirty.isEmpty()) {
+			return;
+		}
+
+		for (Element element : dirty) {
+			Entry entry = entries.remove(element);
+			if (entry != null) {
+				for (String key : entry.keys) {
+					Set<Entry> set = grams.get(key);
+					set.remove(entry);
+					if (set.isEmpty()) {
+						grams.remove(key);
+					}
+				}
+			}
+
+			if (organ.containsElement(element)) {
+				entry = new Entry(element);
+				entries.put(element, entry);
+
+				for (String key : entry.keys) {
+					Set<Entry> set = grams.get(key);
+					if (set == null) {
+						set = new HashSet<Entry>();
+						grams.put(key, set);
+					}
+					set.add(entry);
+				}
+			}
+		}
+		dirty.clear();
+
+		lastQuery = null;
+		lastResults = null;
+	}
+
+	/**
+	 * Normalize the given text to lower case words separated by single
+	 * spaces, each preceded and followed by a space.
+	 */
+	private static String normalize(String text) {
+		StringBuilder builder = new StringBuilder(text.length() + 2);
+
+		builder.append(' ');
+		for (int c = 0; c < text.length(); c++) {
+			char character = Character.toLowerCase(text.charAt(c));
+			if (Character.isLetterOrDigit(character)) {
+				builder.append(character);
+			} else if (builder.charAt(builder.length() - 1) != ' ') {
+				builder.append(' ');
+			}
+		}
+		if (builder.charAt(builder.length() - 1) != ' ') {
+			builder.append(' ');
+		}
+
+		return builder.toString();
+	}
+
+	private static String join(String[] words) {
+		StringBuilder builder = new StringBuilder();
+		for (String word : words) {
+			if (builder.length() > 0) {
+				builder.append(' ');
+			}
+			builder.append(word);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * A scored entry, ordered by descending score and name.
+	 */
+	private static class Hit implements Comparable<Hit> {
+
+		private Entry entry;
+
+		private int score;
+
+		public Hit(Entry entry, int score) {
+			this.entry = entry;
+			this.score = score;
+		}
+
+		public int compareTo(Hit hit) {
+			if (score != hit.score) {
+				return hit.score - score;
+			}
+			return entry.fields[NAME].compareTo(hit.entry.fields[NAME]);
+		}
+	}
+
+	/**
+	 * The indexed fields of an element.
+	 */
+	private static class Entry {
+
+		private Element element;
+
+		private String[] fields = new String[5];
+
+		private Set<String> keys = new HashSet<String>();
+
+		public Entry(Element element) {
+			this.element = element;
+
+			fields[NAME] = normalize(Elements.getDisplayName(element));
+			fields[TYPE] = normalize(Elements.getDisplayName(element
+					.getClass()));
+
+			StringBuilder references = new StringBuilder();
+			for (Element referenced : element.getReferenced(Element.class)) {
+				references.append(Elements.getDisplayName(referenced));
+				references.append(' ');
+			}
+			fields[REFERENCES] = normalize(references.toString());
+
+			fields[DESCRIPTION] = normalize(element.getDescription());
+
+			StringBuilder messages = new StringBuilder();
+			for (Message message : element.getMessages()) {
+				messages.append(message.getTuple());
+				messages.append(' ');
+			}
+			fields[MESSAGES] = normalize(messages.toString());
+
+			for (String field : fields) {
+				for (int c = 0; c + 3 <= field.length(); c++) {
+					keys.add(field.substring(c, c + 3));
+
+					if (field.charAt(c) == ' ' && field.charAt(c + 1) != ' ') {
+						// prefix of a single character
+						keys.add(field.substring(c, c + 2));
+					}
+				}
+			}
+		}
+
+		/**
+		 * Score this entry for the given words, preceded by a space as
+		 * prefixes and also followed by a space as tokens.
+		 * 
+		 * @return score or <code>0</code> if a word is not matched
+		 */
+		public int score(String[] words, String[] prefixes, String[] tokens) {
+			int total = 0;
+
+			for (int w = 0; w < words.length; w++) {
+				int score = 0;
+				for (int f = 0; f < fields.length; f++) {
+					String field = fields[f];
+
+					if (field.contains(tokens[w])) {
+						score += WEIGHTS[f] * 3;
+					} else if (field.contains(prefixes[w])) {
+						score += WEIGHTS[f] * 2;
+					} else if (words[w].length() >= 3
+							&& field.contains(words[w])) {
+						score += WEIGHTS[f];
+					}
+				}
+
+				if (score == 0) {
+					return 0;
+				}
+				total += score;
+			}
+
+			return total;
+		}
+	}
+}
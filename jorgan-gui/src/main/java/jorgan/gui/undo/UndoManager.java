@@ -26,17 +26,28 @@ import jorgan.disposition.event.Change;
 import jorgan.disposition.event.OrganListener;
 import jorgan.disposition.event.OrganObserver;
 import jorgan.disposition.event.UndoableChange;
+import bias.Configuration;
 
 /**
- * A manager of {@link UndoableChange}s.
+ * A manager of {@link UndoableChange}s.<br>
+ * The history is bounded by the count of undos and redos and by an estimate
+ * of their memory, dropping the oldest first.
  */
 public class UndoManager {
 
+	private static Configuration config = Configuration.getRoot().get(
+			UndoManager.class);
+
+	/**
+	 * Estimated bytes of a single change.
+	 */
+	private static final int CHANGE_BYTES = 64;
+
 	private List<UndoListener> listeners = new ArrayList<UndoListener>();
 
-	private List<UndoableChange> undos = new ArrayList<UndoableChange>();
+	private List<CompoundChange> undos = new ArrayList<CompoundChange>();
 
-	private List<UndoableChange> redos = new ArrayList<UndoableChange>();
+	private List<CompoundChange> redos = new ArrayList<CompoundChange>();
 
 	private boolean allowCompound = false;
 
@@ -44,7 +55,17 @@ public class UndoManager {
 
 	private boolean undoing;
 
+	private int size = 100;
+
+	private int bytes = 8 * 1024 * 1024;
+
+	private int merge = 64;
+
+	private long estimate;
+
 	public UndoManager(Organ organ) {
+		config.read(this);
+
 		organ.addOrganObserver(new OrganObserver() {
 			public void onChange(Change change) {
 				if (change instanceof UndoableChange) {
@@ -54,6 +75,27 @@ public class UndoManager {
 		});
 	}
 
+	/**
+	 * Set the maximum count of undos and redos.
+	 */
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Set the maximum estimated bytes of undos and redos.
+	 */
+	public void setBytes(int bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Set the count of recent changes in a compound to merge a change with.
+	 */
+	public void setMerge(int merge) {
+		this.merge = merge;
+	}
+
 	public void addListener(UndoListener listener) {
 		listeners.add(listener);
 	}
@@ -67,23 +109,47 @@ public class UndoManager {
 	private void add(UndoableChange change) {
 		if (!undoing) {
 			if (allowCompound) {
-				UndoableChange previous = undos.remove(undos.size() - 1);
-				if (previous.replaces(change)) {
-					undos.add(previous);
-				} else {
-					undos.add(new CompoundChange(change, previous));
+				CompoundChange previous = undos.get(undos.size() - 1);
+				if (!previous.replaces(change, merge)) {
+					previous.add(change);
+					estimate += CHANGE_BYTES;
 				}
 			} else {
-				undos.add(change);
+				CompoundChange compound = new CompoundChange();
+				compound.add(change);
+				undos.add(compound);
+				estimate += compound.getBytes();
+
 				allowCompound = true;
 			}
 
+			for (CompoundChange redo : redos) {
+				estimate -= redo.getBytes();
+			}
 			redos.clear();
 
+			trim();
+
 			fireChange();
 		}
 	}
 
+	/**
+	 * Drop the oldest undos and redos, while the current compound is kept
+	 * in any case.
+	 */
+	private void trim() {
+		while (undos.size() + redos.size() > size || estimate > bytes) {
+			if (undos.size() > 1) {
+				estimate -= undos.remove(0).getBytes();
+			} else if (!redos.isEmpty()) {
+				estimate -= redos.remove(0).getBytes();
+			} else {
+				break;
+			}
+		}
+	}
+
 	private void fireChange() {
 		for (UndoListener listener : listeners) {
 			listener.done();
@@ -114,6 +180,15 @@ public class UndoManager {
 		allowCompound = false;
 	}
 
+	/**
+	 * Is a {@link Compound} currently running.
+	 * 
+	 * @see #compound(Compound)
+	 */
+	public boolean isCompounding() {
+		return compound != null;
+	}
+
 	public boolean canUndo() {
 		return !undos.isEmpty();
 	}
@@ -129,7 +204,7 @@ public class UndoManager {
 			try {
 				undoing = true;
 
-				UndoableChange change = undos.remove(undos.size() - 1);
+				CompoundChange change = undos.remove(undos.size() - 1);
 
 				redos.add(change);
 
@@ -148,7 +223,7 @@ public class UndoManager {
 		if (!redos.isEmpty()) {
 			try {
 				undoing = true;
-				UndoableChange change = redos.remove(redos.size() - 1);
+				CompoundChange change = redos.remove(redos.size() - 1);
 
 				undos.add(change);
 
@@ -161,35 +236,58 @@ public class UndoManager {
 		}
 	}
 
+	/**
+	 * A flat compound of changes, undone in reverse order.
+	 */
 	private static class CompoundChange implements UndoableChange {
-		private UndoableChange change1;
 
-		private UndoableChange change2;
+		private UndoableChange[] changes = new UndoableChange[4];
 
-		public CompoundChange(UndoableChange change1, UndoableChange change2) {
-			this.change1 = change1;
-			this.change2 = change2;
+		private int count;
+
+		public void add(UndoableChange change) {
+			if (count == changes.length) {
+				UndoableChange[] temp = new UndoableChange[count * 2];
+				System.arraycopy(changes, 0, temp, 0, count);
+				changes = temp;
+			}
+			changes[count++] = change;
+		}
+
+		public long getBytes() {
+			return (long) count * CHANGE_BYTES;
 		}
 
 		public void notify(OrganListener listener) {
 		}
 
 		public void undo() {
-			change1.undo();
-			change2.undo();
+			for (int c = count - 1; c >= 0; c--) {
+				changes[c].undo();
+			}
 		}
 
 		public void redo() {
-			change2.redo();
-			change1.redo();
+			for (int c = 0; c < count; c++) {
+				changes[c].redo();
+			}
 		}
 
 		public boolean replaces(UndoableChange change) {
-			if (change1.replaces(change)) {
-				return true;
-			}
+			return replaces(change, count);
+		}
 
-			return change2.replaces(change);
+		/**
+		 * Let one of the given count of recent changes replace the given
+		 * change.
+		 */
+		public boolean replaces(UndoableChange change, int recent) {
+			for (int c = count - 1; c >= 0 && c >= count - recent; c--) {
+				if (changes[c].replaces(change)) {
+					return true;
+				}
+			}
+			return false;
 		}
 	}
-}
\ No newline at end of file
+}
@@ -18,17 +18,19 @@
  */
 package jorgan.skin;
 
+import java.awt.Component;
 import java.awt.Graphics2D;
-import java.awt.Image;
 import java.awt.Insets;
 import java.io.IOException;
 import java.net.URL;
 
-import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
 
 import jorgan.disposition.Displayable;
 import jorgan.gui.console.View;
+import jorgan.gui.console.ViewContainer;
 import jorgan.swing.ImageCache;
+import jorgan.swing.ImageCache.CachedImage;
 
 /**
  * An image layer.
@@ -41,7 +43,13 @@ public class ImageLayer extends Layer {
 
 	private Insets border = new Insets(0, 0, 0, 0);
 
-	private transient Image image;
+	private transient CachedImage image;
+
+	/**
+	 * The scale of {@link #image}, differing from <code>1.0</code> while the
+	 * original image is drawn until the scaled one is prepared.
+	 */
+	private transient float imageScale;
 
 	public String getFile() {
 		return file;
@@ -69,7 +77,7 @@ public class ImageLayer extends Layer {
 	 */
 	@Override
 	protected int calcHeight() {
-		return image.getHeight(null);
+		return Math.max(1, Math.round(image.getHeight() * imageScale));
 	}
 
 	/**
@@ -79,24 +87,68 @@ public class ImageLayer extends Layer {
 	 */
 	@Override
 	protected int calcWidth() {
-		return image.getWidth(null);
+		return Math.max(1, Math.round(image.getWidth() * imageScale));
 	}
 
 	@Override
 	public void setView(View<? extends Displayable> view) {
 		super.setView(view);
 
-		URL url = resolve(file);
+		final URL url = resolve(file);
 		if (url != null) {
+			final float scale = view.getScale();
 			try {
-				image = ImageCache.getImage(url, view.getScale());
+				image = ImageCache.getCachedImage(url, scale);
+				if (image == null) {
+					// draw original until scaled image is prepared
+					image = ImageCache.getImage(url);
+					imageScale = scale;
+
+					ImageCache.prepareImage(url, scale, new Runnable() {
+						public void run() {
+							SwingUtilities.invokeLater(new Runnable() {
+								public void run() {
+									onPrepared(url, scale);
+								}
+							});
+						}
+					});
+				} else {
+					imageScale = 1.0f;
+				}
 				return;
 			} catch (IOException useMissingIcon) {
 			}
 		}
 
-		image = new ImageIcon(getClass().getResource("img/missing.gif"))
-				.getImage();
+		try {
+			image = ImageCache.getImage(getClass().getResource(
+					"img/missing.gif"));
+			imageScale = 1.0f;
+		} catch (IOException ex) {
+			throw new Error(ex);
+		}
+	}
+
+	private void onPrepared(URL url, float scale) {
+		if (view == null || view.getScale() != scale
+				|| !url.equals(resolve(file))) {
+			// outdated
+			return;
+		}
+
+		CachedImage scaled = ImageCache.getCachedImage(url, scale);
+		if (scaled != null) {
+			image = scaled;
+			imageScale = 1.0f;
+
+			ViewContainer container = view.getContainer();
+			if (container != null) {
+				Component host = container.getHost();
+				host.repaint(view.getX(), view.getY(), view.getWidth(), view
+						.getHeight());
+			}
+		}
 	}
 
 	@Override
@@ -149,9 +201,15 @@ public class ImageLayer extends Layer {
 		}
 	}
 
-	protected void drawImage(Graphics2D g, Image image, int dx1, int dy1,
-			int dx2, int dy2, int sx1, int sy1, int sx2, int sy2) {
-		g.drawImage(image, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null);
+	protected void drawImage(Graphics2D g, CachedImage image, int dx1,
+			int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2) {
+		if (imageScale != 1.0f) {
+			sx1 = Math.round(sx1 / imageScale);
+			sy1 = Math.round(sy1 / imageScale);
+			sx2 = Math.round(sx2 / imageScale);
+			sy2 = Math.round(sy2 / imageScale);
+		}
+		image.draw(g, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2);
 	}
 
 	@Override
@@ -23,16 +23,33 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import javax.swing.SwingUtilities;
+
 import jorgan.disposition.Console;
+import jorgan.disposition.Displayable;
 import jorgan.io.SkinStream;
 import jorgan.problem.ElementProblems;
 import jorgan.problem.Problem;
 import jorgan.problem.Severity;
+import jorgan.swing.FontCache;
 import jorgan.swing.ImageCache;
 import jorgan.util.IOUtils;
 import bias.Configuration;
@@ -43,13 +60,47 @@ import bias.util.MessageBuilder;
  */
 public abstract class SkinManager {
 
+	private static Logger logger = Logger.getLogger(SkinManager.class
+			.getName());
+
 	private static Configuration config = Configuration.getRoot().get(
 			SkinManager.class);
 
 	private static final String SKIN_FILE = "skin.xml";
 
+	/**
+	 * Loaders of skins, each preparing a single skin.
+	 */
+	private static final ExecutorService loaders = Executors
+			.newCachedThreadPool(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "jOrgan Skin Loader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	/**
+	 * Workers shared by all loaders, so images and fonts are decoded in
+	 * parallel.
+	 */
+	private static final ExecutorService workers = Executors
+			.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new ThreadFactory() {
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable,
+									"jOrgan Skin Worker");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+
 	private Map<String, Skin> skins = new HashMap<String, Skin>();
 
+	private Map<String, Preparation> preparations = new HashMap<String, Preparation>();
+
+	private boolean destroyed;
+
 	private ElementProblems problems;
 
 	private boolean flushImagesOnClose;
@@ -64,6 +115,14 @@ public abstract class SkinManager {
 		this.flushImagesOnClose = flushImages;
 	}
 
+	/**
+	 * Get the skin of the given console, waiting for a preparation of the
+	 * skin in progress.
+	 * 
+	 * @param console
+	 *            console to get skin for
+	 * @return skin or <code>null</code>
+	 */
 	public Skin getSkin(Console console) {
 		if (console == null) {
 			throw new IllegalArgumentException("console must not be null");
@@ -82,7 +141,12 @@ public abstract class SkinManager {
 		}
 
 		try {
-			skin = loadSkin(resolve(console.getSkin()));
+			Preparation preparation = preparations.get(console.getSkin());
+			if (preparation == null) {
+				skin = loadSkin(resolve(console.getSkin()));
+			} else {
+				skin = preparation.await();
+			}
 			skins.put(console.getSkin(), skin);
 		} catch (IOException e) {
 			problems.addProblem(new Problem(Severity.ERROR, console, "skin",
@@ -92,6 +156,54 @@ public abstract class SkinManager {
 		return skin;
 	}
 
+	/**
+	 * Get the skin of the given console if already loaded - otherwise the
+	 * skin is prepared in the background, i.e. its images and fonts are
+	 * decoded and scaled for the console.
+	 * 
+	 * @param console
+	 *            console to get skin for
+	 * @param ready
+	 *            callback on the EDT when the skin was prepared
+	 * @return skin or <code>null</code> if not yet prepared
+	 */
+	public Skin getSkin(Console console, Runnable ready) {
+		if (console == null) {
+			throw new IllegalArgumentException("console must not be null");
+		}
+
+		problems.removeProblem(new Problem(Severity.ERROR, console, "skin",
+				null));
+
+		if (console.getSkin() == null) {
+			return null;
+		}
+
+		Skin skin = skins.get(console.getSkin());
+		if (skin != null) {
+			return skin;
+		}
+
+		Preparation preparation = preparations.get(console.getSkin());
+		if (preparation == null) {
+			File file;
+			try {
+				file = resolve(console.getSkin());
+			} catch (IOException e) {
+				problems.addProblem(new Problem(Severity.ERROR, console,
+						"skin", createMessage("skinLoad", console.getSkin())));
+				return null;
+			}
+
+			preparation = new Preparation(console.getSkin(), file);
+			preparations.put(console.getSkin(), preparation);
+			preparation.start();
+		}
+		preparation.add(console, ready);
+
+		return null;
+	}
+
 	protected abstract File resolve(String skin) throws IOException;
 
 	protected String createMessage(String key, Object... args) {
@@ -204,8 +316,215 @@ public abstract class SkinManager {
 	}
 
 	public void destroy() {
+		destroyed = true;
+
+		for (Preparation preparation : preparations.values()) {
+			preparation.cancel();
+		}
+		preparations.clear();
+
 		if (flushImagesOnClose) {
 			ImageCache.flush();
+			FontCache.flush();
+		}
+	}
+
+	/**
+	 * The preparation of a skin in the background.
+	 */
+	private class Preparation implements Callable<Skin> {
+
+		private String name;
+
+		private File file;
+
+		private FutureTask<Skin> future;
+
+		private Map<Console, Runnable> readies = new HashMap<Console, Runnable>();
+
+		private Map<String, Set<Float>> scales = new HashMap<String, Set<Float>>();
+
+		public Preparation(String name, File file) {
+			this.name = name;
+			this.file = file;
+
+			future = new FutureTask<Skin>(this) {
+				@Override
+				protected void done() {
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							publish();
+						}
+					});
+				}
+			};
+		}
+
+		public void start() {
+			loaders.execute(future);
+		}
+
+		public void cancel() {
+			future.cancel(false);
+		}
+
+		/**
+		 * Add a console waiting for this preparation, its elements' scales
+		 * are considered if not yet started.
+		 */
+		public void add(Console console, Runnable ready) {
+			readies.put(console, ready);
+
+			float consoleScale = Math.max(Displayable.MIN_ZOOM, console
+					.getZoom());
+			addScale(console.getStyle(), consoleScale);
+			for (Displayable displayable : console
+					.getReferenced(Displayable.class)) {
+				addScale(displayable.getStyle(), Math.max(
+						Displayable.MIN_ZOOM, displayable.getZoom())
+						* consoleScale);
+			}
+		}
+
+		private void addScale(String style, float scale) {
+			if (style != null) {
+				synchronized (scales) {
+					Set<Float> set = scales.get(style);
+					if (set == null) {
+						set = new HashSet<Float>();
+						scales.put(style, set);
+					}
+					set.add(scale);
+				}
+			}
+		}
+
+		private Set<Float> getScales(String style) {
+			synchronized (scales) {
+				Set<Float> set = scales.get(style);
+				if (set == null) {
+					return new HashSet<Float>();
+				}
+				return new HashSet<Float>(set);
+			}
+		}
+
+		/**
+		 * Wait for this preparation.
+		 */
+		public Skin await() throws IOException {
+			try {
+				return future.get();
+			} catch (InterruptedException ex) {
+				throw new IOException(ex);
+			} catch (ExecutionException ex) {
+				if (ex.getCause() instanceof IOException) {
+					throw (IOException) ex.getCause();
+				}
+				throw new IOException(ex.getCause());
+			}
+		}
+
+		public Skin call() throws Exception {
+			long start = System.currentTimeMillis();
+
+			Skin skin = loadSkin(file);
+
+			long loaded = System.currentTimeMillis();
+
+			// resolve in this thread only, skin is not thread-safe
+			final Set<URL> fonts = new LinkedHashSet<URL>();
+			final Map<URL, Set<Float>> images = new HashMap<URL, Set<Float>>();
+			for (Style style : skin.createStyles()) {
+				collect(style, getScales(style.getName()), images, fonts);
+			}
+
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+			for (final URL url : fonts) {
+				tasks.add(new Callable<Object>() {
+					public Object call() throws Exception {
+						return FontCache.getFont(url);
+					}
+				});
+			}
+			for (final Map.Entry<URL, Set<Float>> entry : images.entrySet()) {
+				tasks.add(new Callable<Object>() {
+					public Object call() throws Exception {
+						URL url = entry.getKey();
+						try {
+							ImageCache.getImage(url);
+							for (float scale : entry.getValue()) {
+								ImageCache.getImage(url, scale);
+							}
+						} catch (IOException ex) {
+							// will show as missing
+						}
+						return null;
+					}
+				});
+			}
+			workers.invokeAll(tasks);
+
+			long prepared = System.currentTimeMillis();
+
+			logger.log(Level.INFO, "skin '" + name + "' loaded in "
+					+ (loaded - start) + "ms, " + images.size()
+					+ " images and " + fonts.size() + " fonts prepared in "
+					+ (prepared - loaded) + "ms");
+
+			return skin;
+		}
+
+		private void collect(Layer layer, Set<Float> scales,
+				Map<URL, Set<Float>> images, Set<URL> fonts) {
+			if (layer instanceof ImageLayer) {
+				URL url = layer.resolve(((ImageLayer) layer).getFile());
+				if (url != null) {
+					Set<Float> set = images.get(url);
+					if (set == null) {
+						set = new HashSet<Float>();
+						images.put(url, set);
+					}
+					set.addAll(scales);
+				}
+			} else if (layer instanceof TextLayer) {
+				TextLayer text = (TextLayer) layer;
+				if (text.getFont() != null) {
+					URL url = layer.resolve(text.getFont().getName());
+					if (url != null) {
+						fonts.add(url);
+					}
+				}
+			} else if (layer instanceof CompositeLayer) {
+				for (Layer child : ((CompositeLayer) layer).getChildren()) {
+					collect(child, scales, images, fonts);
+				}
+			}
+		}
+
+		private void publish() {
+			if (destroyed || future.isCancelled()
+					|| preparations.get(name) != Preparation.this) {
+				return;
+			}
+			preparations.remove(name);
+
+			try {
+				skins.put(name, await());
+			} catch (IOException e) {
+				logger.log(Level.FINE, "skin '" + name + "' failed", e);
+
+				// consoles keep their default styles
+				for (Console console : readies.keySet()) {
+					problems.addProblem(new Problem(Severity.ERROR, console,
+							"skin", createMessage("skinLoad", name)));
+				}
+				return;
+			}
+
+			for (Runnable ready : readies.values()) {
+				ready.run();
+			}
 		}
 	}
-}
\ No newline at end of file
+}
@@ -34,7 +34,7 @@ public class FontCache {
 
 	private static Map<String, Reference<Font>> fonts = new HashMap<String, Reference<Font>>();
 
-	private static Font get(String key) {
+	private static synchronized Font get(String key) {
 		Reference<Font> reference = fonts.get(key);
 		if (reference != null) {
 			return reference.get();
@@ -42,14 +42,14 @@ public class FontCache {
 		return null;
 	}
 
-	private static void put(String key, Font font) {
+	private static synchronized void put(String key, Font font) {
 		fonts.put(key, new SoftReference<Font>(font));
 	}
 
 	/**
 	 * Flush all cached fonts.
 	 */
-	public static void flush() {
+	public static synchronized void flush() {
 		fonts.clear();
 	}
 
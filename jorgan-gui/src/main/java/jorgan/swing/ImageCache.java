@@ -18,6 +18,7 @@
  */
 package jorgan.swing;
 
+import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
 import java.awt.GraphicsConfiguration;
 import java.awt.GraphicsDevice;
@@ -26,40 +27,241 @@ import java.awt.RenderingHints;
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.imageio.ImageIO;
 
+import bias.Configuration;
+
 /**
- * A cache of images.
+ * A cache of images, bounded by the bytes of all cached images and evicting
+ * the least recently used ones first.<br>
+ * Scaled images can be prepared in the background, small ones are optionally
+ * packed into atlases shared by all images of equal scale - each page of an
+ * atlas counts completely against the bound and is dropped as soon as all its
+ * images are evicted.
  */
 public class ImageCache {
 
-	private static Map<String, Reference<BufferedImage>> images = new HashMap<String, Reference<BufferedImage>>();
+	private static Logger logger = Logger.getLogger(ImageCache.class
+			.getName());
+
+	private static Configuration config = Configuration.getRoot().get(
+			ImageCache.class);
+
+	/**
+	 * Marker scale for original images.
+	 */
+	private static final float ORIGINAL = 0.0f;
+
+	private static final int ATLAS_SIZE = 1024;
+
+	private static final ImageCache instance = new ImageCache();
+
+	/**
+	 * Workers scaling images in the background.
+	 */
+	private static final ExecutorService scalers = Executors
+			.newFixedThreadPool(Math.max(1, Runtime.getRuntime()
+					.availableProcessors() - 1), new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "jOrgan Image Scaler");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+
+	private int size = 64 * 1024 * 1024;
+
+	private boolean atlas = false;
+
+	private int atlasLimit = 64;
+
+	private LinkedHashMap<Key, CachedImage> images = new LinkedHashMap<Key, CachedImage>(
+			16, 0.75f, true);
+
+	private long bytes;
+
+	private Map<Float, Atlas> atlases = new HashMap<Float, Atlas>();
+
+	private Map<Key, List<Runnable>> pending = new HashMap<Key, List<Runnable>>();
+
+	private ImageCache() {
+		config.read(this);
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public boolean getAtlas() {
+		return atlas;
+	}
+
+	public void setAtlas(boolean atlas) {
+		this.atlas = atlas;
+	}
+
+	public int getAtlasLimit() {
+		return atlasLimit;
+	}
+
+	public void setAtlasLimit(int atlasLimit) {
+		this.atlasLimit = atlasLimit;
+	}
+
+	private synchronized CachedImage get(Key key) {
+		return images.get(key);
+	}
+
+	private synchronized CachedImage put(Key key, BufferedImage image) {
+		CachedImage cached = images.get(key);
+		if (cached != null) {
+			// scaled concurrently
+			return cached;
+		}
+
+		if (atlas && key.scale != ORIGINAL
+				&& image.getWidth() <= atlasLimit
+				&& image.getHeight() <= atlasLimit) {
+			Atlas atlas = atlases.get(key.scale);
+			if (atlas == null) {
+				atlas = new Atlas();
+				atlases.put(key.scale, atlas);
+			}
+			cached = atlas.pack(image);
+		} else {
+			cached = new CachedImage(image, 0, 0, image.getWidth(), image
+					.getHeight());
+		}
+
+		images.put(key, cached);
+		added(cached);
 
-	private static BufferedImage get(String key) {
-		Reference<BufferedImage> reference = images.get(key);
-		if (reference != null) {
-			return reference.get();
+		Iterator<CachedImage> iterator = images.values().iterator();
+		while (bytes > size && images.size() > 1) {
+			CachedImage evicted = iterator.next();
+			iterator.remove();
+			removed(evicted);
+		}
+
+		return cached;
+	}
+
+	private void added(CachedImage cached) {
+		if (cached.page == null) {
+			bytes += cached.getBytes();
+		} else if (cached.page.regions++ == 0) {
+			bytes += cached.page.getBytes();
+		}
+	}
+
+	private void removed(CachedImage cached) {
+		if (cached.page == null) {
+			bytes -= cached.getBytes();
+		} else if (--cached.page.regions == 0) {
+			bytes -= cached.page.getBytes();
+
+			cached.page.atlas.drop(cached.page);
 		}
-		return null;
 	}
 
-	private static void put(String key, BufferedImage image) {
-		Reference<BufferedImage> reference = new SoftReference<BufferedImage>(
-				image);
-		images.put(key, reference);
+	private synchronized void clear() {
+		images.clear();
+		atlases.clear();
+		bytes = 0;
+	}
+
+	private void prepareImage(final Key key, final URL url, Runnable ready) {
+		synchronized (this) {
+			if (images.containsKey(key)) {
+				ready.run();
+				return;
+			}
+
+			List<Runnable> readies = pending.get(key);
+			if (readies != null) {
+				readies.add(ready);
+				return;
+			}
+
+			readies = new ArrayList<Runnable>();
+			readies.add(ready);
+			pending.put(key, readies);
+		}
+
+		scalers.execute(new Runnable() {
+			public void run() {
+				try {
+					getImage(url, key.scale);
+				} catch (IOException ex) {
+					logger.log(Level.FINE, "cannot prepare image " + url, ex);
+				} finally {
+					List<Runnable> readies;
+					synchronized (ImageCache.this) {
+						readies = pending.remove(key);
+					}
+					for (Runnable ready : readies) {
+						ready.run();
+					}
+				}
+			}
+		});
 	}
 
 	/**
 	 * Flush all cached images.
 	 */
 	public static void flush() {
-		images.clear();
+		instance.clear();
+	}
+
+	/**
+	 * Get the bytes of all cached images, including complete atlas pages.
+	 * 
+	 * @return bytes
+	 */
+	public static long getBytes() {
+		synchronized (instance) {
+			return instance.bytes;
+		}
+	}
+
+	/**
+	 * Get an original image for the given URL.
+	 * 
+	 * @param url
+	 *            url to get image for
+	 * @return image
+	 */
+	public static CachedImage getImage(URL url) throws IOException {
+		Key key = new Key(url, ORIGINAL);
+
+		CachedImage image = instance.get(key);
+		if (image == null) {
+			BufferedImage read = ImageIO.read(url);
+			if (read == null) {
+				throw new IOException("unsupported image " + url);
+			}
+			image = instance.put(key, read);
+		}
+		return image;
 	}
 
 	/**
@@ -71,29 +273,46 @@ public class ImageCache {
 	 *            scale
 	 * @return image
 	 */
-	public static BufferedImage getImage(URL url, float scale)
+	public static CachedImage getImage(URL url, float scale)
 			throws IOException {
-		String key = "" + scale + ":" + url.toString();
+		Key key = new Key(url, scale);
 
-		BufferedImage image = get(key);
+		CachedImage image = instance.get(key);
 		if (image == null) {
-			image = deriveImage(getImage(url), scale);
-			put(key, image);
+			image = instance.put(key, deriveImage(getImage(url), scale));
 		}
 		return image;
 	}
 
-	private static BufferedImage getImage(URL url) throws IOException {
-		String key = url.toString();
-		BufferedImage image = get(key);
-		if (image == null) {
-			image = ImageIO.read(url);
-			put(key, image);
-		}
-		return image;
+	/**
+	 * Get an already cached image for the given URL.
+	 * 
+	 * @param url
+	 *            url to get image for
+	 * @param scale
+	 *            scale
+	 * @return image or <code>null</code> if not cached
+	 */
+	public static CachedImage getCachedImage(URL url, float scale) {
+		return instance.get(new Key(url, scale));
 	}
 
-	private static BufferedImage deriveImage(BufferedImage image, float scale) {
+	/**
+	 * Prepare an image for the given URL in the background.
+	 * 
+	 * @param url
+	 *            url to prepare image for
+	 * @param scale
+	 *            scale
+	 * @param ready
+	 *            callback when the image is prepared (or failed to), called
+	 *            from a background thread unless already cached
+	 */
+	public static void prepareImage(URL url, float scale, Runnable ready) {
+		instance.prepareImage(new Key(url, scale), url, ready);
+	}
+
+	private static BufferedImage deriveImage(CachedImage image, float scale) {
 		int scaledWidth = Math.max(1, Math.round(image.getWidth() * scale));
 		int scaledHeight = Math.max(1, Math.round(image.getHeight() * scale));
 
@@ -104,7 +323,8 @@ public class ImageCache {
 				RenderingHints.VALUE_RENDER_QUALITY);
 		g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
 				RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-		g2.drawImage(image, 0, 0, scaledWidth, scaledHeight, null);
+		image.draw(g2, 0, 0, scaledWidth, scaledHeight, 0, 0, image
+				.getWidth(), image.getHeight());
 		g2.dispose();
 
 		return scaled;
@@ -119,4 +339,165 @@ public class ImageCache {
 		return configuration.createCompatibleImage(width, height,
 				Transparency.TRANSLUCENT);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * The key of a cached image.
+	 */
+	private static class Key {
+
+		private final String url;
+
+		private final float scale;
+
+		public Key(URL url, float scale) {
+			this.url = url.toExternalForm();
+			this.scale = scale;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) object;
+			return Float.floatToIntBits(scale) == Float
+					.floatToIntBits(key.scale)
+					&& url.equals(key.url);
+		}
+
+		@Override
+		public int hashCode() {
+			return url.hashCode() * 31 + Float.floatToIntBits(scale);
+		}
+	}
+
+	/**
+	 * An atlas packing images into shelves of shared pages.
+	 */
+	private static class Atlas {
+
+		private Page page;
+
+		private int x;
+
+		private int y;
+
+		private int shelf;
+
+		public CachedImage pack(BufferedImage image) {
+			int width = image.getWidth();
+			int height = image.getHeight();
+
+			if (page != null && x + width > ATLAS_SIZE) {
+				x = 0;
+				y += shelf;
+				shelf = 0;
+			}
+			if (page == null || y + height > ATLAS_SIZE) {
+				page = new Page(this);
+				x = 0;
+				y = 0;
+				shelf = 0;
+			}
+
+			Graphics2D g2 = page.image.createGraphics();
+			g2.setComposite(AlphaComposite.Src);
+			g2.drawImage(image, x, y, null);
+			g2.dispose();
+
+			CachedImage cached = new CachedImage(page.image, x, y, width,
+					height);
+			cached.page = page;
+
+			x += width;
+			shelf = Math.max(shelf, height);
+
+			return cached;
+		}
+
+		/**
+		 * Drop a page without images, so it is not packed any further.
+		 */
+		public void drop(Page page) {
+			if (this.page == page) {
+				this.page = null;
+			}
+		}
+	}
+
+	/**
+	 * A page of an atlas, counting its packed images still cached.
+	 */
+	private static class Page {
+
+		private final Atlas atlas;
+
+		private final BufferedImage image = createImage(ATLAS_SIZE,
+				ATLAS_SIZE);
+
+		private int regions;
+
+		public Page(Atlas atlas) {
+			this.atlas = atlas;
+		}
+
+		private long getBytes() {
+			return 4l * ATLAS_SIZE * ATLAS_SIZE;
+		}
+	}
+
+	/**
+	 * A cached image, possibly a region of a shared atlas.
+	 */
+	public static class CachedImage {
+
+		private BufferedImage image;
+
+		/**
+		 * The atlas page this image is packed into, <code>null</code> if
+		 * not packed.
+		 */
+		private Page page;
+
+		private int x;
+
+		private int y;
+
+		private int width;
+
+		private int height;
+
+		private CachedImage(BufferedImage image, int x, int y, int width,
+				int height) {
+			this.image = image;
+			this.x = x;
+			this.y = y;
+			this.width = width;
+			this.height = height;
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		private long getBytes() {
+			return 4l * width * height;
+		}
+
+		/**
+		 * Draw a region of this image.
+		 * 
+		 * @see Graphics2D#drawImage(java.awt.Image, int, int, int, int, int,
+		 *      int, int, int, java.awt.image.ImageObserver)
+		 */
+		public void draw(Graphics2D g, int dx1, int dy1, int dx2, int dy2,
+				int sx1, int sy1, int sx2, int sy2) {
+			g.drawImage(image, dx1, dy1, dx2, dy2, x + sx1, y + sy1, x + sx2,
+					y + sy2, null);
+		}
+	}
+}
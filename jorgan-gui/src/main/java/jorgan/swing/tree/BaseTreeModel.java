@@ -117,23 +117,74 @@ public abstract class BaseTreeModel<T> implements TreeModel {
 	}
 
 	public final void fireNodeChanged(T node) {
-		for (T parent : getParents(node)) {
-			if (parent == null) {
-				int index = getRoots().indexOf(node);
-
+		Set<T> parents = getParents(node);
+		if (parents.isEmpty()) {
+			int index = getRoots().indexOf(node);
+			if (index != -1) {
 				notifyNodesChanged(new TreeModelEvent(this, new TreePath(ROOT),
 						new int[] { index }, new Object[] { node }));
-			} else {
-				int index = getChildren(parent).indexOf(node);
+			}
+		}
 
-				for (TreePath path : getPaths(parent)) {
-					notifyNodesChanged(new TreeModelEvent(this, path,
-							new int[] { index }, new Object[] { node }));
-				}
+		for (T parent : parents) {
+			int index = getChildren(parent).indexOf(node);
+
+			for (TreePath path : getPaths(parent)) {
+				notifyNodesChanged(new TreeModelEvent(this, path,
+						new int[] { index }, new Object[] { node }));
+			}
+		}
+	}
+
+	/**
+	 * Notify that a node was inserted.
+	 * 
+	 * @param parent
+	 *            parent of node or <code>null</code> for a root
+	 * @param index
+	 *            index of node
+	 * @param node
+	 *            the inserted node
+	 */
+	public final void fireNodeInserted(T parent, int index, T node) {
+		for (TreePath path : getParentPaths(parent)) {
+			TreeModelEvent event = new TreeModelEvent(this, path,
+					new int[] { index }, new Object[] { node });
+			for (TreeModelListener listener : listeners) {
+				listener.treeNodesInserted(event);
 			}
 		}
 	}
 
+	/**
+	 * Notify that a node was removed.
+	 * 
+	 * @param parent
+	 *            parent of node or <code>null</code> for a root
+	 * @param index
+	 *            former index of node
+	 * @param node
+	 *            the removed node
+	 */
+	public final void fireNodeRemoved(T parent, int index, T node) {
+		for (TreePath path : getParentPaths(parent)) {
+			TreeModelEvent event = new TreeModelEvent(this, path,
+					new int[] { index }, new Object[] { node });
+			for (TreeModelListener listener : listeners) {
+				listener.treeNodesRemoved(event);
+			}
+		}
+	}
+
+	private List<TreePath> getParentPaths(T parent) {
+		if (parent == null) {
+			List<TreePath> paths = new ArrayList<TreePath>();
+			paths.add(new TreePath(ROOT));
+			return paths;
+		}
+		return getPaths(parent);
+	}
+
 	public final void fireChildrenChanged(T node) {
 		for (TreePath path : getPaths(node)) {
 			notifyStructureChanged(new TreeModelEvent(this, path));
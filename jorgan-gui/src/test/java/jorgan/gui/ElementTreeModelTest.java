@@ -0,0 +1,102 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.gui;
+
+import java.util.Comparator;
+import java.util.HashSet;
+
+import jorgan.disposition.Element;
+import jorgan.disposition.Group;
+import jorgan.disposition.Organ;
+import jorgan.disposition.Stop;
+import jorgan.swing.tree.BaseTreeModel;
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link ElementTreeModel}.
+ */
+public class ElementTreeModelTest extends TestCase {
+
+	private Organ organ;
+
+	private Group group;
+
+	private Stop grouped;
+
+	private Stop ungrouped;
+
+	private ElementTreeModel model;
+
+	@Override
+	protected void setUp() throws Exception {
+		organ = new Organ();
+
+		group = new Group();
+		group.setName("group");
+		organ.addElement(group);
+
+		grouped = new Stop();
+		grouped.setName("grouped");
+		organ.addElement(grouped);
+		group.reference(grouped);
+
+		ungrouped = new Stop();
+		ungrouped.setName("ungrouped");
+		organ.addElement(ungrouped);
+
+		model = new ElementTreeModel();
+		model.setElements(organ, new HashSet<Element>(organ.getElements()),
+				new Comparator<Element>() {
+					public int compare(Element e1, Element e2) {
+						return e1.getName().compareTo(e2.getName());
+					}
+				});
+	}
+
+	public void testRemoveGroup() {
+		assertRoots(group, ungrouped);
+		assertEquals(1, model.getChildCount(group));
+
+		organ.removeElement(group);
+		model.removeElement(group);
+
+		assertRoots(grouped, ungrouped);
+	}
+
+	public void testAddGroup() {
+		organ.removeElement(group);
+		model.removeElement(group);
+		assertRoots(grouped, ungrouped);
+
+		// e.g. undo of removal
+		organ.addElement(group);
+		model.addElement(group);
+
+		assertRoots(group, ungrouped);
+		assertEquals(1, model.getChildCount(group));
+		assertSame(grouped, model.getChild(group, 0));
+	}
+
+	private void assertRoots(Element... roots) {
+		assertEquals(roots.length, model.getChildCount(BaseTreeModel.ROOT));
+		for (int i = 0; i < roots.length; i++) {
+			assertSame(roots[i], model.getChild(BaseTreeModel.ROOT, i));
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.gui.search;
+
+import java.util.List;
+
+import jorgan.disposition.Element;
+import jorgan.disposition.Organ;
+import jorgan.disposition.Rank;
+import jorgan.disposition.Stop;
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link SearchIndex}.
+ */
+public class SearchIndexTest extends TestCase {
+
+	public void testSearch() throws Exception {
+		Organ organ = new Organ();
+
+		Stop principal = new Stop();
+		principal.setName("Principal 8'");
+		organ.addElement(principal);
+
+		Stop octave = new Stop();
+		octave.setName("Octave 4'");
+		octave.setDescription("bright principal chorus");
+		organ.addElement(octave);
+
+		Rank rank = new Rank();
+		rank.setName("Pipes");
+		organ.addElement(rank);
+		octave.reference(rank);
+
+		SearchIndex index = new SearchIndex(organ);
+
+		List<Element> elements = index.search("princ");
+		assertEquals(2, elements.size());
+		// name ranks above description
+		assertSame(principal, elements.get(0));
+
+		assertEquals(1, index.search("principal 8").size());
+		assertEquals(1, index.search("ncipal 4").size());
+		assertEquals(0, index.search("ncipal 2").size());
+		assertEquals(1, index.search("pipes octave").size());
+		assertEquals(0, index.search("").size());
+
+		// type-ahead
+		assertEquals(3, index.search("p").size());
+		assertEquals(2, index.search("pi").size());
+		assertEquals(2, index.search("pip").size());
+		assertEquals(0, index.search("ip").size());
+		assertEquals(2, index.search("ipa").size());
+	}
+
+	public void testChanges() throws Exception {
+		Organ organ = new Organ();
+
+		Stop stop = new Stop();
+		stop.setName("Trumpet");
+		organ.addElement(stop);
+
+		Rank rank = new Rank();
+		rank.setName("Reeds");
+		organ.addElement(rank);
+
+		SearchIndex index = new SearchIndex(organ);
+		assertEquals(0, index.search("reeds trumpet").size());
+
+		stop.reference(rank);
+		assertEquals(1, index.search("reeds trumpet").size());
+
+		rank.setName("Chamades");
+		assertEquals(0, index.search("reeds").size());
+		assertEquals(1, index.search("chamades trumpet").size());
+
+		organ.removeElement(stop);
+		assertEquals(0, index.search("trumpet").size());
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.gui.undo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jorgan.disposition.Organ;
+import jorgan.disposition.Stop;
+import junit.framework.TestCase;
+
+/**
+ * Benchmark for undoing and redoing a bulk edit with {@link UndoManager}.
+ */
+public class UndoManagerBenchmarkTest extends TestCase {
+
+	private static final int COUNT = 10000;
+
+	private static final int RUNS = 10;
+
+	public void testBulk() throws Exception {
+		Organ organ = new Organ();
+		final List<Stop> stops = new ArrayList<Stop>();
+		for (int e = 0; e < COUNT; e++) {
+			Stop stop = new Stop();
+			stop.setName("stop " + e);
+			organ.addElement(stop);
+			stops.add(stop);
+		}
+
+		UndoManager manager = new UndoManager(organ);
+
+		long edit = System.nanoTime();
+		manager.compound(new Compound() {
+			public void run() {
+				for (Stop stop : stops) {
+					stop.setName("bulk");
+					stop.setName("bulk " + stop.getId());
+				}
+			}
+		});
+		edit = System.nanoTime() - edit;
+
+		long undo = Long.MAX_VALUE;
+		long redo = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) {
+			long start = System.nanoTime();
+			manager.undo();
+			undo = Math.min(undo, System.nanoTime() - start);
+
+			assertEquals("stop 0", stops.get(0).getName());
+			assertEquals("stop " + (COUNT - 1), stops.get(COUNT - 1)
+					.getName());
+			assertFalse(manager.canUndo());
+
+			start = System.nanoTime();
+			manager.redo();
+			redo = Math.min(redo, System.nanoTime() - start);
+
+			assertEquals("bulk " + stops.get(0).getId(), stops.get(0)
+					.getName());
+			assertFalse(manager.canRedo());
+		}
+
+		System.out.println(String.format(
+				"%d elements: edit %d ms, undo %d ms, redo %d ms", COUNT,
+				edit / 1000000, undo / 1000000, redo / 1000000));
+	}
+
+	public void testBounded() throws Exception {
+		Organ organ = new Organ();
+		Stop stop = new Stop();
+		organ.addElement(stop);
+
+		UndoManager manager = new UndoManager(organ);
+		manager.setSize(10);
+
+		for (int e = 0; e < 20; e++) {
+			stop.setName("stop " + e);
+			manager.compound();
+		}
+
+		int undos = 0;
+		while (manager.canUndo()) {
+			manager.undo();
+			undos++;
+		}
+		assertEquals(10, undos);
+		assertEquals("stop 9", stop.getName());
+	}
+}
@@ -0,0 +1,51 @@
+package jorgan.keyboard.gui;
+
+import java.util.BitSet;
+
+/**
+ * The confirmed states of the keys of a keyboard. <br>
+ * States can be changed from any thread, changes since the last call to
+ * {@link #apply(KeyboardPanel)} are applied at once.
+ */
+class KeyStates {
+
+	private BitSet pressed = new BitSet(128);
+
+	private BitSet changed = new BitSet(128);
+
+	/**
+	 * Change the state of a key.
+	 * 
+	 * @param pitch
+	 *            pitch of key
+	 * @param pressed
+	 *            is the key pressed
+	 */
+	public synchronized void set(int pitch, boolean pressed) {
+		this.pressed.set(pitch, pressed);
+		this.changed.set(pitch);
+	}
+
+	/**
+	 * Apply all changes since the last call to the given panel.
+	 * 
+	 * @param panel
+	 *            panel to apply to
+	 */
+	public void apply(KeyboardPanel panel) {
+		BitSet pressed;
+		BitSet changed;
+		synchronized (this) {
+			if (this.changed.isEmpty()) {
+				return;
+			}
+
+			pressed = (BitSet) this.pressed.clone();
+			changed = this.changed;
+
+			this.changed = new BitSet(128);
+		}
+
+		panel.confirmKeys(pressed, changed);
+	}
+}
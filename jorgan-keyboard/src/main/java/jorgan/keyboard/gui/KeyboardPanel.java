@@ -4,9 +4,15 @@ import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.JComponent;
 import javax.swing.event.MouseInputAdapter;
@@ -46,6 +52,19 @@ public class KeyboardPanel extends JComponent {
 
 	private static final int B = 11;
 
+	private static final int BLACK = 1;
+
+	private static final int CONFIRMED = 2;
+
+	private static final int OUT_OF_RANGE = 4;
+
+	private static final int MARKED = 8;
+
+	/**
+	 * Images of keys, keyed by their state.
+	 */
+	private static final Map<Integer, Image> sprites = new HashMap<Integer, Image>();
+
 	private List<BlackKey> blackKeys = new ArrayList<BlackKey>(128);
 
 	private List<WhiteKey> whiteKeys = new ArrayList<WhiteKey>(128);
@@ -122,17 +141,22 @@ public class KeyboardPanel extends JComponent {
 	}
 
 	/**
-	 * Paint the keys.
+	 * Paint the keys intersecting the clip.
 	 */
 	@Override
 	protected void paintComponent(Graphics g) {
+		Rectangle clip = g.getClipBounds();
 
 		for (Key key : whiteKeys) {
-			key.paint(g);
+			if (clip == null || key.intersects(clip)) {
+				key.paint(g);
+			}
 		}
 
 		for (Key key : blackKeys) {
-			key.paint(g);
+			if (clip == null || key.intersects(clip)) {
+				key.paint(g);
+			}
 		}
 	}
 
@@ -263,8 +287,6 @@ public class KeyboardPanel extends JComponent {
 		public void reset() {
 			pressed = false;
 			confirmed = false;
-
-			repaint();
 		}
 
 		/**
@@ -326,17 +348,67 @@ public class KeyboardPanel extends JComponent {
 		}
 
 		/**
-		 * Paint this key.
+		 * The bounds of this key, including its border.
+		 */
+		public Rectangle getBounds() {
+			return new Rectangle(x, 0, width + 1, height);
+		}
+
+		public boolean intersects(Rectangle clip) {
+			return x <= clip.x + clip.width && x + width + 1 > clip.x
+					&& clip.y < height;
+		}
+
+		/**
+		 * Paint this key from the image for its current state.
 		 * 
 		 * @param g
 		 *            graphics to paint on
 		 */
-		public abstract void paint(Graphics g);
+		public void paint(Graphics g) {
+			int state = getState();
+
+			Image sprite = sprites.get(state);
+			if (sprite == null) {
+				sprite = new BufferedImage(width + 1, height,
+						BufferedImage.TYPE_INT_ARGB);
+				Graphics spriteGraphics = sprite.getGraphics();
+				paintSprite(spriteGraphics);
+				spriteGraphics.dispose();
+
+				sprites.put(state, sprite);
+			}
+
+			g.drawImage(sprite, x, 0, null);
+		}
+
+		/**
+		 * Get the state of this key, all keys with equal state have an
+		 * identical image.
+		 */
+		protected int getState() {
+			int state = 0;
+			if (confirmed) {
+				state |= CONFIRMED;
+			}
+			if (pitch < from || pitch > to) {
+				state |= OUT_OF_RANGE;
+			}
+			return state;
+		}
+
+		/**
+		 * Paint the image of this key.
+		 * 
+		 * @param g
+		 *            graphics to paint on, with the origin at this key
+		 */
+		protected abstract void paintSprite(Graphics g);
 
 		public void confirm(boolean confirm) {
 			this.confirmed = confirm;
 
-			repaint(x, 0, width, height);
+			repaint(getBounds());
 		}
 	}
 
@@ -361,20 +433,25 @@ public class KeyboardPanel extends JComponent {
 		}
 
 		@Override
-		public void paint(Graphics g) {
+		protected int getState() {
+			return super.getState() | BLACK;
+		}
+
+		@Override
+		protected void paintSprite(Graphics g) {
 			if (pitch < from || pitch > to) {
 				g.setColor(Color.LIGHT_GRAY);
-				g.fillRect(x, 0, WIDTH, HEIGHT);
+				g.fillRect(0, 0, WIDTH, HEIGHT);
 			} else {
 				g.setColor(Color.BLACK);
-				g.fillRect(x, 0, WIDTH, HEIGHT);
+				g.fillRect(0, 0, WIDTH, HEIGHT);
 
 				if (confirmed) {
 					g.setColor(Color.GRAY);
-					g.fillRect(x + 1, 1, WIDTH - 2, HEIGHT - 2);
+					g.fillRect(1, 1, WIDTH - 2, HEIGHT - 2);
 				} else {
 					g.setColor(Color.DARK_GRAY);
-					g.fillRect(x + 1, 1, WIDTH - 2, HEIGHT - 5);
+					g.fillRect(1, 1, WIDTH - 2, HEIGHT - 5);
 				}
 			}
 		}
@@ -397,17 +474,26 @@ public class KeyboardPanel extends JComponent {
 		}
 
 		@Override
-		public void paint(Graphics g) {
+		protected int getState() {
+			int state = super.getState();
+			if (pitch == 60) {
+				state |= MARKED;
+			}
+			return state;
+		}
+
+		@Override
+		protected void paintSprite(Graphics g) {
 			if (confirmed) {
 				g.setColor(Color.LIGHT_GRAY);
-				g.fillRect(x, 0, WHITE_WIDTH, WHITE_HEIGHT);
+				g.fillRect(0, 0, WHITE_WIDTH, WHITE_HEIGHT);
 			} else {
 				g.setColor(Color.WHITE);
-				g.fillRect(x, 0, WHITE_WIDTH, WHITE_HEIGHT);
+				g.fillRect(0, 0, WHITE_WIDTH, WHITE_HEIGHT);
 
 				g.setColor(Color.LIGHT_GRAY);
-				g.fillRect(x, 0, WHITE_WIDTH, 4);
-				g.fillRect(x, WHITE_HEIGHT - 2, WHITE_WIDTH, 2);
+				g.fillRect(0, 0, WHITE_WIDTH, 4);
+				g.fillRect(0, WHITE_HEIGHT - 2, WHITE_WIDTH, 2);
 			}
 
 			if (pitch < from || pitch > to) {
@@ -415,10 +501,10 @@ public class KeyboardPanel extends JComponent {
 			} else {
 				g.setColor(Color.GRAY);
 			}
-			g.drawRect(x, 0, WHITE_WIDTH, WHITE_HEIGHT - 1);
+			g.drawRect(0, 0, WHITE_WIDTH, WHITE_HEIGHT - 1);
 
 			if (pitch == 60) {
-				g.fillRect(x + WHITE_WIDTH / 2 - 2, WHITE_HEIGHT - 8, 4, 4);
+				g.fillRect(WHITE_WIDTH / 2 - 2, WHITE_HEIGHT - 8, 4, 4);
 			}
 		}
 	}
@@ -440,4 +526,32 @@ public class KeyboardPanel extends JComponent {
 	public void confirmKeyReleased(int pitch) {
 		keys.get(pitch).confirm(false);
 	}
+
+	/**
+	 * Confirm the states of several keys at once, repainting a single region
+	 * containing all changed keys.
+	 * 
+	 * @param pressed
+	 *            pitches of pressed keys
+	 * @param changed
+	 *            pitches of keys to confirm
+	 */
+	public void confirmKeys(BitSet pressed, BitSet changed) {
+		Rectangle damage = null;
+		for (int pitch = changed.nextSetBit(0); pitch >= 0; pitch = changed
+				.nextSetBit(pitch + 1)) {
+			Key key = keys.get(pitch);
+			key.confirmed = pressed.get(pitch);
+
+			if (damage == null) {
+				damage = key.getBounds();
+			} else {
+				damage.add(key.getBounds());
+			}
+		}
+
+		if (damage != null) {
+			repaint(damage);
+		}
+	}
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.GridLayout;
 import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -11,6 +13,7 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.Scrollable;
 import javax.swing.SwingConstants;
+import javax.swing.Timer;
 import javax.swing.border.EmptyBorder;
 
 import jorgan.disposition.Elements;
@@ -21,19 +24,27 @@ import jorgan.play.OrganPlay;
 import jorgan.play.OrganPlay.Playing;
 import jorgan.play.event.KeyListener;
 import jorgan.swing.RowHeader;
-import spin.Spin;
 
 /**
  * A keyboard.
  */
 public class KeyboardsPanel extends JPanel implements Scrollable {
 
+	/**
+	 * Duration of a frame in which key changes are coalesced.
+	 */
+	private static final int FRAME = 20;
+
 	private RowHeader header = new RowHeader(this);
 
 	private Listener listener = new Listener();
 
 	private Map<Keyboard, KeyboardPanel> keyboardPanels = new HashMap<Keyboard, KeyboardPanel>();
 
+	private Map<Keyboard, KeyStates> keyStates = new HashMap<Keyboard, KeyStates>();
+
+	private Timer timer;
+
 	private OrganPlay play;
 
 	public KeyboardsPanel(OrganPlay play) {
@@ -43,6 +54,15 @@ public class KeyboardsPanel extends JPanel implements Scrollable {
 
 		this.play = play;
 
+		timer = new Timer(FRAME, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				for (Keyboard keyboard : keyboardPanels.keySet()) {
+					keyStates.get(keyboard).apply(keyboardPanels.get(keyboard));
+				}
+			}
+		});
+		timer.setRepeats(false);
+
 		for (Keyboard keyboard : play.getOrgan().getElements(Keyboard.class)) {
 			add(createKeyboardPanel(keyboard));
 
@@ -52,11 +72,14 @@ public class KeyboardsPanel extends JPanel implements Scrollable {
 			header.add(label);
 		}
 
-		play.addKeyListener((KeyListener) Spin.over(listener));
+		// key changes are coalesced, so listen directly on the play thread
+		play.addKeyListener(listener);
 	}
 
 	public void destroy() {
-		play.removeKeyListener((KeyListener) Spin.over(listener));
+		play.removeKeyListener(listener);
+
+		timer.stop();
 	}
 
 	public void addNotify() {
@@ -135,6 +158,7 @@ public class KeyboardsPanel extends JPanel implements Scrollable {
 		}
 
 		keyboardPanels.put(keyboard, panel);
+		keyStates.put(keyboard, new KeyStates());
 
 		return panel;
 	}
@@ -143,15 +167,28 @@ public class KeyboardsPanel extends JPanel implements Scrollable {
 		play.play(keyboard, playing);
 	}
 
+	/**
+	 * Listener to key changes, recording them for the next frame.
+	 */
 	private class Listener implements KeyListener {
 		@Override
 		public void keyPressed(Keyboard keyboard, int pitch, int velocity) {
-			keyboardPanels.get(keyboard).confirmKeyPressed(pitch);
+			change(keyboard, pitch, true);
 		}
 
 		@Override
 		public void keyReleased(Keyboard keyboard, int pitch) {
-			keyboardPanels.get(keyboard).confirmKeyReleased(pitch);
+			change(keyboard, pitch, false);
+		}
+
+		private void change(Keyboard keyboard, int pitch, boolean pressed) {
+			KeyStates states = keyStates.get(keyboard);
+			if (states != null) {
+				states.set(pitch, pressed);
+
+				// no-op if already running
+				timer.start();
+			}
 		}
 	}
 }
\ No newline at end of file
@@ -5,12 +5,11 @@ import javax.swing.JScrollPane;
 import jorgan.disposition.Element;
 import jorgan.disposition.Keyboard;
 import jorgan.disposition.event.OrganAdapter;
-import jorgan.disposition.event.OrganListener;
+import jorgan.gui.EventBridge;
 import jorgan.gui.dock.AbstractView;
 import jorgan.keyboard.gui.KeyboardsPanel;
 import jorgan.play.OrganPlay;
 import jorgan.session.OrganSession;
-import spin.Spin;
 import bias.Configuration;
 
 public class KeyboardView extends AbstractView {
@@ -35,14 +34,14 @@ public class KeyboardView extends AbstractView {
 	public void setSession(OrganSession session) {
 		if (play != null) {
 			play.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(listener));
+					EventBridge.organ(listener));
 			play = null;
 		}
 
 		if (session != null) {
 			play = session.lookup(OrganPlay.class);
 			play.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(listener));
+					EventBridge.organ(listener));
 		}
 
 		initKeyboards();
@@ -39,6 +39,10 @@ public class LanDeviceProvider extends MidiDeviceProvider {
 
 	private static final List<ReceiveDevice> receivers = new ArrayList<ReceiveDevice>();
 
+	private static volatile boolean framed;
+
+	private static volatile boolean recover;
+
 	private int senderCount;
 
 	private int receiverCount;
@@ -59,6 +63,30 @@ public class LanDeviceProvider extends MidiDeviceProvider {
 		ensureReceivers(count);
 	}
 
+	/**
+	 * Should datagrams be framed with sequence numbers and timestamps - takes
+	 * effect when a device is opened.
+	 */
+	public void setFramed(boolean framed) {
+		LanDeviceProvider.framed = framed;
+	}
+
+	static boolean isFramed() {
+		return framed;
+	}
+
+	/**
+	 * Should all notes be turned off when loss of framed datagrams is
+	 * detected.
+	 */
+	public void setRecover(boolean recover) {
+		LanDeviceProvider.recover = recover;
+	}
+
+	static boolean isRecover() {
+		return recover;
+	}
+
 	@Override
 	public MidiDevice.Info[] getDeviceInfo() {
 
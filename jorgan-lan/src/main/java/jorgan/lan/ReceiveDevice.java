@@ -21,12 +21,16 @@ package jorgan.lan;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiDevice;
 import javax.sound.midi.MidiMessage;
 import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.ShortMessage;
 
 import jorgan.lan.net.MessageReceiver;
+import jorgan.lan.net.Statistics;
 import jorgan.midi.Loopback;
+import jorgan.midi.MessageUtils;
 
 /**
  * A remote {@link MidiDevice} over LAN.
@@ -39,6 +43,8 @@ public class ReceiveDevice extends Loopback {
 
 	private MessageReceiver receiver;
 
+	private Statistics statistics;
+
 	public ReceiveDevice(int index, Info info) {
 		super(info, false, true);
 
@@ -58,7 +64,17 @@ public class ReceiveDevice extends Loopback {
 				protected void onException(Exception ex) {
 					log.log(Level.WARNING, "exception receiving message", ex);
 				}
+
+				@Override
+				protected void onLost(int count) {
+					log.log(Level.INFO, "lost " + count + " datagrams");
+
+					if (LanDeviceProvider.isRecover()) {
+						allNotesOff();
+					}
+				}
 			};
+			statistics = receiver.getStatistics();
 		} catch (Exception ex) {
 			MidiUnavailableException exception = new MidiUnavailableException();
 			exception.initCause(ex);
@@ -66,9 +82,34 @@ public class ReceiveDevice extends Loopback {
 		}
 	}
 
+	/**
+	 * Get the statistics of received framed datagrams.
+	 * 
+	 * @return statistics or <code>null</code> if never opened
+	 */
+	public Statistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Turn all notes off, recovering from lost note offs.
+	 */
+	private void allNotesOff() {
+		for (int channel = 0; channel < 16; channel++) {
+			try {
+				loopOut(MessageUtils.createMessage(ShortMessage.CONTROL_CHANGE
+						| channel, 123, 0));
+			} catch (InvalidMidiDataException ex) {
+				throw new Error(ex);
+			}
+		}
+	}
+
 	@Override
 	protected synchronized void closeImpl() {
 		if (receiver != null) {
+			log.log(Level.FINE, "received " + receiver.getStatistics());
+
 			receiver.close();
 			receiver = null;
 		}
@@ -42,6 +42,8 @@ public class SendDevice extends Loopback {
 
 	private MessageSender sender;
 
+	private volatile Thread thread;
+
 	public SendDevice(int index, Info info) {
 		super(info, true, false);
 
@@ -51,9 +53,12 @@ public class SendDevice extends Loopback {
 	@Override
 	protected synchronized void openImpl() throws MidiUnavailableException {
 		try {
-			sender = new MessageSender(IpMidi.GROUP, IpMidi.port(index));
+			sender = new MessageSender(IpMidi.GROUP, IpMidi.port(index),
+					LanDeviceProvider.isFramed());
 
 			probe();
+
+			startFlushing();
 		} catch (Exception ex) {
 			MidiUnavailableException exception = new MidiUnavailableException();
 			exception.initCause(ex);
@@ -71,8 +76,43 @@ public class SendDevice extends Loopback {
 		sender.send(message);
 	}
 
+	/**
+	 * Start flushing of queued messages, thus all messages queued while a
+	 * previous datagram is sent are coalesced into a single datagram.
+	 */
+	private void startFlushing() {
+		final MessageSender sender = this.sender;
+
+		thread = new Thread(new Runnable() {
+			public void run() {
+				while (thread == Thread.currentThread()) {
+					try {
+						sender.awaitQueued();
+
+						sender.flush();
+					} catch (InterruptedException ex) {
+						break;
+					} catch (IOException ex) {
+						if (thread == Thread.currentThread()) {
+							log.log(Level.WARNING, "exception sending message",
+									ex);
+						}
+					}
+				}
+			}
+		}, "LAN sender");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
 	@Override
 	protected synchronized void closeImpl() {
+		if (thread != null) {
+			Thread thread = this.thread;
+			this.thread = null;
+			thread.interrupt();
+		}
+
 		if (sender != null) {
 			sender.close();
 			sender = null;
@@ -84,7 +124,7 @@ public class SendDevice extends Loopback {
 	@Override
 	protected void onLoopIn(MidiMessage message) {
 		try {
-			sender.send(message);
+			sender.queue(message);
 		} catch (IOException ex) {
 			log.log(Level.WARNING, "exception sending message", ex);
 		}
@@ -18,6 +18,7 @@
  */
 package jorgan.lan.gui.preferences;
 
+import javax.swing.JCheckBox;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -48,10 +49,20 @@ public class LanCategory extends JOrganCategory {
 	private Model<Integer> receiverCount = getModel(new Property(
 			LanDeviceProvider.class, "receiverCount"));
 
+	private Model<Boolean> framed = getModel(new Property(
+			LanDeviceProvider.class, "framed"));
+
+	private Model<Boolean> recover = getModel(new Property(
+			LanDeviceProvider.class, "recover"));
+
 	private JSpinner senderCountSpinner;
 
 	private JSpinner receiverCountSpinner;
 
+	private JCheckBox framedCheckBox = new JCheckBox();
+
+	private JCheckBox recoverCheckBox = new JCheckBox();
+
 	public LanCategory() {
 		config.read(this);
 	}
@@ -80,6 +91,10 @@ public class LanCategory extends JOrganCategory {
 				new SpinnerNumberModel(0, 0, 256, 1));
 		column.definition(receiverCountSpinner);
 
+		column.definition(config.get("framed").read(framedCheckBox));
+
+		column.definition(config.get("recover").read(recoverCheckBox));
+
 		return panel;
 	}
 
@@ -87,11 +102,15 @@ public class LanCategory extends JOrganCategory {
 	protected void read() {
 		senderCountSpinner.setValue(senderCount.getValue());
 		receiverCountSpinner.setValue(receiverCount.getValue());
+		framedCheckBox.setSelected(framed.getValue());
+		recoverCheckBox.setSelected(recover.getValue());
 	}
 
 	@Override
 	protected void write() {
 		senderCount.setValue((Integer) senderCountSpinner.getValue());
 		receiverCount.setValue((Integer) receiverCountSpinner.getValue());
+		framed.setValue(framedCheckBox.isSelected());
+		recover.setValue(recoverCheckBox.isSelected());
 	}
 }
\ No newline at end of file
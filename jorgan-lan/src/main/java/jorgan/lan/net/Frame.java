@@ -0,0 +1,132 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.lan.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The header of a framed datagram, carrying a sequence number and the
+ * sender's timestamp in front of the messages.
+ * <p>
+ * The header starts with an undefined system common status, followed by data
+ * bytes only: sequence and timestamp are encoded in 7 bits per byte. Plain
+ * ipMIDI receivers ignore the undefined status and its data bytes, so they do
+ * not interpret the header as messages.
+ */
+public final class Frame {
+
+	/**
+	 * Marker of a framed datagram.
+	 */
+	public static final int MARKER = 0xF4;
+
+	public static final int VERSION = 2;
+
+	/**
+	 * Length of the header - marker, version, sequence and timestamp.
+	 */
+	public static final int LENGTH = 1 + 1 + 4 + 8;
+
+	/**
+	 * Sequence numbers have 28 bits, wrapping around.
+	 */
+	private static final int SEQUENCE_BITS = 4 * 7;
+
+	/**
+	 * Timestamps have 56 bits, wrapping around.
+	 */
+	private static final int TIMESTAMP_BITS = 8 * 7;
+
+	private Frame() {
+	}
+
+	/**
+	 * Write a header at the start of the given buffer.
+	 * 
+	 * @param buffer
+	 *            buffer to write to
+	 * @param sequence
+	 *            sequence number
+	 * @param timestamp
+	 *            timestamp in microseconds
+	 */
+	public static void write(ByteBuffer buffer, int sequence, long timestamp) {
+		buffer.put(0, (byte) MARKER);
+		buffer.put(1, (byte) VERSION);
+		put(buffer, 2, 4, sequence);
+		put(buffer, 6, 8, timestamp);
+	}
+
+	private static void put(ByteBuffer buffer, int index, int length,
+			long value) {
+		for (int b = length - 1; b >= 0; b--) {
+			buffer.put(index + b, (byte) (value & 0x7f));
+			value >>>= 7;
+		}
+	}
+
+	private static long get(ByteBuffer buffer, int index, int length) {
+		long value = 0;
+		for (int b = 0; b < length; b++) {
+			value = (value << 7) | (buffer.get(index + b) & 0x7f);
+		}
+		return value;
+	}
+
+	/**
+	 * Is the given buffer starting with a header.
+	 */
+	public static boolean isFramed(ByteBuffer buffer) {
+		return buffer.remaining() >= LENGTH
+				&& (buffer.get(buffer.position()) & 0xff) == MARKER
+				&& buffer.get(buffer.position() + 1) == VERSION;
+	}
+
+	public static int getSequence(ByteBuffer buffer) {
+		return (int) get(buffer, buffer.position() + 2, 4);
+	}
+
+	public static long getTimestamp(ByteBuffer buffer) {
+		return get(buffer, buffer.position() + 6, 8);
+	}
+
+	/**
+	 * Distance between two sequence numbers, considering wrap around.
+	 * 
+	 * @return positive if <code>to</code> follows <code>from</code>
+	 */
+	public static int distance(int from, int to) {
+		return ((to - from) << (32 - SEQUENCE_BITS)) >> (32 - SEQUENCE_BITS);
+	}
+
+	/**
+	 * Time elapsed since the given timestamp, considering wrap around.
+	 */
+	public static long elapsed(long timestamp) {
+		return ((now() - timestamp) << (64 - TIMESTAMP_BITS)) >> (64 -
+				TIMESTAMP_BITS);
+	}
+
+	/**
+	 * Current time in microseconds, as used for timestamps.
+	 */
+	public static long now() {
+		return (System.nanoTime() / 1000) & ((1l << TIMESTAMP_BITS) - 1);
+	}
+}
@@ -19,19 +19,37 @@
 package jorgan.lan.net;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
-import java.net.MulticastSocket;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiMessage;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.SysexMessage;
 
 import jorgan.midi.MessageUtils;
 
+/**
+ * A receiver of messages from a multicast group.
+ * <p>
+ * A single datagram may contain multiple concatenated messages, as supported
+ * by ipMIDI. Framed datagrams are tracked per sender for loss, reordering and
+ * jitter.
+ * 
+ * @see Frame
+ */
 public class MessageReceiver {
 
-	private MulticastSocket socket;
+	private DatagramChannel channel;
 
 	private InetAddress group;
 
@@ -39,15 +57,37 @@ public class MessageReceiver {
 
 	private Thread thread;
 
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(65536);
+
 	private byte[] bytes = new byte[256];
 
+	/**
+	 * Maximum number of sources to keep track of.
+	 */
+	private static final int SOURCES = 64;
+
+	/**
+	 * Sources of framed datagrams, the least recently heard ones are dropped.
+	 */
+	private Map<SocketAddress, Source> sources = new LinkedHashMap<SocketAddress, Source>(
+			16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<SocketAddress, Source> eldest) {
+			return size() > SOURCES;
+		}
+	};
+
+	private Statistics statistics = new Statistics();
+
 	public MessageReceiver(InetAddress group, int port) throws IOException {
 		this.port = port;
 		this.group = group;
 
 		try {
-			socket = new MulticastSocket(this.port);
-			socket.joinGroup(this.group);
+			channel = DatagramChannel.open(StandardProtocolFamily.INET);
+			channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			channel.bind(new InetSocketAddress(this.port));
+			join();
 		} catch (IOException e) {
 			close();
 
@@ -58,7 +98,7 @@ public class MessageReceiver {
 			public void run() {
 				while (thread != null) {
 					try {
-						receive(socket);
+						receive();
 					} catch (IOException ex) {
 						if (thread != null) {
 							onException(ex);
@@ -71,32 +111,215 @@ public class MessageReceiver {
 		thread.start();
 	}
 
+	/**
+	 * Join the group on all interfaces supporting multicast.
+	 */
+	private void join() throws IOException {
+		int joined = 0;
+
+		Enumeration<NetworkInterface> interfaces = NetworkInterface
+				.getNetworkInterfaces();
+		while (interfaces.hasMoreElements()) {
+			NetworkInterface networkInterface = interfaces.nextElement();
+			if (networkInterface.isUp() && networkInterface.supportsMulticast()) {
+				try {
+					channel.join(group, networkInterface);
+					joined++;
+				} catch (IOException ignore) {
+					// interface without IPv4 address
+				}
+			}
+		}
+
+		if (joined == 0) {
+			throw new IOException("no interface to join " + group);
+		}
+	}
+
 	protected void onException(Exception ex) {
 	}
 
+	/**
+	 * Framed datagrams were lost - default implementation does nothing.
+	 * 
+	 * @param count
+	 *            count of lost datagrams
+	 */
+	protected void onLost(int count) {
+	}
+
+	/**
+	 * Get the statistics of framed datagrams.
+	 */
+	public Statistics getStatistics() {
+		return statistics;
+	}
+
 	public void close() {
-		if (thread != null) {
-			thread = null;
+		thread = null;
 
-			socket.close();
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException ignore) {
+			}
 		}
 	}
 
-	private void receive(DatagramSocket socket) throws IOException {
-		DatagramPacket packet = new DatagramPacket(bytes, 0, bytes.length);
-		socket.receive(packet);
+	private void receive() throws IOException {
+		buffer.clear();
+		SocketAddress address = channel.receive(buffer);
+		buffer.flip();
 
-		MidiMessage message;
-		try {
-			message = MessageUtils.createMessage(bytes, packet.getLength());
-		} catch (InvalidMidiDataException ex) {
-			onException(ex);
-			return;
+		if (Frame.isFramed(buffer)) {
+			Source source = sources.get(address);
+			if (source == null) {
+				source = new Source();
+				sources.put(address, source);
+			}
+			if (!source.received(Frame.getSequence(buffer), Frame
+					.getTimestamp(buffer))) {
+				return;
+			}
+
+			buffer.position(buffer.position() + Frame.LENGTH);
+		}
+
+		int running = 0;
+		while (buffer.hasRemaining()) {
+			int status = buffer.get(buffer.position()) & 0xff;
+			if (status >= 0x80) {
+				buffer.get();
+			} else if (running != 0) {
+				status = running;
+			} else {
+				// data without status
+				buffer.get();
+				continue;
+			}
+
+			if (MessageUtils.isChannelStatus(status)) {
+				running = status;
+			} else if (status < ShortMessage.TIMING_CLOCK) {
+				// real time messages do not cancel running status
+				running = 0;
+			}
+
+			int length;
+			if (status == SysexMessage.SYSTEM_EXCLUSIVE) {
+				length = sysex();
+			} else {
+				length = MessageUtils.getLength(status);
+				if (buffer.remaining() < length - 1) {
+					onException(new InvalidMidiDataException("truncated"));
+					return;
+				}
+				bytes[0] = (byte) status;
+				buffer.get(bytes, 1, length - 1);
+			}
+
+			MidiMessage message;
+			try {
+				message = MessageUtils.createMessage(bytes, length);
+			} catch (InvalidMidiDataException ex) {
+				onException(ex);
+				continue;
+			}
+
+			onReceived(message);
 		}
+	}
 
-		onReceived(message);
+	/**
+	 * Read a system exclusive message into {@link #bytes}.
+	 * 
+	 * @return length of message
+	 */
+	private int sysex() {
+		int length = 1;
+		bytes[0] = (byte) SysexMessage.SYSTEM_EXCLUSIVE;
+		while (buffer.hasRemaining()) {
+			byte data = buffer.get();
+
+			if (length == bytes.length) {
+				byte[] temp = new byte[bytes.length * 2];
+				System.arraycopy(bytes, 0, temp, 0, length);
+				bytes = temp;
+			}
+			bytes[length++] = data;
+
+			if ((data & 0xff) == ShortMessage.END_OF_EXCLUSIVE) {
+				break;
+			}
+		}
+		return length;
 	}
 
 	protected void onReceived(MidiMessage message) {
 	}
-}
\ No newline at end of file
+
+	/**
+	 * A source of framed datagrams.
+	 */
+	private class Source {
+
+		/**
+		 * Width of the window of recent sequence numbers.
+		 */
+		private static final int WINDOW = 64;
+
+		private boolean initialized;
+
+		/**
+		 * The highest sequence number received so far.
+		 */
+		private int sequence;
+
+		/**
+		 * Bits of received sequence numbers in the window up to
+		 * {@link #sequence}.
+		 */
+		private long window;
+
+		private long minTransit;
+
+		/**
+		 * A datagram was received.
+		 * 
+		 * @return <code>false</code> if the datagram is a duplicate
+		 */
+		public boolean received(int sequence, long timestamp) {
+			long transit = Frame.elapsed(timestamp);
+
+			if (!initialized) {
+				initialized = true;
+				this.sequence = sequence;
+				this.window = 1;
+				this.minTransit = transit;
+			} else {
+				int delta = Frame.distance(this.sequence, sequence);
+				if (delta > 0) {
+					if (delta > 1) {
+						statistics.lost(delta - 1);
+						onLost(delta - 1);
+					}
+					window = delta >= WINDOW ? 1 : (window << delta) | 1;
+					this.sequence = sequence;
+				} else {
+					long bit = -delta < WINDOW ? 1l << -delta : 0;
+					if ((window & bit) != 0) {
+						statistics.duplicated();
+						return false;
+					}
+					window |= bit;
+					statistics.reordered(bit != 0);
+				}
+				minTransit = Math.min(minTransit, transit);
+			}
+
+			statistics.received(transit - minTransit);
+
+			return true;
+		}
+	}
+}
@@ -19,26 +19,80 @@
 package jorgan.lan.net;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
 import java.net.InetAddress;
-import java.net.MulticastSocket;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 
 import javax.sound.midi.MidiMessage;
 
+/**
+ * A sender of messages to a multicast group.
+ * <p>
+ * Queued messages are concatenated into a single datagram until the next
+ * {@link #flush()}, as supported by ipMIDI. Optionally each datagram is framed
+ * with a sequence number and timestamp.
+ * 
+ * @see Frame
+ */
 public class MessageSender {
 
-	private MulticastSocket socket;
+	/**
+	 * Maximum size of a datagram which is not fragmented on Ethernet.
+	 */
+	public static final int DATAGRAM_SIZE = 1472;
+
+	private DatagramChannel channel;
+
+	private InetSocketAddress target;
+
+	/**
+	 * Buffer for queued messages.
+	 */
+	private ByteBuffer queued = ByteBuffer.allocateDirect(DATAGRAM_SIZE);
+
+	/**
+	 * Buffer currently sent - swapped with {@link #queued} on flush.
+	 */
+	private ByteBuffer sending = ByteBuffer.allocateDirect(DATAGRAM_SIZE);
 
-	private InetAddress group;
+	private final Object flushLock = new Object();
 
-	private int port;
+	/**
+	 * Start of messages in the buffers, i.e. the length of the frame header if
+	 * framed.
+	 */
+	private int start;
+
+	private int sequence;
 
 	public MessageSender(InetAddress group, int port) throws IOException {
-		this.port = port;
-		this.group = group;
+		this(group, port, false);
+	}
+
+	/**
+	 * Create a sender.
+	 * 
+	 * @param group
+	 *            multicast group
+	 * @param port
+	 *            port
+	 * @param framed
+	 *            should datagrams be framed
+	 */
+	public MessageSender(InetAddress group, int port, boolean framed)
+			throws IOException {
+		this.target = new InetSocketAddress(group, port);
+
+		if (framed) {
+			start = Frame.LENGTH;
+			queued.position(start);
+			sending.position(start);
+		}
 
 		try {
-			socket = new MulticastSocket();
+			channel = DatagramChannel.open(StandardProtocolFamily.INET);
 		} catch (IOException e) {
 			close();
 
@@ -47,19 +101,116 @@ public class MessageSender {
 	}
 
 	public void close() {
-		if (socket != null) {
-			socket.close();
-			socket = null;
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException ignore) {
+			}
+			channel = null;
 		}
 	}
 
+	/**
+	 * Send the given message immediately, including all previously queued
+	 * messages.
+	 * 
+	 * @param message
+	 *            message to send
+	 */
 	public void send(MidiMessage message) throws IOException {
-		if (socket == null) {
+		queue(message);
+
+		flush();
+	}
+
+	/**
+	 * Queue the given message, to be sent with the next {@link #flush()}.
+	 * 
+	 * @param message
+	 *            message to queue
+	 */
+	public void queue(MidiMessage message) throws IOException {
+		if (channel == null) {
 			throw new IllegalStateException("not open");
 		}
 
-		DatagramPacket packet = new DatagramPacket(message.getMessage(),
-				message.getLength(), group, port);
-		socket.send(packet);
+		byte[] bytes = message.getMessage();
+		int length = message.getLength();
+
+		if (!offer(bytes, length)) {
+			flush();
+
+			if (!offer(bytes, length)) {
+				// too large for a single datagram
+				synchronized (flushLock) {
+					ByteBuffer buffer = ByteBuffer.allocate(start + length);
+					buffer.position(start);
+					buffer.put(bytes, 0, length);
+					buffer.flip();
+					send(buffer);
+				}
+			}
+		}
+	}
+
+	private synchronized boolean offer(byte[] bytes, int length) {
+		if (queued.remaining() < length) {
+			return false;
+		}
+
+		queued.put(bytes, 0, length);
+
+		notifyAll();
+
+		return true;
+	}
+
+	/**
+	 * Wait until messages are queued.
+	 * 
+	 * @throws InterruptedException
+	 */
+	public synchronized void awaitQueued() throws InterruptedException {
+		while (queued.position() == start) {
+			wait();
+		}
+	}
+
+	/**
+	 * Send all queued messages in a single datagram.
+	 */
+	public void flush() throws IOException {
+		synchronized (flushLock) {
+			synchronized (this) {
+				if (queued.position() == start) {
+					return;
+				}
+
+				ByteBuffer temp = sending;
+				sending = queued;
+				queued = temp;
+			}
+
+			sending.flip();
+			try {
+				send(sending);
+			} finally {
+				sending.clear();
+				sending.position(start);
+			}
+		}
+	}
+
+	private void send(ByteBuffer buffer) throws IOException {
+		DatagramChannel channel = this.channel;
+		if (channel == null) {
+			throw new IllegalStateException("not open");
+		}
+
+		if (start > 0) {
+			Frame.write(buffer, sequence++, Frame.now());
+		}
+
+		channel.send(buffer, target);
 	}
 }
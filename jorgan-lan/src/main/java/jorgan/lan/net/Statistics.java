@@ -0,0 +1,143 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.lan.net;
+
+import java.util.Arrays;
+
+/**
+ * Statistics of received framed datagrams.
+ * 
+ * @see Frame
+ */
+public class Statistics {
+
+	/**
+	 * Upper bounds of the jitter histogram buckets in microseconds - the last
+	 * bucket holds all greater jitters.
+	 */
+	private static final long[] BOUNDS = { 50, 100, 200, 500, 1000, 2000,
+			5000, 10000, 20000, 50000 };
+
+	private long datagrams;
+
+	private long lost;
+
+	private long reordered;
+
+	private long duplicated;
+
+	private long[] histogram = new long[BOUNDS.length + 1];
+
+	synchronized void received(long jitter) {
+		datagrams++;
+
+		int bucket = 0;
+		while (bucket < BOUNDS.length && jitter > BOUNDS[bucket]) {
+			bucket++;
+		}
+		histogram[bucket]++;
+	}
+
+	synchronized void lost(int count) {
+		lost += count;
+	}
+
+	synchronized void reordered(boolean wasLost) {
+		reordered++;
+		if (wasLost) {
+			lost--;
+		}
+	}
+
+	synchronized void duplicated() {
+		duplicated++;
+	}
+
+	/**
+	 * Number of received framed datagrams.
+	 */
+	public synchronized long getDatagrams() {
+		return datagrams;
+	}
+
+	/**
+	 * Number of datagrams missing in the sequence and not received late.
+	 */
+	public synchronized long getLost() {
+		return lost;
+	}
+
+	/**
+	 * Number of datagrams received out of order.
+	 */
+	public synchronized long getReordered() {
+		return reordered;
+	}
+
+	public synchronized long getDuplicated() {
+		return duplicated;
+	}
+
+	/**
+	 * Get the upper bounds of the histogram buckets.
+	 * 
+	 * @return bounds in microseconds
+	 * @see #getHistogram()
+	 */
+	public long[] getBounds() {
+		return BOUNDS.clone();
+	}
+
+	/**
+	 * Get the histogram of one-way jitter, i.e. the transit time of each
+	 * datagram relative to the fastest one.
+	 * 
+	 * @return counts of datagrams per bucket
+	 * @see #getBounds()
+	 */
+	public synchronized long[] getHistogram() {
+		return histogram.clone();
+	}
+
+	public synchronized void reset() {
+		datagrams = 0;
+		lost = 0;
+		reordered = 0;
+		duplicated = 0;
+		Arrays.fill(histogram, 0);
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder builder = new StringBuilder();
+
+		builder.append("datagrams ").append(datagrams);
+		builder.append(", lost ").append(lost);
+		builder.append(", reordered ").append(reordered);
+		builder.append(", duplicated ").append(duplicated);
+		builder.append(", jitter");
+		for (int b = 0; b < histogram.length; b++) {
+			builder.append(b < BOUNDS.length ? " <=" + BOUNDS[b] : " >"
+					+ BOUNDS[BOUNDS.length - 1])
+					.append(":").append(histogram[b]);
+		}
+
+		return builder.toString();
+	}
+}
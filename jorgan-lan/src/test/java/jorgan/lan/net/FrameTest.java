@@ -0,0 +1,57 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.lan.net;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link Frame}.
+ */
+public class FrameTest extends TestCase {
+
+	public void testDataBytes() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(Frame.LENGTH);
+		Frame.write(buffer, 0xffffffff, Long.MAX_VALUE);
+
+		assertEquals(Frame.MARKER, buffer.get(0) & 0xff);
+		for (int b = 1; b < Frame.LENGTH; b++) {
+			assertTrue(buffer.get(b) >= 0);
+		}
+		assertTrue(Frame.isFramed(buffer));
+	}
+
+	public void testWrap() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(Frame.LENGTH);
+
+		int sequence = (1 << 28) - 1;
+		Frame.write(buffer, sequence, Frame.now());
+		int last = Frame.getSequence(buffer);
+
+		Frame.write(buffer, sequence + 1, Frame.now());
+		int next = Frame.getSequence(buffer);
+
+		assertEquals(0, next);
+		assertEquals(1, Frame.distance(last, next));
+		assertEquals(-1, Frame.distance(next, last));
+
+		assertTrue(Frame.elapsed(Frame.getTimestamp(buffer)) >= 0);
+	}
+}
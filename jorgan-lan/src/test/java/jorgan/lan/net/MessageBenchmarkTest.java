@@ -0,0 +1,167 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.lan.net;
+
+import java.util.logging.Logger;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.ShortMessage;
+
+import jorgan.lan.IpMidi;
+import jorgan.midi.MessageUtils;
+import junit.framework.TestCase;
+
+/**
+ * Benchmark for {@link MessageSender} and {@link MessageReceiver} over
+ * loopback multicast - sending is paced, so no messages are lost. Latency
+ * and throughput are logged and asserted against bounds generous enough for
+ * a loaded machine.
+ */
+public class MessageBenchmarkTest extends TestCase {
+
+	private static final Logger logger = Logger
+			.getLogger(MessageBenchmarkTest.class.getName());
+
+	private static final int COUNT = 10000;
+
+	private static final int BATCH = 16;
+
+	/**
+	 * Maximum count of messages in flight.
+	 */
+	private static final int WINDOW = 256;
+
+	/**
+	 * Bound of the average latency of a message in microseconds.
+	 */
+	private static final long MAX_AVERAGE_LATENCY = 5000;
+
+	/**
+	 * Bound of the throughput in messages per second.
+	 */
+	private static final long MIN_THROUGHPUT = 2000;
+
+	private MessageSender sender;
+
+	private MessageReceiver receiver;
+
+	private int received;
+
+	@Override
+	protected void setUp() throws Exception {
+		receiver = new MessageReceiver(IpMidi.GROUP, IpMidi.port(2)) {
+			@Override
+			protected void onReceived(MidiMessage message) {
+				synchronized (MessageBenchmarkTest.this) {
+					received++;
+					MessageBenchmarkTest.this.notifyAll();
+				}
+			}
+		};
+		sender = new MessageSender(IpMidi.GROUP, IpMidi.port(2));
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		sender.close();
+		receiver.close();
+	}
+
+	public void testLatency() throws Exception {
+		ShortMessage message = MessageUtils.createMessage(144, 64, 100);
+
+		int count = COUNT / 10;
+		long total = 0;
+		long max = 0;
+		for (int m = 0; m < count; m++) {
+			long start = System.nanoTime();
+			sender.send(message);
+			assertTrue(await(m + 1));
+			long latency = (System.nanoTime() - start) / 1000;
+
+			total += latency;
+			max = Math.max(max, latency);
+		}
+		assertEquals(count, received);
+
+		long average = total / count;
+		logger.info("latency average " + average + "us, max " + max + "us");
+		assertTrue("average latency " + average + "us",
+				average < MAX_AVERAGE_LATENCY);
+	}
+
+	public void testThroughputSingle() throws Exception {
+		throughput(1);
+	}
+
+	/**
+	 * Batching messages into datagrams must not be slower than sending them
+	 * singly.
+	 */
+	public void testThroughputBatched() throws Exception {
+		long single = throughput(1);
+		long batched = throughput(BATCH);
+
+		assertTrue("batched " + batched + " single " + single,
+				batched >= single);
+	}
+
+	private long throughput(int batch) throws Exception {
+		ShortMessage message = MessageUtils.createMessage(144, 64, 100);
+
+		synchronized (this) {
+			received = 0;
+		}
+
+		long start = System.nanoTime();
+		for (int m = 0; m < COUNT; m++) {
+			sender.queue(message);
+			if (m % batch == batch - 1) {
+				sender.flush();
+			}
+			if (m % WINDOW == WINDOW - 1) {
+				sender.flush();
+				assertTrue(await(m + 1));
+			}
+		}
+		sender.flush();
+		assertTrue(await(COUNT));
+		assertEquals(COUNT, received);
+
+		long throughput = COUNT * 1000000000l / (System.nanoTime() - start);
+		logger.info("throughput batch " + batch + ": " + throughput
+				+ " messages/s");
+		assertTrue("throughput " + throughput + " messages/s",
+				throughput > MIN_THROUGHPUT);
+
+		return throughput;
+	}
+
+	private synchronized boolean await(int count) throws InterruptedException {
+		long end = System.currentTimeMillis() + 1000;
+		while (received < count) {
+			long wait = end - System.currentTimeMillis();
+			if (wait <= 0) {
+				return false;
+			}
+			wait(wait);
+		}
+		return true;
+	}
+}
@@ -18,9 +18,17 @@
  */
 package jorgan.lan.net;
 
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.sound.midi.MidiMessage;
+import javax.sound.midi.ShortMessage;
 
 import jorgan.lan.IpMidi;
+import jorgan.midi.MessageUtils;
 import junit.framework.TestCase;
 
 /**
@@ -57,4 +65,93 @@ public class MessageReceiverTest extends TestCase {
 		assertFalse(received);
 		assertFalse(exception);
 	}
+
+	public void testConcatenated() throws Exception {
+		final List<MidiMessage> messages = new ArrayList<MidiMessage>();
+
+		MessageReceiver receiver = new MessageReceiver(IpMidi.GROUP, IpMidi
+				.port(1)) {
+			@Override
+			protected void onReceived(MidiMessage message) {
+				synchronized (messages) {
+					messages.add(message);
+					messages.notifyAll();
+				}
+			}
+		};
+
+		MessageSender sender = new MessageSender(IpMidi.GROUP, IpMidi.port(1));
+		sender.queue(MessageUtils.createMessage(144, 64, 100));
+		sender.queue(MessageUtils.createMessage(192, 5, 0));
+		sender.queue(MessageUtils.createMessage(new byte[] { (byte) 0xF0, 1,
+				2, (byte) 0xF7 }));
+		sender.queue(MessageUtils.createMessage(128, 64, 0));
+		sender.flush();
+
+		synchronized (messages) {
+			long end = System.currentTimeMillis() + 1000;
+			while (messages.size() < 4 && System.currentTimeMillis() < end) {
+				messages.wait(100);
+			}
+		}
+
+		sender.close();
+		receiver.close();
+
+		assertEquals(4, messages.size());
+		assertEquals(64, ((ShortMessage) messages.get(0)).getData1());
+		assertEquals(2, messages.get(1).getLength());
+		assertEquals(4, messages.get(2).getLength());
+		assertEquals(128, ((ShortMessage) messages.get(3)).getCommand());
+	}
+
+	public void testFramed() throws Exception {
+		final List<MidiMessage> messages = new ArrayList<MidiMessage>();
+		final int[] lost = new int[1];
+
+		MessageReceiver receiver = new MessageReceiver(IpMidi.GROUP, IpMidi
+				.port(1)) {
+			@Override
+			protected void onReceived(MidiMessage message) {
+				synchronized (messages) {
+					messages.add(message);
+					messages.notifyAll();
+				}
+			}
+
+			@Override
+			protected void onLost(int count) {
+				lost[0] += count;
+			}
+		};
+
+		DatagramChannel channel = DatagramChannel.open();
+		InetSocketAddress target = new InetSocketAddress(IpMidi.GROUP, IpMidi
+				.port(1));
+		for (int sequence : new int[] { 0, 1, 4, 2, 2, 5 }) {
+			ByteBuffer buffer = ByteBuffer.allocate(Frame.LENGTH + 3);
+			Frame.write(buffer, sequence, Frame.now());
+			buffer.position(Frame.LENGTH);
+			buffer.put(new byte[] { (byte) 144, (byte) sequence, 100 });
+			buffer.flip();
+			channel.send(buffer, target);
+		}
+		channel.close();
+
+		synchronized (messages) {
+			long end = System.currentTimeMillis() + 1000;
+			while (messages.size() < 5 && System.currentTimeMillis() < end) {
+				messages.wait(100);
+			}
+		}
+		receiver.close();
+
+		Statistics statistics = receiver.getStatistics();
+		assertEquals(5, messages.size());
+		assertEquals(5, statistics.getDatagrams());
+		assertEquals(1, statistics.getLost());
+		assertEquals(1, statistics.getReordered());
+		assertEquals(1, statistics.getDuplicated());
+		assertEquals(2, lost[0]);
+	}
 }
@@ -33,14 +33,25 @@ import jorgan.lcd.lcdproc.Screen;
 import jorgan.problem.ElementProblems;
 import jorgan.problem.Problem;
 import jorgan.problem.Severity;
+import bias.Configuration;
 
 public class OrganDisplay {
 
+	private static Configuration config = Configuration.getRoot().get(
+			OrganDisplay.class);
+
+	/**
+	 * Maximum frames per second sent to LCDproc.
+	 */
+	private int refresh = 25;
+
 	private Map<Display, ScreenWrapper> wrappers = new HashMap<Display, ScreenWrapper>();
 
 	private ElementProblems problems;
 
 	public OrganDisplay(final Organ organ, ElementProblems problems) {
+		config.read(this);
+
 		organ.addOrganListener(new OrganAdapter() {
 			@Override
 			public void elementAdded(Element element) {
@@ -61,12 +72,10 @@ public class OrganDisplay {
 					remove((Display) element);
 					add((Display) element);
 				} else {
-					for (Display display : organ.getReferrer(element,
-							Display.class)) {
-						ScreenWrapper wrapper = wrappers.get(display);
-						if (wrapper != null) {
-							wrapper.update(element);
-						}
+					// wrappers know their displayed elements, so no need for
+					// a costly lookup of referrers
+					for (ScreenWrapper wrapper : wrappers.values()) {
+						wrapper.update(element);
 					}
 				}
 			}
@@ -139,7 +148,8 @@ public class OrganDisplay {
 					"LCDProc failure"));
 
 			try {
-				this.client = new Client(display.getHost(), display.getPort());
+				this.client = new Client(display.getHost(), display.getPort(),
+						refresh);
 				this.client.setName("jOrgan");
 
 				this.screen = client.addScreen();
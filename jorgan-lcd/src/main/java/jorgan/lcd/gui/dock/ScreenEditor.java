@@ -3,11 +3,10 @@ package jorgan.lcd.gui.dock;
 import jorgan.disposition.Element;
 import jorgan.disposition.Elements;
 import jorgan.disposition.event.OrganAdapter;
-import jorgan.disposition.event.OrganListener;
+import jorgan.gui.EventBridge;
 import jorgan.gui.dock.AbstractEditor;
 import jorgan.lcd.disposition.Display;
 import jorgan.session.OrganSession;
-import spin.Spin;
 
 public class ScreenEditor extends AbstractEditor {
 
@@ -24,7 +23,7 @@ public class ScreenEditor extends AbstractEditor {
 	public void setSession(OrganSession session) {
 		if (this.session != null) {
 			this.session.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(eventHandler));
+					EventBridge.organ(eventHandler));
 
 			setContent(null);
 		}
@@ -35,7 +34,7 @@ public class ScreenEditor extends AbstractEditor {
 			updateTitle();
 
 			this.session.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(eventHandler));
+					EventBridge.organ(eventHandler));
 		}
 	}
 
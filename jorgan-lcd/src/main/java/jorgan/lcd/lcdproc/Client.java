@@ -1,6 +1,8 @@
 package jorgan.lcd.lcdproc;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
@@ -10,16 +12,32 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
- * A client of {@link http://lcdproc.sourceforge.net}.
+ * A client of {@link http://lcdproc.sourceforge.net}.<br>
+ * Commands are sent asynchronously: Updates of widgets are coalesced into
+ * frames, dropping any update which doesn't change what is already
+ * displayed. Responses are read on a separate thread, a failure of the
+ * connection is reported on the following command.
  */
 public class Client {
 
+	private static final Logger logger = Logger.getLogger(Client.class
+			.getName());
+
 	private static final String DEFAULT_HOST = "localhost";
 
 	private static final int DEFAULT_PORT = 13666;
 
+	private static final int DEFAULT_REFRESH = 25;
+
 	private Socket socket;
 
 	private Writer writer;
@@ -30,6 +48,37 @@ public class Client {
 
 	private Dimension resolution;
 
+	/**
+	 * Milliseconds of a frame.
+	 */
+	private long frame;
+
+	/**
+	 * Commands to send in order.
+	 */
+	private List<String> commands = new ArrayList<String>();
+
+	/**
+	 * Updates to send, keyed by state.
+	 */
+	private Map<Object, String> updates = new LinkedHashMap<Object, String>();
+
+	/**
+	 * Updates already sent, keyed by state.
+	 */
+	private Map<Object, String> sent = new HashMap<Object, String>();
+
+	/**
+	 * Are taken commands and updates being written.
+	 */
+	private boolean writing;
+
+	private int dropped;
+
+	private int errors;
+
+	private IOException failure;
+
 	public Client() throws SocketTimeoutException, UnknownHostException,
 			IOException {
 		this(DEFAULT_HOST, DEFAULT_PORT);
@@ -40,40 +89,89 @@ public class Client {
 	 */
 	public Client(String host, int port) throws UnknownHostException,
 			SocketTimeoutException, IOException {
+		this(host, port, DEFAULT_REFRESH);
+	}
+
+	/**
+	 * Create a client to <code>LCDd</code>.
+	 * 
+	 * @param refresh
+	 *            maximum frames per second
+	 */
+	public Client(String host, int port, int refresh)
+			throws UnknownHostException, SocketTimeoutException, IOException {
+
+		if (refresh <= 0) {
+			throw new IllegalArgumentException("refresh must be positive");
+		}
+		this.frame = 1000 / refresh;
 
 		SocketAddress address = new InetSocketAddress(host, port);
 
 		socket = new Socket();
 		socket.connect(address, 1000);
 		socket.setSoTimeout(10 * 1000);
+		socket.setTcpNoDelay(true);
 
 		try {
-			writer = new OutputStreamWriter(socket.getOutputStream());
+			writer = new BufferedWriter(new OutputStreamWriter(socket
+					.getOutputStream()));
 
 			reader = new BufferedReader(new InputStreamReader(socket
 					.getInputStream()));
 
 			// response = "connect LCDproc 0.5dev protocol 0.3 lcd wid 20 hgt 4
 			// cellwid 5 cellhgt 8"
-			String response = sendImpl(new Parameters("hello"));
+			writer.write("hello\r\n");
+			writer.flush();
+			String response = reader.readLine();
+			if (response == null) {
+				throw new EOFException();
+			}
 			size = new Dimension(parse(response, "wid"), parse(response, "hgt"));
 			resolution = new Dimension(parse(response, "cellwid"), parse(
 					response, "cellhgt"));
+
+			// responses are read asynchronously from now on
+			socket.setSoTimeout(0);
 		} catch (IOException e) {
 			socket.close();
 
 			throw e;
 		}
+
+		start(new Thread("jOrgan LCDproc Writer") {
+			@Override
+			public void run() {
+				write();
+			}
+		});
+		start(new Thread("jOrgan LCDproc Reader") {
+			@Override
+			public void run() {
+				read();
+			}
+		});
+	}
+
+	private void start(Thread thread) {
+		thread.setDaemon(true);
+		thread.start();
 	}
 
 	public void close() throws IOException {
-		ensureOpen();
+		Socket tempSocket;
+		synchronized (this) {
+			if (socket == null) {
+				throw new IllegalStateException("already closed");
+			}
+
+			tempSocket = socket;
 
-		Socket tempSocket = socket;
+			socket = null;
 
-		writer = null;
-		reader = null;
-		socket = null;
+			notifyAll();
+		}
 
 		tempSocket.close();
 	}
@@ -91,30 +189,154 @@ public class Client {
 		}
 	}
 
-	private void ensureOpen() {
+	private void ensureOpen() throws IOException {
 		if (socket == null) {
 			throw new IllegalStateException("already closed");
 		}
+		if (failure != null) {
+			throw new IOException(failure);
+		}
 	}
 
-	private String sendImpl(Parameters parameters) throws IOException {
+	private synchronized void send(Parameters parameters) throws IOException {
 		ensureOpen();
 
-		writer.write(parameters.toString());
-		writer.write("\r\n");
-		writer.flush();
+		commands.add(parameters.toString());
 
-		String result = reader.readLine();
+		notifyAll();
+	}
+
+	private synchronized void update(Object state, Parameters parameters)
+			throws IOException {
+		ensureOpen();
+
+		String update = parameters.toString();
+
+		if (update.equals(updates.get(state))) {
+			dropped++;
+			return;
+		}
 
-		if (result.startsWith("huh?")) {
-			throw new IOException(result);
+		if (update.equals(sent.get(state))) {
+			// reverted before sent
+			updates.remove(state);
+			dropped++;
+			return;
 		}
 
-		return result;
+		updates.put(state, update);
+
+		notifyAll();
+	}
+
+	/**
+	 * Write pending commands and updates, at most once per frame.
+	 */
+	private void write() {
+		List<String> lines = new ArrayList<String>();
+		try {
+			while (true) {
+				synchronized (this) {
+					while (socket != null && commands.isEmpty()
+							&& updates.isEmpty()) {
+						wait();
+					}
+					if (socket == null) {
+						return;
+					}
+
+					lines.addAll(commands);
+					commands.clear();
+
+					lines.addAll(updates.values());
+					sent.putAll(updates);
+					updates.clear();
+
+					writing = true;
+				}
+
+				for (String line : lines) {
+					writer.write(line);
+					writer.write("\r\n");
+				}
+				writer.flush();
+				lines.clear();
+
+				synchronized (this) {
+					writing = false;
+
+					notifyAll();
+				}
+
+				Thread.sleep(frame);
+			}
+		} catch (InterruptedException ex) {
+		} catch (IOException ex) {
+			fail(ex);
+		}
+	}
+
+	/**
+	 * Read responses.
+	 */
+	private void read() {
+		try {
+			while (true) {
+				String response = reader.readLine();
+				if (response == null) {
+					throw new EOFException();
+				}
+
+				// ignore "success" as well as "listen" and "ignore" of screens
+				if (response.startsWith("huh?")) {
+					synchronized (this) {
+						errors++;
+					}
+					logger.log(Level.FINE, response);
+				}
+			}
+		} catch (IOException ex) {
+			fail(ex);
+		}
+	}
+
+	private synchronized void fail(IOException ex) {
+		if (socket != null) {
+			failure = ex;
+
+			logger.log(Level.FINE, "lcdproc failure", ex);
+		}
+	}
+
+	/**
+	 * Get the count of updates dropped because they didn't change the
+	 * display.
+	 */
+	public synchronized int getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Get the count of commands rejected by <code>LCDd</code>.
+	 */
+	public synchronized int getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Wait until all pending commands and updates are written.
+	 */
+	public synchronized void flush() throws IOException,
+			InterruptedException {
+		while (writing || !commands.isEmpty() || !updates.isEmpty()) {
+			ensureOpen();
+
+			wait(frame);
+		}
 	}
 
 	public void setName(String name) throws IOException {
-		sendImpl(new Parameters("client_set", "-name", name));
+		send(new Parameters("client_set", "-name", name));
 	}
 
 	public Screen addScreen() throws IOException {
@@ -124,7 +346,13 @@ public class Client {
 	private class ConnectionImpl implements Connection {
 		@Override
 		public void send(Parameters parameters) throws IOException {
-			sendImpl(parameters);
+			Client.this.send(parameters);
+		}
+
+		@Override
+		public void update(Object state, Parameters parameters)
+				throws IOException {
+			Client.this.update(state, parameters);
 		}
 	}
-}
\ No newline at end of file
+}
@@ -5,4 +5,11 @@ import java.io.IOException;
 public interface Connection {
 
 	public void send(Parameters parameters) throws IOException;
+
+	/**
+	 * Send an update of the given state, superseding any pending update of
+	 * the same state.
+	 */
+	public void update(Object state, Parameters parameters)
+			throws IOException;
 }
\ No newline at end of file
@@ -13,7 +13,8 @@ public abstract class Widget extends Component {
 	}
 
 	protected void set(Object... values) throws IOException {
-		send(new Parameters("widget_set", screen.id, this.id).append(values));
+		screen.connection.update(this, new Parameters("widget_set",
+				screen.id, this.id).append(values));
 	}
 
 	private void send(Parameters parameters) throws IOException {
@@ -0,0 +1,208 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.lcd.lcdproc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link Client} against a fake <code>LCDd</code>.
+ */
+public class AsynchronousClientTest extends TestCase {
+
+	private ServerSocket server;
+
+	private Socket socket;
+
+	private List<String> received = new ArrayList<String>();
+
+	@Override
+	protected void setUp() throws Exception {
+		server = new ServerSocket(0);
+
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					serve(server.accept());
+				} catch (IOException ignore) {
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		server.close();
+	}
+
+	private void serve(Socket socket) throws IOException {
+		this.socket = socket;
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				socket.getInputStream()));
+		Writer writer = new OutputStreamWriter(socket.getOutputStream());
+
+		while (true) {
+			String command = reader.readLine();
+			if (command == null) {
+				break;
+			}
+
+			if (command.equals("hello")) {
+				writer.write("connect LCDproc 0.5dev protocol 0.3 lcd wid 20 "
+						+ "hgt 4 cellwid 5 cellhgt 8\n");
+			} else {
+				synchronized (received) {
+					received.add(command);
+				}
+				if (command.startsWith("widget_set")
+						&& command.contains(" -1 ")) {
+					writer.write("huh? Invalid coordinates\n");
+				} else {
+					writer.write("success\n");
+				}
+			}
+			writer.flush();
+		}
+		socket.close();
+	}
+
+	private List<String> received(String prefix) {
+		List<String> commands = new ArrayList<String>();
+		synchronized (received) {
+			for (String command : received) {
+				if (command.startsWith(prefix)) {
+					commands.add(command);
+				}
+			}
+		}
+		return commands;
+	}
+
+	/**
+	 * Wait until all written commands are received.
+	 */
+	private void sync(Client client, Screen screen) throws Exception {
+		client.flush();
+
+		String name = "sync" + received.size();
+		screen.setName(name);
+		client.flush();
+
+		long end = System.currentTimeMillis() + 2000;
+		while (received("screen_set " + screen.id + " -name " + name)
+				.isEmpty()) {
+			assertTrue(System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+	}
+
+	public void testCoalesce() throws Exception {
+		Client client = new Client("localhost", server.getLocalPort(), 10);
+		Screen screen = client.addScreen();
+		assertEquals(20, screen.size.width);
+		assertEquals(4, screen.size.height);
+
+		HBarWidget bar = new HBarWidget(screen, 1, 1, 20);
+
+		for (int value = 0; value <= 1000; value++) {
+			bar.value(value / 1000d);
+		}
+		sync(client, screen);
+
+		List<String> sets = received("widget_set");
+		assertTrue(sets.size() < 10);
+		assertTrue(sets.get(sets.size() - 1).endsWith(" 100"));
+
+		assertEquals("widget_add " + screen.id + " " + bar.id + " hbar",
+				received("widget_add").get(0));
+
+		client.close();
+	}
+
+	public void testDrop() throws Exception {
+		Client client = new Client("localhost", server.getLocalPort(), 100);
+
+		Screen screen = client.addScreen();
+		StringWidget string = new StringWidget(screen, 1, 1);
+
+		string.value("a");
+		sync(client, screen);
+
+		string.value("a");
+		string.value("b");
+		string.value("a");
+		sync(client, screen);
+
+		assertEquals(1, received("widget_set").size());
+		assertEquals(2, client.getDropped());
+
+		client.close();
+	}
+
+	public void testError() throws Exception {
+		Client client = new Client("localhost", server.getLocalPort(), 100);
+
+		Screen screen = client.addScreen();
+		NumWidget num = new NumWidget(screen, -1);
+		num.value(1);
+		client.flush();
+
+		long end = System.currentTimeMillis() + 2000;
+		while (client.getErrors() == 0 && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, client.getErrors());
+
+		client.close();
+	}
+
+	public void testFailure() throws Exception {
+		Client client = new Client("localhost", server.getLocalPort(), 100);
+
+		Screen screen = client.addScreen();
+		client.flush();
+
+		socket.close();
+
+		try {
+			long end = System.currentTimeMillis() + 2000;
+			while (System.currentTimeMillis() < end) {
+				screen.setName("test");
+				Thread.sleep(10);
+			}
+			fail();
+		} catch (IOException expected) {
+		}
+
+		client.close();
+	}
+}
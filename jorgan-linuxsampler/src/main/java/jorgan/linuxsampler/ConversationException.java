@@ -1,11 +0,0 @@
-/**
- * 
- */
-package jorgan.linuxsampler;
-
-
-public class ConversationException extends Exception {
-	public ConversationException(String result) {
-		super(result);
-	}
-}
\ No newline at end of file
@@ -19,6 +19,8 @@
 package jorgan.linuxsampler;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
@@ -30,13 +32,29 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
 
 import jorgan.util.IOUtils;
 
+/**
+ * A client of LinuxSampler speaking LSCP.
+ */
 public class Linuxsampler {
 
+	/**
+	 * Maximum number of commands written ahead before their results are
+	 * read.
+	 */
+	private static final int WINDOW = 64;
+
 	private Socket socket;
 
+	private volatile boolean closed;
+
 	private Writer writer;
 
 	private BufferedReader reader;
@@ -49,9 +67,11 @@ public class Linuxsampler {
 		socket = new Socket();
 		socket.connect(address, 1000);
 		socket.setSoTimeout(10 * 1000);
+		socket.setTcpNoDelay(true);
 
 		try {
-			writer = new OutputStreamWriter(socket.getOutputStream());
+			writer = new BufferedWriter(new OutputStreamWriter(socket
+					.getOutputStream()));
 		} catch (IOException e) {
 			socket.close();
 
@@ -74,31 +94,48 @@ public class Linuxsampler {
 		return new Conversation();
 	}
 
+	/**
+	 * Close - a running conversation fails with an {@link IOException}.
+	 */
 	public void close() throws IOException {
 		ensureOpen();
 
-		Socket tempSocket = socket;
+		closed = true;
 
-		writer = null;
-		reader = null;
-		socket = null;
+		// closing the socket fails reading and writing of a running
+		// conversation, so it releases its lock
+		socket.close();
 
-		tempSocket.close();
+		synchronized (this) {
+			writer = null;
+			reader = null;
+		}
 	}
 
 	private void ensureOpen() {
-		if (socket == null) {
+		if (closed) {
 			throw new IllegalStateException("already closed");
 		}
 	}
 
+	/**
+	 * A conversation - commands are pipelined, i.e. written ahead without
+	 * waiting for their results, which are matched in order afterwards.
+	 */
 	public class Conversation {
-		private int warnings;
+
+		private int line;
+
+		private Deque<Result> pending = new ArrayDeque<Result>();
+
+		private List<Result> warnings = new ArrayList<Result>();
+
+		private List<Result> errors = new ArrayList<Result>();
 
 		private Conversation() {
 		}
 
-		public void send(String lscp) throws IOException, ConversationException {
+		public void send(String lscp) throws IOException {
 
 			BufferedReader reader = new BufferedReader(new StringReader(lscp));
 
@@ -109,23 +146,46 @@ public class Linuxsampler {
 			}
 		}
 
-		public void send(Reader reader) throws IOException,
-				ConversationException {
-			BufferedReader bufferedReader = new BufferedReader(reader);
-			while (true) {
-				String command = bufferedReader.readLine();
-
-				if (command == null) {
-					return;
+		/**
+		 * Send all commands read from the given reader. In contrast to an
+		 * interactive session, an erroneous command does not stop the
+		 * following commands from being sent - see {@link #getErrors()}.
+		 * 
+		 * @param reader
+		 *            reader of commands
+		 * @throws IOException
+		 *             if communication failed
+		 */
+		public void send(Reader reader) throws IOException {
+			synchronized (Linuxsampler.this) {
+				if (closed) {
+					throw new IOException("closed");
 				}
 
-				sendImpl(command);
+				BufferedReader bufferedReader = new BufferedReader(reader);
+				try {
+					while (true) {
+						String command = bufferedReader.readLine();
+
+						if (command == null) {
+							break;
+						}
+
+						sendImpl(command);
+					}
+
+					writer.flush();
+					while (!pending.isEmpty()) {
+						receive();
+					}
+				} finally {
+					pending.clear();
+				}
 			}
 		}
 
-		private void sendImpl(String command) throws IOException,
-				ConversationException {
-			ensureOpen();
+		private void sendImpl(String command) throws IOException {
+			line++;
 
 			command = command.trim();
 
@@ -142,30 +202,84 @@ public class Linuxsampler {
 
 			writer.write(command);
 			writer.write("\r\n");
-			writer.flush();
 
 			// empty commands and comments don't have a result
 			if (command.length() == 0 || command.startsWith("#")) {
 				return;
 			}
 
-			String result = reader.readLine();
+			pending.add(new Result(line, command));
 
-			if (result.startsWith("ERR")) {
-				throw new ConversationException(result);
+			if (pending.size() == WINDOW) {
+				writer.flush();
+				while (pending.size() > WINDOW / 2) {
+					receive();
+				}
 			}
+		}
+
+		private void receive() throws IOException {
+			String message = reader.readLine();
+			if (message == null) {
+				throw new EOFException();
+			}
+
+			Result result = pending.remove();
+			result.message = message;
 
-			if (result.startsWith("WRN")) {
-				warnings++;
+			if (message.startsWith("ERR")) {
+				errors.add(result);
+			} else if (message.startsWith("WRN")) {
+				warnings.add(result);
 			}
 		}
 
-		public int getWarnings() {
-			return warnings;
+		public List<Result> getWarnings() {
+			return Collections.unmodifiableList(warnings);
 		}
 
 		public boolean hasWarnings() {
-			return warnings > 0;
+			return !warnings.isEmpty();
+		}
+
+		public List<Result> getErrors() {
+			return Collections.unmodifiableList(errors);
+		}
+
+		public boolean hasErrors() {
+			return !errors.isEmpty();
+		}
+	}
+
+	/**
+	 * The result of a single command.
+	 */
+	public static class Result {
+
+		private int line;
+
+		private String command;
+
+		private String message;
+
+		private Result(int line, String command) {
+			this.line = line;
+			this.command = command;
+		}
+
+		/**
+		 * The line of the command, starting with <code>1</code>.
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		public String getCommand() {
+			return command;
+		}
+
+		public String getMessage() {
+			return message;
 		}
 	}
 }
\ No newline at end of file
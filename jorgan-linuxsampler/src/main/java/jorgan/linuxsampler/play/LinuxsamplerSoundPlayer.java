@@ -25,12 +25,16 @@ import java.io.Reader;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
 
-import jorgan.linuxsampler.ConversationException;
+import jorgan.io.FileWatcher;
+import jorgan.io.FileWatcher.Listener;
+import jorgan.io.FileWatcher.Watch;
 import jorgan.linuxsampler.Linuxsampler;
 import jorgan.linuxsampler.Linuxsampler.Conversation;
+import jorgan.linuxsampler.Linuxsampler.Result;
 import jorgan.linuxsampler.disposition.LinuxsamplerSound;
-import jorgan.linuxsampler.io.FileWatcher;
 import jorgan.play.GenericSoundPlayer;
+import jorgan.play.OrganPlay;
+import jorgan.play.sound.Loader;
 import jorgan.problem.Severity;
 import jorgan.util.IOUtils;
 import jorgan.util.Null;
@@ -45,7 +49,7 @@ public class LinuxsamplerSoundPlayer extends
 
 	private LinuxsamplerSound clone;
 
-	private FileWatcher watcher;
+	private Watch watch;
 
 	public LinuxsamplerSoundPlayer(LinuxsamplerSound sound) {
 		super(sound);
@@ -102,53 +106,49 @@ public class LinuxsamplerSoundPlayer extends
 		loadLscp();
 	}
 
-	private synchronized void loadLscp() {
+	private void loadLscp() {
 		removeProblem(Severity.WARNING, "lscp");
 		removeProblem(Severity.ERROR, "lscp");
 
+		if (watch != null) {
+			watch.cancel();
+			watch = null;
+		}
+
 		LinuxsamplerSound sound = getElement();
 		if (sound.getLscp() != null) {
-			Reader reader;
+			File file;
 			try {
-				File file = resolve(sound.getLscp());
-
-				reader = new FileReader(file);
-
-				watcher = new FileWatcher(file) {
-					@Override
-					protected void onChange(File file) {
-						watcher.cancel();
-						loadLscp();
-					}
-				};
-			} catch (IOException e1) {
+				file = resolve(sound.getLscp());
+			} catch (IOException e) {
+				file = null;
+			}
+			if (file == null || !file.isFile()) {
 				addProblem(Severity.ERROR, "lscp", "lscpNotFound", sound
 						.getLscp());
 				return;
 			}
 
-			try {
-				Conversation conversation = linuxsampler.conversation();
-
-				conversation.send(reader);
-
-				if (conversation.hasWarnings()) {
-					addProblem(Severity.WARNING, "lscp", "lscpWarnings",
-							conversation.getWarnings());
+			watch = FileWatcher.instance().watch(file, new Listener() {
+				public void onChange(File file) {
+					OrganPlay organPlay = getOrganPlay();
+					if (organPlay != null) {
+						synchronized (organPlay) {
+							if (watch != null && watch.getListener() == this) {
+								loadLscp();
+							}
+						}
+					}
 				}
-			} catch (IOException e) {
-				addProblem(Severity.ERROR, "host", "hostUnavailable");
-				return;
-			} catch (ConversationException e) {
-				addProblem(Severity.ERROR, "lscp", "lscpError", e.getMessage());
-				return;
-			} finally {
-				IOUtils.closeQuietly(reader);
-			}
+			});
+
+			load(new LscpLoader(linuxsampler.conversation(), file));
 		}
 	}
 
 	private void destroyLinuxsampler() {
+		cancelLoad();
+
 		if (linuxsampler != null) {
 			try {
 				linuxsampler.close();
@@ -158,10 +158,59 @@ public class LinuxsamplerSoundPlayer extends
 
 			clone = null;
 
-			if (watcher != null) {
-				watcher.cancel();
-				watcher = null;
+			if (watch != null) {
+				watch.cancel();
+				watch = null;
 			}
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Loader of a LSCP script, sending it to Linuxsampler off the play.
+	 */
+	private class LscpLoader implements Loader<Conversation> {
+
+		private Conversation conversation;
+
+		private File file;
+
+		public LscpLoader(Conversation conversation, File file) {
+			this.conversation = conversation;
+			this.file = file;
+		}
+
+		public Conversation load() {
+			Reader reader = null;
+			try {
+				reader = new FileReader(file);
+
+				conversation.send(reader);
+			} catch (IOException e) {
+				return null;
+			} finally {
+				IOUtils.closeQuietly(reader);
+			}
+			return conversation;
+		}
+
+		public void loaded(Conversation conversation) {
+			if (conversation == null) {
+				addProblem(Severity.ERROR, "host", "hostUnavailable");
+				return;
+			}
+
+			if (conversation.hasErrors()) {
+				Result error = conversation.getErrors().get(0);
+				addProblem(Severity.ERROR, "lscp", "lscpError", error
+						.getMessage(), error.getLine(), conversation
+						.getErrors().size());
+			} else if (conversation.hasWarnings()) {
+				addProblem(Severity.WARNING, "lscp", "lscpWarnings",
+						conversation.getWarnings().size());
+			}
+		}
+
+		public void discard(Conversation conversation) {
+		}
+	}
+}
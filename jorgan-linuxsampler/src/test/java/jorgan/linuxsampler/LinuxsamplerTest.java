@@ -0,0 +1,208 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.linuxsampler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import jorgan.linuxsampler.Linuxsampler.Conversation;
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link Linuxsampler} against a fake LSCP server.
+ */
+public class LinuxsamplerTest extends TestCase {
+
+	private ServerSocket server;
+
+	private List<String> received = new ArrayList<String>();
+
+	/**
+	 * Number of commands to receive before the first result is sent.
+	 */
+	private int delay;
+
+	@Override
+	protected void setUp() throws Exception {
+		server = new ServerSocket(0);
+
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					serve(server.accept());
+				} catch (IOException ignore) {
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		server.close();
+	}
+
+	private void serve(Socket socket) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				socket.getInputStream()));
+		Writer writer = new OutputStreamWriter(socket.getOutputStream());
+
+		List<String> results = new ArrayList<String>();
+		while (true) {
+			String command = reader.readLine();
+			if (command == null) {
+				break;
+			}
+			synchronized (received) {
+				received.add(command);
+			}
+
+			if (command.length() == 0 || command.startsWith("#")) {
+				continue;
+			}
+
+			if (command.startsWith("FAIL")) {
+				results.add("ERR:0:failed");
+			} else if (command.startsWith("WARN")) {
+				results.add("WRN:0:warned");
+			} else {
+				results.add("OK");
+			}
+
+			if (received.size() >= delay) {
+				for (String result : results) {
+					writer.write(result);
+					writer.write("\r\n");
+				}
+				writer.flush();
+				results.clear();
+			}
+		}
+		socket.close();
+	}
+
+	public void test() throws Exception {
+		Linuxsampler linuxsampler = new Linuxsampler("localhost", server
+				.getLocalPort());
+
+		Conversation conversation = linuxsampler.conversation();
+		conversation.send("# comment\nRESET\nWARN 1\nGET CHANNELS\n"
+				+ "FAIL 1\nRESET\nWARN 2\n");
+
+		assertEquals(2, conversation.getWarnings().size());
+		assertEquals(3, conversation.getWarnings().get(0).getLine());
+		assertEquals("WARN 2", conversation.getWarnings().get(1).getCommand());
+
+		assertEquals(1, conversation.getErrors().size());
+		assertEquals(5, conversation.getErrors().get(0).getLine());
+		assertEquals("ERR:0:failed", conversation.getErrors().get(0)
+				.getMessage());
+
+		linuxsampler.close();
+	}
+
+	/**
+	 * The server answers only after it received all commands, thus a client
+	 * waiting for each result would time out.
+	 */
+	public void testPipelined() throws Exception {
+		delay = 20;
+
+		Linuxsampler linuxsampler = new Linuxsampler("localhost", server
+				.getLocalPort());
+
+		StringBuilder lscp = new StringBuilder();
+		for (int c = 0; c < delay; c++) {
+			lscp.append("SET VOLUME 1\n");
+		}
+
+		long start = System.currentTimeMillis();
+		linuxsampler.conversation().send(lscp.toString());
+		assertTrue(System.currentTimeMillis() - start < 5000);
+
+		assertEquals(delay, received.size());
+
+		linuxsampler.close();
+	}
+
+	public void testLarge() throws Exception {
+		Linuxsampler linuxsampler = new Linuxsampler("localhost", server
+				.getLocalPort());
+
+		StringBuilder lscp = new StringBuilder();
+		for (int c = 0; c < 2000; c++) {
+			lscp.append(c % 100 == 0 ? "FAIL\n" : "SET VOLUME 1\n");
+		}
+
+		Conversation conversation = linuxsampler.conversation();
+		conversation.send(lscp.toString());
+
+		assertEquals(20, conversation.getErrors().size());
+		assertEquals(1901, conversation.getErrors().get(19).getLine());
+
+		linuxsampler.close();
+	}
+
+	/**
+	 * Closing fails a running conversation waiting for its results.
+	 */
+	public void testClose() throws Exception {
+		delay = Integer.MAX_VALUE;
+
+		Linuxsampler linuxsampler = new Linuxsampler("localhost", server
+				.getLocalPort());
+
+		final Conversation conversation = linuxsampler.conversation();
+		final Exception[] failure = new Exception[1];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					conversation.send("RESET\n");
+				} catch (Exception ex) {
+					failure[0] = ex;
+				}
+			}
+		};
+		thread.start();
+
+		Thread.sleep(200);
+		long start = System.currentTimeMillis();
+		linuxsampler.close();
+		thread.join(5000);
+
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertTrue(failure[0] instanceof IOException);
+
+		try {
+			conversation.send("RESET\n");
+			fail();
+		} catch (IOException expected) {
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.midimerger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock-free queue for multiple producers and a single consumer.
+ * 
+ * @param <T>
+ *            type of elements
+ */
+class MergeQueue<T> {
+
+	private final int mask;
+
+	private final AtomicReferenceArray<T> elements;
+
+	/**
+	 * Sequence of each slot, telling producers and consumer whether the slot
+	 * is free or filled.
+	 */
+	private final AtomicLongArray sequences;
+
+	/**
+	 * Next position to offer to.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * Next position to poll from - accessed by the consumer only.
+	 */
+	private long head;
+
+	/**
+	 * Create a queue.
+	 * 
+	 * @param capacity
+	 *            capacity, must be a power of two
+	 */
+	public MergeQueue(int capacity) {
+		if (Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("capacity must be a power of two");
+		}
+
+		mask = capacity - 1;
+		elements = new AtomicReferenceArray<T>(capacity);
+		sequences = new AtomicLongArray(capacity);
+		for (int s = 0; s < capacity; s++) {
+			sequences.set(s, s);
+		}
+	}
+
+	/**
+	 * Offer an element - may be called from any thread.
+	 * 
+	 * @return <code>false</code> if this queue is full
+	 */
+	public boolean offer(T element) {
+		while (true) {
+			long position = tail.get();
+			int index = (int) (position & mask);
+
+			long delta = sequences.get(index) - position;
+			if (delta == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					elements.lazySet(index, element);
+					sequences.set(index, position + 1);
+					return true;
+				}
+			} else if (delta < 0) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Poll an element - must be called by the consumer only.
+	 * 
+	 * @return element or <code>null</code> if this queue is empty
+	 */
+	public T poll() {
+		int index = (int) (head & mask);
+		if (sequences.get(index) != head + 1) {
+			return null;
+		}
+
+		T element = elements.get(index);
+		elements.lazySet(index, null);
+		sequences.set(index, head + mask + 1);
+		head++;
+
+		return element;
+	}
+}
@@ -20,8 +20,8 @@ package jorgan.midimerger;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.LockSupport;
 
-import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiDevice;
 import javax.sound.midi.MidiMessage;
 import javax.sound.midi.MidiUnavailableException;
@@ -31,18 +31,41 @@ import javax.sound.midi.ShortMessage;
 import jorgan.midi.DevicePool;
 import jorgan.midi.Direction;
 import jorgan.midi.Loopback;
-import jorgan.midi.MidiGate;
 import bias.Configuration;
 
 /**
  * <code>MidiDevice</code> for merging of mutiple other devices.
+ * <p>
+ * All inputs offer their messages to a shared lock-free queue, which is
+ * drained by a single merging thread. Short messages are copied into pooled
+ * messages with their channel rewritten in place - receivers get copies of
+ * these, since the pooled messages are reused.
+ * <p>
+ * If configured, merged messages are delivered asynchronously, so a slow
+ * receiver does not hold up merging.
+ * 
+ * @see #setAsynchronous(int)
  */
 public class MidiMerger extends Loopback {
 
 	private static Configuration config = Configuration.getRoot().get(
 			MidiMerger.class);
 
-	private MidiGate gate = new MidiGate();
+	/**
+	 * Capacity of the shared queue.
+	 */
+	private static final int CAPACITY = 1024;
+
+	/**
+	 * Size of the pool of messages of each input - messages are reused in
+	 * order, as soon as they were merged.
+	 */
+	private static final int POOL = 1024;
+
+	/**
+	 * Is merging active.
+	 */
+	private volatile boolean merging;
 
 	/**
 	 * The list of inputs to merge.
@@ -51,6 +74,15 @@ public class MidiMerger extends Loopback {
 
 	private List<Merger> mergers = new ArrayList<Merger>();
 
+	private MergeQueue<Entry> queue;
+
+	private volatile Thread thread;
+
+	/**
+	 * Is the merging thread waiting for entries.
+	 */
+	private volatile boolean waiting;
+
 	/**
 	 * Create a new midiMerger.
 	 * 
@@ -83,15 +115,42 @@ public class MidiMerger extends Loopback {
 		this.inputs = inputs;
 	}
 
+	/**
+	 * Get the throughput of the given input device.
+	 * 
+	 * @param device
+	 *            name of input device
+	 * @return throughput or <code>null</code> if the device is not merged
+	 *         currently
+	 */
+	public synchronized Throughput getThroughput(String device) {
+		for (Merger merger : mergers) {
+			if (merger.name.equals(device)) {
+				return merger.throughput;
+			}
+		}
+		return null;
+	}
+
 	@Override
 	public void open() throws MidiUnavailableException {
 		super.open();
 
-		gate.open();
+		merging = true;
 	}
 
 	@Override
 	protected synchronized void openImpl() throws MidiUnavailableException {
+		queue = new MergeQueue<Entry>(CAPACITY);
+
+		thread = new Thread(new Runnable() {
+			public void run() {
+				merge();
+			}
+		}, "jOrgan Midi Merger");
+		thread.setDaemon(true);
+		thread.start();
+
 		for (MergeInput input : inputs) {
 			mergers.add(new Merger(input.getDevice(), input.getChannel()));
 		}
@@ -99,7 +158,7 @@ public class MidiMerger extends Loopback {
 
 	@Override
 	public void close() {
-		gate.close();
+		merging = false;
 
 		super.close();
 	}
@@ -111,11 +170,119 @@ public class MidiMerger extends Loopback {
 		}
 		mergers.clear();
 
+		if (thread != null) {
+			Thread thread = this.thread;
+			this.thread = null;
+			LockSupport.unpark(thread);
+		}
+
 		super.closeImpl();
 	}
 
+	/**
+	 * Merge queued entries until closed.
+	 */
+	private void merge() {
+		Thread current = Thread.currentThread();
+		MergeQueue<Entry> queue = this.queue;
+
+		while (thread == current) {
+			Entry entry = queue.poll();
+			if (entry == null) {
+				waiting = true;
+				entry = queue.poll();
+				if (entry == null) {
+					LockSupport.park(this);
+				}
+				waiting = false;
+				if (entry == null) {
+					continue;
+				}
+			}
+
+			if (entry.message == entry.pooled) {
+				loopOutReused(entry.message);
+			} else {
+				loopOut(entry.message);
+			}
+
+			entry.merged();
+		}
+	}
+
+	/**
+	 * An entry in the queue.
+	 */
+	private static class Entry {
+
+		private final Merger merger;
+
+		/**
+		 * The pooled message of this entry.
+		 */
+		private final PooledMessage pooled = new PooledMessage();
+
+		private MidiMessage message;
+
+		/**
+		 * Nanotime of receiving.
+		 */
+		private long received;
+
+		/**
+		 * Is this entry queued.
+		 */
+		private volatile boolean queued;
+
+		public Entry(Merger merger) {
+			this.merger = merger;
+		}
+
+		public void merged() {
+			merger.throughput.merged(System.nanoTime() - received);
+
+			message = null;
+			queued = false;
+		}
+	}
+
+	/**
+	 * A short message that can be rewritten in place.
+	 */
+	private static class PooledMessage extends ShortMessage {
+
+		public PooledMessage() {
+			super(new byte[3]);
+		}
+
+		/**
+		 * Rewrite with the given message.
+		 * 
+		 * @param message
+		 *            message to copy
+		 * @param channel
+		 *            the channel to map to or <code>-1</code>
+		 */
+		public void rewrite(ShortMessage message, int channel) {
+			byte[] bytes = message.getMessage();
+
+			length = message.getLength();
+			System.arraycopy(bytes, 0, data, 0, length);
+
+			int status = data[0] & 0xff;
+			if (status < 0xF0 && channel != -1) {
+				data[0] = (byte) ((status & 0xF0) | (channel & 0x0F));
+			}
+		}
+	}
+
 	private class Merger implements Receiver {
 
+		/**
+		 * The name of the input device.
+		 */
+		private String name;
+
 		/**
 		 * The input device to receive messages from.
 		 */
@@ -127,6 +294,12 @@ public class MidiMerger extends Loopback {
 		 */
 		private int channel;
 
+		private final Entry[] pool = new Entry[POOL];
+
+		private int next;
+
+		private final Throughput throughput = new Throughput();
+
 		/**
 		 * Create a new receiver for the given input.
 		 * 
@@ -140,47 +313,56 @@ public class MidiMerger extends Loopback {
 		public Merger(String device, int channel)
 				throws MidiUnavailableException {
 
+			for (int e = 0; e < pool.length; e++) {
+				pool[e] = new Entry(this);
+			}
+
+			this.name = device;
+			this.channel = channel;
+
 			this.device = DevicePool.instance().getMidiDevice(device,
 					Direction.IN);
 			this.device.open();
 
-			this.device.getTransmitter().setReceiver(gate.guard(this));
-
-			this.channel = channel;
+			this.device.getTransmitter().setReceiver(this);
 		}
 
 		@Override
 		public void send(MidiMessage message, long timestamp) {
-			if (message instanceof ShortMessage) {
-				message = mapChannel((ShortMessage) message);
+			if (!merging) {
+				return;
 			}
-			loopOut(message);
-		}
 
-		/**
-		 * Map the channel of the given message.
-		 * 
-		 * @param message
-		 *            message to map channel
-		 * @return new message with mapped channel
-		 */
-		private MidiMessage mapChannel(ShortMessage message) {
-
-			int command = message.getCommand();
-			int data1 = message.getData1();
-			int data2 = message.getData2();
-
-			if (command < 0xF0 && channel != -1) {
-				try {
-					ShortMessage mapped = new ShortMessage();
-					mapped.setMessage(command, channel, data1, data2);
-					message = mapped;
-				} catch (InvalidMidiDataException ex) {
-					throw new Error(
-							"unexpected invalid data in MidiMerger channel mapping");
+			Entry entry = pool[next];
+			if (entry.queued) {
+				// pool exhausted, so use a fresh entry
+				entry = new Entry(this);
+			} else {
+				next = (next + 1) % pool.length;
+			}
+
+			if (message instanceof ShortMessage) {
+				entry.pooled.rewrite((ShortMessage) message, channel);
+				entry.message = entry.pooled;
+			} else {
+				entry.message = message;
+			}
+			entry.received = System.nanoTime();
+			entry.queued = true;
+
+			if (!queue.offer(entry)) {
+				throughput.overflow();
+				while (!queue.offer(entry)) {
+					if (!merging) {
+						return;
+					}
+					Thread.yield();
 				}
 			}
-			return message;
+
+			if (waiting) {
+				LockSupport.unpark(thread);
+			}
 		}
 
 		@Override
@@ -188,4 +370,4 @@ public class MidiMerger extends Loopback {
 			device.close();
 		}
 	}
-}
\ No newline at end of file
+}
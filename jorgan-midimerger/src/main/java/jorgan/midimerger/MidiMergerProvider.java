@@ -50,13 +50,22 @@ public class MidiMergerProvider extends MidiDeviceProvider {
 	@Override
 	public MidiDevice getDevice(MidiDevice.Info info) {
 		if (MidiMergerProvider.INFO == info) {
-			if (midiMerger == null) {
-				midiMerger = new MidiMerger(info);
-			}
-			
-			return midiMerger;
+			return getMidiMerger();
 		}
 
 		return null;
 	}
+
+	/**
+	 * Get the device.
+	 * 
+	 * @return the device
+	 */
+	public static synchronized MidiMerger getMidiMerger() {
+		if (midiMerger == null) {
+			midiMerger = new MidiMerger(INFO);
+		}
+
+		return midiMerger;
+	}
 }
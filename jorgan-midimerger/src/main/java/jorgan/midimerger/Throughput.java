@@ -0,0 +1,87 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.midimerger;
+
+/**
+ * The throughput of a merged input.
+ */
+public class Throughput {
+
+	private volatile long count;
+
+	private volatile long latency;
+
+	private volatile long maxLatency;
+
+	private volatile long overflows;
+
+	/**
+	 * A message was merged - called by the merging thread only.
+	 * 
+	 * @param latency
+	 *            nanoseconds from receiving to merging
+	 */
+	void merged(long latency) {
+		this.count++;
+		this.latency += latency;
+		if (latency > maxLatency) {
+			maxLatency = latency;
+		}
+	}
+
+	void overflow() {
+		overflows++;
+	}
+
+	/**
+	 * Get the count of merged messages.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the average latency from receiving to merging.
+	 * 
+	 * @return latency in microseconds
+	 */
+	public long getAverageLatency() {
+		long count = this.count;
+		if (count == 0) {
+			return 0;
+		}
+		return latency / count / 1000;
+	}
+
+	/**
+	 * Get the maximum latency from receiving to merging.
+	 * 
+	 * @return latency in microseconds
+	 */
+	public long getMaxLatency() {
+		return maxLatency / 1000;
+	}
+
+	/**
+	 * Get the count of messages which had to wait for a full queue.
+	 */
+	public long getOverflows() {
+		return overflows;
+	}
+}
@@ -20,13 +20,19 @@ package jorgan.midimerger.gui.preferences;
 
 import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.swing.JComponent;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
 import javax.swing.JTable;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.Timer;
 
 import jorgan.gui.preferences.category.AppCategory;
 import jorgan.gui.preferences.category.JOrganCategory;
@@ -35,12 +41,16 @@ import jorgan.midi.Direction;
 import jorgan.midimerger.MergeInput;
 import jorgan.midimerger.MidiMerger;
 import jorgan.midimerger.MidiMergerProvider;
+import jorgan.midimerger.Throughput;
+import jorgan.swing.layout.DefinitionBuilder;
+import jorgan.swing.layout.DefinitionBuilder.Column;
 import jorgan.swing.table.BaseTableModel;
 import jorgan.swing.table.SpinnerCellEditor;
 import jorgan.swing.table.TableUtils;
 import jorgan.swing.text.MultiLineLabel;
 import bias.Configuration;
 import bias.swing.Category;
+import bias.util.MessageBuilder;
 import bias.util.Property;
 
 /**
@@ -54,6 +64,9 @@ public class MidiMergerCategory extends JOrganCategory {
 	private Model<List<MergeInput>> inputs = getModel(new Property(
 			MidiMerger.class, "inputs"));
 
+	private Model<Integer> asynchronous = getModel(new Property(
+			MidiMerger.class, "asynchronous"));
+
 	/**
 	 * All available inputs.
 	 */
@@ -71,6 +84,25 @@ public class MidiMergerCategory extends JOrganCategory {
 	 */
 	private InputsModel tableModel = new InputsModel();
 
+	private JSpinner asynchronousSpinner;
+
+	private JLabel dropsLabel = new JLabel();
+
+	/**
+	 * Refreshes the throughput of the inputs while showing.
+	 */
+	private Timer timer = new Timer(1000, new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+			if (table.isShowing()) {
+				tableModel.fireTableRowsUpdated(0, allInputs.size() - 1);
+
+				updateDrops();
+			} else {
+				timer.stop();
+			}
+		}
+	});
+
 	public MidiMergerCategory() {
 		config.read(this);
 
@@ -97,16 +129,36 @@ public class MidiMergerCategory extends JOrganCategory {
 		scrollPane.setPreferredSize(new Dimension(0, 0));
 		panel.add(scrollPane, BorderLayout.CENTER);
 
+		JPanel queuePanel = new JPanel();
+		panel.add(queuePanel, BorderLayout.SOUTH);
+
+		DefinitionBuilder builder = new DefinitionBuilder(queuePanel);
+
+		Column column = builder.column();
+
+		column.term(config.get("asynchronous").read(new JLabel()));
+
+		asynchronousSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 4096,
+				64));
+		column.definition(asynchronousSpinner);
+
+		column.definition(dropsLabel);
+
 		return panel;
 	}
 
+	private void updateDrops() {
+		dropsLabel.setText(config.get("drops").read(new MessageBuilder())
+				.build(MidiMergerProvider.getMidiMerger().getDropCount()));
+	}
+
 	/**
 	 * The table model for handling of inputs to the Midi-Merger.
 	 */
 	public class InputsModel extends BaseTableModel<MergeInput> {
 
 		public int getColumnCount() {
-			return 3;
+			return 5;
 		}
 
 		@Override
@@ -118,6 +170,10 @@ public class MidiMergerCategory extends JOrganCategory {
 				return String.class;
 			case 2:
 				return Integer.class;
+			case 3:
+				return Long.class;
+			case 4:
+				return String.class;
 			}
 			return null;
 		}
@@ -141,10 +197,23 @@ public class MidiMergerCategory extends JOrganCategory {
 				return input.getDevice();
 			case 2:
 				return new Integer(input.getChannel() + 1);
+			case 3:
+				Throughput throughput = getThroughput(input);
+				return throughput == null ? null : throughput.getCount();
+			case 4:
+				throughput = getThroughput(input);
+				return throughput == null ? null : throughput
+						.getAverageLatency()
+						+ " / " + throughput.getMaxLatency() + " \u00B5s";
 			}
 			return null;
 		}
 
+		private Throughput getThroughput(MergeInput input) {
+			return MidiMergerProvider.getMidiMerger().getThroughput(
+					input.getDevice());
+		}
+
 		@Override
 		protected boolean isEditable(MergeInput input, int columnIndex) {
 			return columnIndex == 0
@@ -210,10 +279,16 @@ public class MidiMergerCategory extends JOrganCategory {
 		}
 
 		tableModel.fireTableDataChanged();
+
+		asynchronousSpinner.setValue(asynchronous.getValue());
+		updateDrops();
+
+		timer.start();
 	}
 
 	@Override
 	protected void write() {
 		inputs.setValue(selectedInputs);
+		asynchronous.setValue((Integer) asynchronousSpinner.getValue());
 	}
 }
\ No newline at end of file
@@ -0,0 +1,168 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.midimerger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+
+import jorgan.midi.DevicePool;
+import jorgan.midi.Direction;
+import jorgan.midi.MessageUtils;
+import jorgan.midi.MidiLogger;
+import jorgan.midi.MidiLoggerDeviceProvider;
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link MidiMerger}.
+ */
+public class MidiMergerTest extends TestCase {
+
+	private static final int COUNT = 3000;
+
+	private Level level;
+
+	@Override
+	protected void setUp() throws Exception {
+		Logger logger = Logger.getLogger(MidiLogger.class.getName());
+		level = logger.getLevel();
+		logger.setLevel(Level.WARNING);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		Logger.getLogger(MidiLogger.class.getName()).setLevel(level);
+	}
+
+	/**
+	 * Merged messages are delivered from the queue of the transmitter.
+	 */
+	public void testAsynchronous() throws Exception {
+		String name = MidiLoggerDeviceProvider.INFO.getName();
+
+		MidiMerger merger = new MidiMerger(MidiMergerProvider.INFO);
+		merger.setInputs(Arrays.asList(new MergeInput(name, -1)));
+		merger.setAsynchronous(COUNT);
+		merger.open();
+
+		final List<Thread> threads = new ArrayList<Thread>();
+		merger.getTransmitter().setReceiver(new Receiver() {
+			public void send(MidiMessage message, long timeStamp) {
+				synchronized (threads) {
+					threads.add(Thread.currentThread());
+					threads.notifyAll();
+				}
+			}
+
+			public void close() {
+			}
+		});
+
+		MidiDevice input = DevicePool.instance().getMidiDevice(name,
+				Direction.OUT);
+		input.open();
+		try {
+			Receiver receiver = input.getReceiver();
+			for (int i = 0; i < COUNT; i++) {
+				receiver.send(MessageUtils.createMessage(ShortMessage.NOTE_ON,
+						i % 128, 100), -1);
+			}
+
+			synchronized (threads) {
+				long end = System.currentTimeMillis() + 10000;
+				while (threads.size() < COUNT
+						&& System.currentTimeMillis() < end) {
+					threads.wait(100);
+				}
+				assertEquals(COUNT, threads.size());
+			}
+			assertEquals(0, merger.getDropCount());
+		} finally {
+			input.close();
+			merger.close();
+		}
+
+		for (Thread thread : threads) {
+			assertNotSame(Thread.currentThread(), thread);
+			assertFalse("jOrgan Midi Merger".equals(thread.getName()));
+		}
+	}
+
+	/**
+	 * Merged messages must not change after they were received, although
+	 * the pooled messages of the merger are reused.
+	 */
+	public void testPooled() throws Exception {
+		String name = MidiLoggerDeviceProvider.INFO.getName();
+
+		MidiMerger merger = new MidiMerger(MidiMergerProvider.INFO);
+		merger.setInputs(Arrays.asList(new MergeInput(name, 5)));
+		merger.open();
+
+		final List<MidiMessage> received = new ArrayList<MidiMessage>();
+		merger.getTransmitter().setReceiver(new Receiver() {
+			public void send(MidiMessage message, long timeStamp) {
+				synchronized (received) {
+					received.add(message);
+					received.notifyAll();
+				}
+			}
+
+			public void close() {
+			}
+		});
+
+		MidiDevice input = DevicePool.instance().getMidiDevice(name,
+				Direction.OUT);
+		input.open();
+		try {
+			Receiver receiver = input.getReceiver();
+			for (int i = 0; i < COUNT; i++) {
+				receiver.send(MessageUtils.createMessage(ShortMessage.NOTE_ON,
+						i % 128, i / 128), -1);
+			}
+
+			synchronized (received) {
+				long end = System.currentTimeMillis() + 10000;
+				while (received.size() < COUNT
+						&& System.currentTimeMillis() < end) {
+					received.wait(100);
+				}
+				assertEquals(COUNT, received.size());
+			}
+		} finally {
+			input.close();
+			merger.close();
+		}
+
+		for (int i = 0; i < COUNT; i++) {
+			ShortMessage message = (ShortMessage) received.get(i);
+			assertEquals(5, message.getChannel());
+			assertEquals(i % 128, message.getData1());
+			assertEquals(i / 128, message.getData2());
+		}
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.riff;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A random access reader for data in <em>Resource Interchange File
+ * Format</em>. In contrast to {@link RiffReader} only chunk headers are read,
+ * jumping from header to header, and the data of a chunk is mapped into
+ * memory on demand only.
+ */
+public class RiffFile implements Closeable {
+
+	private static final int HEADER_LENGTH = 4 + 4;
+
+	private static final int TYPE_LENGTH = 4;
+
+	private RandomAccessFile file;
+
+	private FileChannel channel;
+
+	private ByteOrder order;
+
+	private Node root;
+
+	/**
+	 * Buffer for reading of headers.
+	 */
+	private ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH
+			+ TYPE_LENGTH);
+
+	/**
+	 * Open the given file.
+	 * 
+	 * @param file
+	 *            file to open
+	 * @throws RiffFormatException
+	 */
+	public RiffFile(File file) throws RiffFormatException {
+		try {
+			this.file = new RandomAccessFile(file, "r");
+			this.channel = this.file.getChannel();
+
+			readHeader(0, true);
+			String id = readId(0);
+			if (RiffChunk.RIFF_ID.equals(id)) {
+				order = ByteOrder.LITTLE_ENDIAN;
+			} else if (RiffChunk.RIFX_ID.equals(id)) {
+				order = ByteOrder.BIG_ENDIAN;
+			} else {
+				throw new RiffFormatException(
+						"riff does not start with RIFF or RIFX");
+			}
+			header.order(order);
+
+			root = new Node(id, readId(HEADER_LENGTH), HEADER_LENGTH,
+					readLength());
+		} catch (IOException ex) {
+			close();
+
+			if (ex instanceof RiffFormatException) {
+				throw (RiffFormatException) ex;
+			}
+			throw new RiffFormatException(ex);
+		}
+	}
+
+	/**
+	 * Get the root chunk.
+	 * 
+	 * @return the <code>RIFF</code> or <code>RIFX</code> chunk
+	 */
+	public Node getRoot() {
+		return root;
+	}
+
+	public void close() {
+		if (file != null) {
+			try {
+				file.close();
+			} catch (IOException ignore) {
+			}
+			file = null;
+			channel = null;
+		}
+	}
+
+	private void readHeader(long position, boolean list) throws IOException {
+		header.clear();
+		header.limit(list ? HEADER_LENGTH + TYPE_LENGTH : HEADER_LENGTH);
+		while (header.hasRemaining()) {
+			if (channel.read(header, position + header.position()) == -1) {
+				throw new RiffFormatException("unexpected end of riff");
+			}
+		}
+	}
+
+	private String readId(int index) {
+		byte[] characters = new byte[4];
+		for (int c = 0; c < characters.length; c++) {
+			characters[c] = header.get(index + c);
+		}
+		return new String(characters);
+	}
+
+	private long readLength() {
+		return header.getInt(4) & 0xffffffffl;
+	}
+
+	/**
+	 * A chunk in the riff file - contained chunks are read lazily.
+	 */
+	public class Node {
+
+		private String id;
+
+		private String type;
+
+		/**
+		 * Position of the data of this chunk.
+		 */
+		private long position;
+
+		private long dataLength;
+
+		private List<Node> children;
+
+		private Node(String id, String type, long position, long dataLength) {
+			this.id = id;
+			this.type = type;
+			this.position = position;
+			this.dataLength = dataLength;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * Get the type of a list.
+		 * 
+		 * @return the type or <code>null</code> if this chunk is not a list
+		 */
+		public String getType() {
+			return type;
+		}
+
+		public long getDataLength() {
+			return dataLength;
+		}
+
+		/**
+		 * Is this chunk a list of other chunks.
+		 */
+		public boolean isList() {
+			return type != null;
+		}
+
+		/**
+		 * Get the contained chunks, reading their headers only.
+		 * 
+		 * @return contained chunks
+		 * @throws RiffFormatException
+		 */
+		public List<Node> getChildren() throws RiffFormatException {
+			if (children == null) {
+				if (!isList()) {
+					throw new IllegalStateException("not a list");
+				}
+
+				List<Node> children = new ArrayList<Node>();
+				try {
+					long end = position + dataLength;
+					long next = position + TYPE_LENGTH;
+					while (next + HEADER_LENGTH <= end) {
+						readHeader(next, false);
+						String id = readId(0);
+						long length = readLength();
+
+						String type = null;
+						long data = next + HEADER_LENGTH;
+						if (ListChunk.LIST_ID.equals(id)) {
+							readHeader(next, true);
+							type = readId(HEADER_LENGTH);
+						}
+						children.add(new Node(id, type, data, length));
+
+						next = data + length + (length % 2);
+					}
+				} catch (IOException ex) {
+					throw new RiffFormatException(ex);
+				}
+				this.children = children;
+			}
+			return children;
+		}
+
+		/**
+		 * Get the contained chunk with the given id.
+		 * 
+		 * @param id
+		 *            id to get chunk for
+		 * @return chunk or <code>null</code>
+		 */
+		public Node getChild(String id) throws RiffFormatException {
+			for (Node child : getChildren()) {
+				if (id.equals(child.id)) {
+					return child;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Get the contained list with the given type.
+		 * 
+		 * @param type
+		 *            type to get list for
+		 * @return list or <code>null</code>
+		 */
+		public Node getList(String type) throws RiffFormatException {
+			for (Node child : getChildren()) {
+				if (type.equals(child.type)) {
+					return child;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Map the data of this chunk into memory.
+		 * 
+		 * @return the data in the byte order of the riff file
+		 * @throws RiffFormatException
+		 */
+		public ByteBuffer getData() throws RiffFormatException {
+			try {
+				return channel.map(FileChannel.MapMode.READ_ONLY, position,
+						dataLength).order(order);
+			} catch (IOException ex) {
+				throw new RiffFormatException(ex);
+			}
+		}
+	}
+}
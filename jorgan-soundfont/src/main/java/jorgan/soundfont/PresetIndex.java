@@ -0,0 +1,201 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.soundfont;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jorgan.riff.RiffFormatException;
+
+/**
+ * A persistent index of the presets of soundfonts, keyed by path, size and
+ * modification time of each soundfont file.
+ */
+public class PresetIndex {
+
+	private static final Logger logger = Logger.getLogger(PresetIndex.class
+			.getName());
+
+	private static final int VERSION = 1;
+
+	private static PresetIndex instance;
+
+	private File file;
+
+	private Map<String, Entry> entries;
+
+	/**
+	 * Create an index.
+	 * 
+	 * @param file
+	 *            file to persist index in
+	 */
+	public PresetIndex(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Get the presets of the given soundfont, read from the soundfont only if
+	 * not already indexed.
+	 * 
+	 * @param soundfont
+	 *            soundfont file
+	 * @return presets
+	 * @throws RiffFormatException
+	 */
+	public synchronized List<Preset> getPresets(File soundfont)
+			throws RiffFormatException {
+		if (entries == null) {
+			entries = load();
+		}
+
+		String path = soundfont.getAbsolutePath();
+		long size = soundfont.length();
+		long modified = soundfont.lastModified();
+
+		Entry entry = entries.get(path);
+		if (entry == null || entry.size != size || entry.modified != modified) {
+			entry = new Entry(size, modified, SoundfontReader
+					.readPresets(soundfont));
+			entries.put(path, entry);
+
+			save();
+		}
+
+		return new ArrayList<Preset>(entry.presets);
+	}
+
+	private Map<String, Entry> load() {
+		Map<String, Entry> entries = new HashMap<String, Entry>();
+
+		if (file.exists()) {
+			DataInputStream input = null;
+			try {
+				input = new DataInputStream(new BufferedInputStream(
+						new FileInputStream(file)));
+
+				if (input.readInt() == VERSION) {
+					int count = input.readInt();
+					for (int e = 0; e < count; e++) {
+						String path = input.readUTF();
+						long size = input.readLong();
+						long modified = input.readLong();
+
+						int presetCount = input.readInt();
+						List<Preset> presets = new ArrayList<Preset>(
+								presetCount);
+						for (int p = 0; p < presetCount; p++) {
+							presets.add(new Preset(input.readUTF(), input
+									.readShort(), input.readShort()));
+						}
+
+						entries.put(path, new Entry(size, modified, presets));
+					}
+				}
+			} catch (IOException ex) {
+				logger.log(Level.INFO, "unable to load preset index", ex);
+				entries.clear();
+			} finally {
+				if (input != null) {
+					try {
+						input.close();
+					} catch (IOException ignore) {
+					}
+				}
+			}
+		}
+
+		return entries;
+	}
+
+	private void save() {
+		DataOutputStream output = null;
+		try {
+			output = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+
+			output.writeInt(VERSION);
+			output.writeInt(entries.size());
+			for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+				output.writeUTF(entry.getKey());
+				output.writeLong(entry.getValue().size);
+				output.writeLong(entry.getValue().modified);
+
+				List<Preset> presets = entry.getValue().presets;
+				output.writeInt(presets.size());
+				for (Preset preset : presets) {
+					output.writeUTF(preset.getName());
+					output.writeShort(preset.getProgram());
+					output.writeShort(preset.getBank());
+				}
+			}
+		} catch (IOException ex) {
+			logger.log(Level.INFO, "unable to save preset index", ex);
+		} finally {
+			if (output != null) {
+				try {
+					output.close();
+				} catch (IOException ignore) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the shared index, persisted in the user's jOrgan directory.
+	 */
+	public static synchronized PresetIndex instance() {
+		if (instance == null) {
+			File home = new File(System.getProperty("user.home"), ".jorgan");
+			if (!home.exists()) {
+				home.mkdirs();
+			}
+
+			instance = new PresetIndex(new File(home, "presets.index"));
+		}
+		return instance;
+	}
+
+	private static class Entry {
+
+		private long size;
+
+		private long modified;
+
+		private List<Preset> presets;
+
+		public Entry(long size, long modified, List<Preset> presets) {
+			this.size = size;
+			this.modified = modified;
+			this.presets = presets;
+		}
+	}
+}
@@ -18,11 +18,16 @@
  */
 package jorgan.soundfont;
 
+import java.io.File;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 import jorgan.riff.ListChunk;
 import jorgan.riff.RiffChunk;
+import jorgan.riff.RiffFile;
+import jorgan.riff.RiffFormatException;
 import jorgan.riff.RiffReader;
 import jorgan.soundfont.factory.PresetHeaderChunkFactory;
 
@@ -35,6 +40,10 @@ public class SoundfontReader extends RiffReader {
 
 	public static final String PRESETS_HEADER_ID = "phdr";
 
+	private static final int PRESET_LENGTH = 38;
+
+	private static final int PRESET_NAME_LENGTH = 20;
+
 	public SoundfontReader(InputStream in) {
 		super(in);
 
@@ -71,4 +80,55 @@ public class SoundfontReader extends RiffReader {
 
 		return presetHeaderChunk.getPresets();
 	}
+
+	/**
+	 * Read the presets of the given soundfont file. In contrast to
+	 * {@link #read()} only the preset headers are read, skipping all other
+	 * data.
+	 * 
+	 * @param file
+	 *            soundfont file
+	 * @return list of presets
+	 * @throws RiffFormatException
+	 */
+	public static List<Preset> readPresets(File file)
+			throws RiffFormatException {
+		RiffFile riff = new RiffFile(file);
+		try {
+			RiffFile.Node presetDataNode = riff.getRoot().getList(
+					PRESETS_DATA_LIST_TYPE);
+			if (presetDataNode == null) {
+				throw new SoundfontFormatException("missing soundfont presets");
+			}
+			RiffFile.Node presetHeaderNode = presetDataNode
+					.getChild(PRESETS_HEADER_ID);
+			if (presetHeaderNode == null) {
+				throw new SoundfontFormatException("missing soundfont presets");
+			}
+
+			ByteBuffer data = presetHeaderNode.getData();
+
+			List<Preset> presets = new ArrayList<Preset>();
+			byte[] name = new byte[PRESET_NAME_LENGTH];
+			// skip last dummy preset
+			int count = data.limit() / PRESET_LENGTH - 1;
+			for (int p = 0; p < count; p++) {
+				int offset = p * PRESET_LENGTH;
+
+				data.position(offset);
+				data.get(name);
+				int length = 0;
+				while (length < name.length && name[length] != 0) {
+					length++;
+				}
+
+				presets.add(new Preset(new String(name, 0, length), data
+						.getShort(offset + PRESET_NAME_LENGTH), data
+						.getShort(offset + PRESET_NAME_LENGTH + 2)));
+			}
+			return presets;
+		} finally {
+			riff.close();
+		}
+	}
 }
@@ -19,9 +19,7 @@
 package jorgan.soundfont.gui.imports;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -36,10 +34,9 @@ import jorgan.disposition.Element;
 import jorgan.disposition.Rank;
 import jorgan.disposition.Stop;
 import jorgan.importer.gui.Import;
-import jorgan.riff.RiffChunk;
 import jorgan.riff.RiffFormatException;
 import jorgan.soundfont.Preset;
-import jorgan.soundfont.SoundfontReader;
+import jorgan.soundfont.PresetIndex;
 import jorgan.swing.wizard.AbstractPage;
 import jorgan.swing.wizard.Page;
 
@@ -114,30 +111,19 @@ public class SoundFontImport implements Import {
 
 		Set<Rank> ranks = new HashSet<Rank>();
 
-		InputStream input = null;
-		try {
-			input = new FileInputStream(file);
-
-			RiffChunk riffChunk = new SoundfontReader(input).read();
-
-			List<Preset> presets = SoundfontReader.getPresets(riffChunk);
-			Collections.sort(presets);
-			for (int p = 0; p < presets.size(); p++) {
-				Preset preset = presets.get(p);
-
-				Rank rank = new Rank();
-				rank.setName(preset.getName());
-				rank.setProgram(preset.getProgram());
-				rank.setBank(bank + (bankPresets ? preset.getBank() : 0));
-				if (!this.panel.getTouchSensitive()) {
-					rank.setVelocity(100);
-				}
-				ranks.add(rank);
-			}
-		} finally {
-			if (input != null) {
-				input.close();
+		List<Preset> presets = PresetIndex.instance().getPresets(file);
+		Collections.sort(presets);
+		for (int p = 0; p < presets.size(); p++) {
+			Preset preset = presets.get(p);
+
+			Rank rank = new Rank();
+			rank.setName(preset.getName());
+			rank.setProgram(preset.getProgram());
+			rank.setBank(bank + (bankPresets ? preset.getBank() : 0));
+			if (!this.panel.getTouchSensitive()) {
+				rank.setVelocity(100);
 			}
+			ranks.add(rank);
 		}
 
 		return ranks;
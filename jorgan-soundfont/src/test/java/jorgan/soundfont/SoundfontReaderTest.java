@@ -0,0 +1,148 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.soundfont;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import jorgan.riff.RiffChunk;
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link SoundfontReader}.
+ */
+public class SoundfontReaderTest extends TestCase {
+
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("test", ".sf2");
+
+		ByteArrayOutputStream phdr = new ByteArrayOutputStream();
+		preset(phdr, "Principal 8", 0, 0);
+		preset(phdr, "Flute 4", 1, 0);
+		preset(phdr, "Trumpet", 5, 128);
+		preset(phdr, "EOP", 0, 0);
+
+		ByteArrayOutputStream info = new ByteArrayOutputStream();
+		chunk(info, "ifil", new byte[4]);
+		chunk(info, "INAM", "Test\0\0".getBytes());
+
+		ByteArrayOutputStream sdta = new ByteArrayOutputStream();
+		chunk(sdta, "smpl", new byte[100000]);
+
+		ByteArrayOutputStream pdta = new ByteArrayOutputStream();
+		chunk(pdta, "phdr", phdr.toByteArray());
+
+		ByteArrayOutputStream sfbk = new ByteArrayOutputStream();
+		sfbk.write("sfbk".getBytes());
+		list(sfbk, "INFO", info.toByteArray());
+		list(sfbk, "sdta", sdta.toByteArray());
+		list(sfbk, "pdta", pdta.toByteArray());
+
+		OutputStream output = new FileOutputStream(file);
+		chunk(output, "RIFF", sfbk.toByteArray());
+		output.close();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	public void testReadPresets() throws Exception {
+		InputStream input = new FileInputStream(file);
+		RiffChunk riffChunk = new SoundfontReader(input).read();
+		List<Preset> streamed = SoundfontReader.getPresets(riffChunk);
+
+		List<Preset> mapped = SoundfontReader.readPresets(file);
+
+		assertEquals(3, mapped.size());
+		assertEquals(streamed.size(), mapped.size());
+		for (int p = 0; p < mapped.size(); p++) {
+			assertEquals(streamed.get(p).getName(), mapped.get(p).getName());
+			assertEquals(streamed.get(p).getProgram(), mapped.get(p)
+					.getProgram());
+			assertEquals(streamed.get(p).getBank(), mapped.get(p).getBank());
+		}
+		assertEquals("Trumpet", mapped.get(2).getName());
+		assertEquals(128, mapped.get(2).getBank());
+	}
+
+	public void testIndex() throws Exception {
+		File index = File.createTempFile("test", ".index");
+		index.delete();
+
+		List<Preset> presets = new PresetIndex(index).getPresets(file);
+		assertEquals(3, presets.size());
+		assertTrue(index.exists());
+
+		// corrupt soundfont without changing size and modification
+		long modified = file.lastModified();
+		byte[] garbage = new byte[(int) file.length()];
+		OutputStream output = new FileOutputStream(file);
+		output.write(garbage);
+		output.close();
+		file.setLastModified(modified);
+
+		presets = new PresetIndex(index).getPresets(file);
+		assertEquals(3, presets.size());
+		assertEquals("Flute 4", presets.get(1).getName());
+
+		index.delete();
+	}
+
+	private void preset(OutputStream output, String name, int program,
+			int bank) throws IOException {
+		byte[] bytes = new byte[38];
+		System.arraycopy(name.getBytes(), 0, bytes, 0, name.length());
+		bytes[20] = (byte) program;
+		bytes[22] = (byte) bank;
+		bytes[23] = (byte) (bank >> 8);
+		output.write(bytes);
+	}
+
+	private void list(OutputStream output, String type, byte[] data)
+			throws IOException {
+		ByteArrayOutputStream list = new ByteArrayOutputStream();
+		list.write(type.getBytes());
+		list.write(data);
+		chunk(output, "LIST", list.toByteArray());
+	}
+
+	private void chunk(OutputStream output, String id, byte[] data)
+			throws IOException {
+		output.write(id.getBytes());
+		output.write(data.length);
+		output.write(data.length >> 8);
+		output.write(data.length >> 16);
+		output.write(data.length >> 24);
+		output.write(data);
+		if (data.length % 2 == 1) {
+			output.write(0);
+		}
+	}
+}